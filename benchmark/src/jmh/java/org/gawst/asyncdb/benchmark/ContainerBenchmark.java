@@ -0,0 +1,100 @@
+package org.gawst.asyncdb.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes on each in-memory container, from a single thread and from multiple threads sharing the same container.
+ * <p>The writes include their commit in the source: above {@link org.gawst.asyncdb.benchmark.Containers#MAX_PENDING_WRITES}
+ * pending writes the writers wait for the internal thread.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ContainerBenchmark {
+
+	@Param({"HASHMAP", "LRU_CACHE", "ARRAY_LIST", "COPY_ON_WRITE_LIST", "TREE_SET"})
+	public Containers.Type type;
+
+	/**
+	 * Number of elements in the container.
+	 */
+	@Param({"1000"})
+	public int size;
+
+	private Containers.Container container;
+	private Integer[] keys;
+
+	@State(Scope.Thread)
+	public static class KeyPicker {
+		private final Random random = new Random(42);
+
+		int next(int range) {
+			return random.nextInt(range);
+		}
+	}
+
+	@Setup
+	public void setUp() throws InterruptedException {
+		container = Containers.create(type, size);
+		keys = new Integer[size];
+		for (int i = 0; i < keys.length; ++i) {
+			keys[i] = i;
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		container.awaitWrites();
+	}
+
+	@Benchmark
+	public Object read(KeyPicker picker) {
+		return container.read(keys[picker.next(keys.length)]);
+	}
+
+	@Benchmark
+	public void write(KeyPicker picker) {
+		container.write(keys[picker.next(keys.length)]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Object readConcurrent(KeyPicker picker) {
+		return container.read(keys[picker.next(keys.length)]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void writeConcurrent(KeyPicker picker) {
+		container.write(keys[picker.next(keys.length)]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Object mixedConcurrent(KeyPicker picker) {
+		Integer key = keys[picker.next(keys.length)];
+		if (key % 10 == 0) {
+			container.write(key);
+			return null;
+		}
+		return container.read(key);
+	}
+}
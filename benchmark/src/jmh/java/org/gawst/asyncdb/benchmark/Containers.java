@@ -0,0 +1,247 @@
+package org.gawst.asyncdb.benchmark;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import org.gawst.asyncdb.AsynchronousDbHelper;
+import org.gawst.asyncdb.BackpressurePolicy;
+import org.gawst.asyncdb.InMemoryDbArrayList;
+import org.gawst.asyncdb.InMemoryDbCopyOnWriteArrayList;
+import org.gawst.asyncdb.InMemoryDbTreeSet;
+import org.gawst.asyncdb.InMemoryHashmapDb;
+import org.gawst.asyncdb.InMemoryLruCache;
+
+/**
+ * The in-memory containers measured by the benchmarks, behind the same read and write calls.
+ * <p>They are created on a {@link org.gawst.asyncdb.benchmark.MemoryDataSource} with {@code size} elements and use the
+ * {@link org.gawst.asyncdb.JavaDbScheduler} of the plain JVM.</p>
+ */
+final class Containers {
+
+	/**
+	 * Maximum number of writes waiting for the internal thread, the writers are blocked above so the benchmarks measure
+	 * the rate the writes are committed and not how fast the queue grows.
+	 */
+	static final int MAX_PENDING_WRITES = 1024;
+
+	private Containers() {
+	}
+
+	enum Type {
+		HASHMAP,
+		LRU_CACHE,
+		ARRAY_LIST,
+		COPY_ON_WRITE_LIST,
+		TREE_SET,
+	}
+
+	/**
+	 * A container and its helper.
+	 */
+	static abstract class Container {
+		/**
+		 * Read the element of the {@code key} from memory.
+		 */
+		abstract Object read(Integer key);
+
+		/**
+		 * Write the element of the {@code key} in memory and schedule its write in the source, an insert if it's not
+		 * in memory, an update otherwise.
+		 */
+		abstract void write(Integer key);
+
+		abstract AsynchronousDbHelper<?, Long> helper();
+
+		/**
+		 * Wait until the load and all the writes scheduled before are done.
+		 */
+		void awaitWrites() throws InterruptedException {
+			helper().flush().await();
+		}
+	}
+
+	static Container create(Type type, int size) throws InterruptedException {
+		final Container container;
+		switch (type) {
+			case HASHMAP:
+				container = new HashmapContainer(new MemoryMapSource(size));
+				break;
+			case LRU_CACHE:
+				container = new LruCacheContainer(new MemoryMapSource(size), size);
+				break;
+			case ARRAY_LIST:
+				container = new ArrayListContainer(new MemoryListSource(size));
+				break;
+			case COPY_ON_WRITE_LIST:
+				container = new CopyOnWriteListContainer(new MemoryListSource(size));
+				break;
+			case TREE_SET:
+				container = new TreeSetContainer(new MemoryListSource(size));
+				break;
+			default:
+				throw new IllegalArgumentException("unknown container " + type);
+		}
+		container.helper().setMaxPendingOperations(MAX_PENDING_WRITES, BackpressurePolicy.BLOCK);
+		container.awaitWrites();
+		return container;
+	}
+
+	private static ContentValues valuesOf(Integer key, String value) {
+		ContentValues values = new ContentValues(2);
+		values.put(MemoryDataSource.COLUMN_KEY, key);
+		values.put(MemoryDataSource.COLUMN_VALUE, value);
+		return values;
+	}
+
+	private static final class HashmapContainer extends Container {
+		private final InMemoryHashmapDb<Integer, String, Long> db;
+
+		HashmapContainer(MemoryMapSource source) {
+			db = new InMemoryHashmapDb<Integer, String, Long>(source, "bench-hashmap", null) {
+				@Override
+				protected ContentValues getValuesFromData(Integer key, String value, boolean update) {
+					return valuesOf(key, value);
+				}
+			};
+		}
+
+		@Override
+		Object read(Integer key) {
+			return db.get(key);
+		}
+
+		@Override
+		void write(Integer key) {
+			db.put(key, "value");
+		}
+
+		@Override
+		AsynchronousDbHelper<?, Long> helper() {
+			return db;
+		}
+	}
+
+	private static final class LruCacheContainer extends Container {
+		private final InMemoryLruCache<Integer, String, Long> db;
+
+		LruCacheContainer(MemoryMapSource source, int maxSize) {
+			db = new InMemoryLruCache<Integer, String, Long>(source, "bench-lru", maxSize, null) {
+				@Override
+				protected ContentValues getValuesFromData(Integer key, String value, boolean update) {
+					return valuesOf(key, value);
+				}
+			};
+		}
+
+		@Override
+		Object read(Integer key) {
+			return db.get(key);
+		}
+
+		@Override
+		void write(Integer key) {
+			db.put(key, "value");
+		}
+
+		@Override
+		AsynchronousDbHelper<?, Long> helper() {
+			return db;
+		}
+	}
+
+	private static final class ArrayListContainer extends Container {
+		private final InMemoryDbArrayList<Integer, Long> db;
+
+		ArrayListContainer(MemoryListSource source) {
+			db = new InMemoryDbArrayList<Integer, Long>(source, "bench-list", null) {
+				@Override
+				public ContentValues getValuesFromData(Integer data, boolean update) {
+					return valuesOf(data, null);
+				}
+			};
+		}
+
+		@Override
+		Object read(Integer key) {
+			return db.findItem(key);
+		}
+
+		@Override
+		void write(Integer key) {
+			if (null == db.findItem(key))
+				db.add(key);
+			else
+				db.update(key);
+		}
+
+		@Override
+		AsynchronousDbHelper<?, Long> helper() {
+			return db;
+		}
+	}
+
+	private static final class CopyOnWriteListContainer extends Container {
+		private final InMemoryDbCopyOnWriteArrayList<Integer, Long> db;
+
+		CopyOnWriteListContainer(MemoryListSource source) {
+			db = new InMemoryDbCopyOnWriteArrayList<Integer, Long>(source, "bench-cow-list", null, null) {
+				@Override
+				public ContentValues getValuesFromData(Integer data, boolean update) {
+					return valuesOf(data, null);
+				}
+			};
+		}
+
+		@Override
+		Object read(Integer key) {
+			return db.findItem(key);
+		}
+
+		@Override
+		void write(Integer key) {
+			if (null == db.findItem(key))
+				db.add(key);
+			else
+				db.update(key);
+		}
+
+		@Override
+		AsynchronousDbHelper<?, Long> helper() {
+			return db;
+		}
+	}
+
+	private static final class TreeSetContainer extends Container {
+		private final InMemoryDbTreeSet<Integer, Long> db;
+
+		TreeSetContainer(MemoryListSource source) {
+			db = new InMemoryDbTreeSet<Integer, Long>(source, "bench-treeset", null, null) {
+				@Override
+				public ContentValues getValuesFromData(Integer data, boolean update) {
+					return valuesOf(data, null);
+				}
+
+				@Override
+				protected Integer getDataFromCursor(Cursor c) {
+					throw new UnsupportedOperationException("the elements are not read from a Cursor");
+				}
+			};
+		}
+
+		@Override
+		Object read(Integer key) {
+			return db.contains(key);
+		}
+
+		@Override
+		void write(Integer key) {
+			if (!db.replace(key))
+				db.add(key);
+		}
+
+		@Override
+		AsynchronousDbHelper<?, Long> helper() {
+			return db;
+		}
+	}
+}
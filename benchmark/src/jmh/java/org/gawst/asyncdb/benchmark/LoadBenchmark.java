@@ -0,0 +1,40 @@
+package org.gawst.asyncdb.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to create each in-memory container and load {@code rows} elements from the {@code queryAll()} of its source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+
+	@Param({"HASHMAP", "LRU_CACHE", "ARRAY_LIST", "COPY_ON_WRITE_LIST", "TREE_SET"})
+	public Containers.Type type;
+
+	/**
+	 * Number of rows in the source.
+	 */
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Benchmark
+	public Object queryAll() throws InterruptedException {
+		return Containers.create(type, rows);
+	}
+}
@@ -0,0 +1,100 @@
+package org.gawst.asyncdb.benchmark;
+
+import org.gawst.asyncdb.LruCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes on the {@link org.gawst.asyncdb.LruCache} used by {@link org.gawst.asyncdb.InMemoryLruCache}, from a single
+ * thread and from multiple threads sharing the same cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LruCacheBenchmark {
+
+	/**
+	 * Number of elements in the cache.
+	 */
+	@Param({"100", "10000"})
+	public int size;
+
+	/**
+	 * Ratio between the number of keys used and the size of the cache, above 1 some reads miss and some writes evict.
+	 */
+	@Param({"1", "2"})
+	public int keyRange;
+
+	private LruCache<Integer, String> cache;
+	private Integer[] keys;
+
+	@State(Scope.Thread)
+	public static class KeyPicker {
+		private final Random random = new Random(42);
+
+		int next(int range) {
+			return random.nextInt(range);
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		cache = new LruCache<Integer, String>(size);
+		keys = new Integer[size * keyRange];
+		for (int i = 0; i < keys.length; ++i) {
+			keys[i] = i;
+		}
+		for (int i = 0; i < size; ++i) {
+			cache.put(keys[i], String.valueOf(i));
+		}
+	}
+
+	@Benchmark
+	public String get(KeyPicker picker) {
+		return cache.get(keys[picker.next(keys.length)]);
+	}
+
+	@Benchmark
+	public String put(KeyPicker picker) {
+		Integer key = keys[picker.next(keys.length)];
+		return cache.put(key, "value");
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String getConcurrent(KeyPicker picker) {
+		return cache.get(keys[picker.next(keys.length)]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String putConcurrent(KeyPicker picker) {
+		Integer key = keys[picker.next(keys.length)];
+		return cache.put(key, "value");
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String mixedConcurrent(KeyPicker picker) {
+		Integer key = keys[picker.next(keys.length)];
+		if (key % 10 == 0)
+			return cache.put(key, "value");
+		return cache.get(key);
+	}
+}
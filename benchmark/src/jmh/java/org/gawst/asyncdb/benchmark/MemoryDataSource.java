@@ -0,0 +1,94 @@
+package org.gawst.asyncdb.benchmark;
+
+import android.content.ContentValues;
+
+import org.gawst.asyncdb.DataSource;
+import org.gawst.asyncdb.InvalidEntry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link org.gawst.asyncdb.DataSource} keeping its rows in memory, so the benchmarks measure the helpers and not a storage.
+ *
+ * @param <E> Type of the elements stored.
+ */
+abstract class MemoryDataSource<E> implements DataSource<E, Long> {
+
+	static final String COLUMN_KEY = "key";
+	static final String COLUMN_VALUE = "value";
+
+	private final ConcurrentHashMap<Object, E> rows = new ConcurrentHashMap<Object, E>();
+	private final AtomicLong nextId = new AtomicLong();
+
+	/**
+	 * @param rowCount Number of rows already in the source.
+	 */
+	MemoryDataSource(int rowCount) {
+		for (int i = 0; i < rowCount; ++i) {
+			E element = newElement(i);
+			rows.put(keyOf(element), element);
+		}
+	}
+
+	/**
+	 * @return The element stored in the source for the {@code key}.
+	 */
+	abstract E newElement(int key);
+
+	/**
+	 * @return The key identifying the {@code element} in the source.
+	 */
+	abstract Object keyOf(E element);
+
+	/**
+	 * @return The element written with the {@code values}.
+	 */
+	abstract E fromValues(ContentValues values);
+
+	int size() {
+		return rows.size();
+	}
+
+	@Override
+	public void queryAll(BatchReadingCallback<E> readingCallback) {
+		readingCallback.startLoadingAllItems(rows.size());
+		for (E element : rows.values()) {
+			readingCallback.addItemInMemory(element);
+		}
+	}
+
+	@Override
+	public int clearAllData() {
+		int count = rows.size();
+		rows.clear();
+		return count;
+	}
+
+	@Override
+	public Long insert(ContentValues element) throws RuntimeException {
+		E inserted = fromValues(element);
+		rows.put(keyOf(inserted), inserted);
+		return nextId.incrementAndGet();
+	}
+
+	@Override
+	public int delete(E itemToDelete) {
+		return null == rows.remove(keyOf(itemToDelete)) ? 0 : 1;
+	}
+
+	@Override
+	public boolean deleteInvalidEntry(InvalidEntry invalidEntry) {
+		return false;
+	}
+
+	@Override
+	public boolean update(E itemToUpdate, ContentValues updateValues) {
+		return null != rows.put(keyOf(itemToUpdate), itemToUpdate);
+	}
+
+	@Override
+	public void eraseSource() {
+		rows.clear();
+	}
+}
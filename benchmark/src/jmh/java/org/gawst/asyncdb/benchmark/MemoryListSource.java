@@ -0,0 +1,28 @@
+package org.gawst.asyncdb.benchmark;
+
+import android.content.ContentValues;
+
+/**
+ * {@link org.gawst.asyncdb.benchmark.MemoryDataSource} of the list and set containers, each element is its own key.
+ */
+final class MemoryListSource extends MemoryDataSource<Integer> {
+
+	MemoryListSource(int rowCount) {
+		super(rowCount);
+	}
+
+	@Override
+	Integer newElement(int key) {
+		return key;
+	}
+
+	@Override
+	Object keyOf(Integer element) {
+		return element;
+	}
+
+	@Override
+	Integer fromValues(ContentValues values) {
+		return values.getAsInteger(COLUMN_KEY);
+	}
+}
@@ -0,0 +1,31 @@
+package org.gawst.asyncdb.benchmark;
+
+import android.content.ContentValues;
+
+import org.gawst.asyncdb.MapEntry;
+import org.gawst.asyncdb.source.MapDataSource;
+
+/**
+ * {@link org.gawst.asyncdb.benchmark.MemoryDataSource} of the map containers, the value of each key is its text.
+ */
+final class MemoryMapSource extends MemoryDataSource<MapEntry<Integer, String>> implements MapDataSource<Integer, String, Long> {
+
+	MemoryMapSource(int rowCount) {
+		super(rowCount);
+	}
+
+	@Override
+	MapEntry<Integer, String> newElement(int key) {
+		return new MapEntry<Integer, String>(key, String.valueOf(key));
+	}
+
+	@Override
+	Object keyOf(MapEntry<Integer, String> element) {
+		return element.getKey();
+	}
+
+	@Override
+	MapEntry<Integer, String> fromValues(ContentValues values) {
+		return new MapEntry<Integer, String>(values.getAsInteger(COLUMN_KEY), values.getAsString(COLUMN_VALUE));
+	}
+}
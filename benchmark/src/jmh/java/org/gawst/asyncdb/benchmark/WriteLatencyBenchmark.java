@@ -0,0 +1,79 @@
+package org.gawst.asyncdb.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time between scheduling a write on each in-memory container and the end of its commit in the source, measured with a
+ * {@link org.gawst.asyncdb.AsynchronousDbHelper#flush() flush()} scheduled right after it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class WriteLatencyBenchmark {
+
+	@Param({"HASHMAP", "LRU_CACHE", "ARRAY_LIST", "COPY_ON_WRITE_LIST", "TREE_SET"})
+	public Containers.Type type;
+
+	/**
+	 * Number of elements in the container.
+	 */
+	@Param({"1000"})
+	public int size;
+
+	private Containers.Container container;
+	private Integer[] keys;
+
+	@State(Scope.Thread)
+	public static class KeyPicker {
+		private final Random random = new Random(42);
+
+		int next(int range) {
+			return random.nextInt(range);
+		}
+	}
+
+	@Setup
+	public void setUp() throws InterruptedException {
+		container = Containers.create(type, size);
+		keys = new Integer[size];
+		for (int i = 0; i < keys.length; ++i) {
+			keys[i] = i;
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		container.awaitWrites();
+	}
+
+	@Benchmark
+	public void writeAndCommit(KeyPicker picker) throws InterruptedException {
+		container.write(keys[picker.next(keys.length)]);
+		container.awaitWrites();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void writeAndCommitConcurrent(KeyPicker picker) throws InterruptedException {
+		container.write(keys[picker.next(keys.length)]);
+		container.awaitWrites();
+	}
+}
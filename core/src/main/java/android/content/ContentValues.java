@@ -0,0 +1,184 @@
+package android.content;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The value bag of the core module, with the same API as the Android {@code ContentValues} so the helpers and data
+ * sources run unchanged on a plain JVM.
+ * <p>Numbers are converted like Android does when read with another type, a {@code String} is parsed.</p>
+ */
+public final class ContentValues {
+	private final HashMap<String, Object> values;
+
+	public ContentValues() {
+		values = new HashMap<String, Object>(8);
+	}
+
+	public ContentValues(int size) {
+		values = new HashMap<String, Object>(size, 1.0f);
+	}
+
+	public ContentValues(ContentValues from) {
+		values = new HashMap<String, Object>(from.values);
+	}
+
+	public void put(String key, String value) {
+		values.put(key, value);
+	}
+
+	public void put(String key, Byte value) {
+		values.put(key, value);
+	}
+
+	public void put(String key, Short value) {
+		values.put(key, value);
+	}
+
+	public void put(String key, Integer value) {
+		values.put(key, value);
+	}
+
+	public void put(String key, Long value) {
+		values.put(key, value);
+	}
+
+	public void put(String key, Float value) {
+		values.put(key, value);
+	}
+
+	public void put(String key, Double value) {
+		values.put(key, value);
+	}
+
+	public void put(String key, Boolean value) {
+		values.put(key, value);
+	}
+
+	public void put(String key, byte[] value) {
+		values.put(key, value);
+	}
+
+	public void putNull(String key) {
+		values.put(key, null);
+	}
+
+	public void putAll(ContentValues other) {
+		values.putAll(other.values);
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	public void remove(String key) {
+		values.remove(key);
+	}
+
+	public void clear() {
+		values.clear();
+	}
+
+	public boolean containsKey(String key) {
+		return values.containsKey(key);
+	}
+
+	public Object get(String key) {
+		return values.get(key);
+	}
+
+	public String getAsString(String key) {
+		Object value = values.get(key);
+		return null == value ? null : value.toString();
+	}
+
+	public Long getAsLong(String key) {
+		Object value = values.get(key);
+		if (value instanceof Number)
+			return ((Number) value).longValue();
+		if (value instanceof Boolean)
+			return (Boolean) value ? 1L : 0L;
+		try {
+			return null == value ? null : Long.valueOf(value.toString());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public Integer getAsInteger(String key) {
+		Long value = getAsLong(key);
+		return null == value ? null : value.intValue();
+	}
+
+	public Short getAsShort(String key) {
+		Long value = getAsLong(key);
+		return null == value ? null : value.shortValue();
+	}
+
+	public Byte getAsByte(String key) {
+		Long value = getAsLong(key);
+		return null == value ? null : value.byteValue();
+	}
+
+	public Double getAsDouble(String key) {
+		Object value = values.get(key);
+		if (value instanceof Number)
+			return ((Number) value).doubleValue();
+		try {
+			return null == value ? null : Double.valueOf(value.toString());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public Float getAsFloat(String key) {
+		Double value = getAsDouble(key);
+		return null == value ? null : value.floatValue();
+	}
+
+	public Boolean getAsBoolean(String key) {
+		Object value = values.get(key);
+		if (value instanceof Boolean)
+			return (Boolean) value;
+		if (value instanceof Number)
+			return ((Number) value).longValue() != 0;
+		if (value instanceof CharSequence)
+			return Boolean.valueOf(value.toString()) || "1".equals(value.toString());
+		return null;
+	}
+
+	public byte[] getAsByteArray(String key) {
+		Object value = values.get(key);
+		return value instanceof byte[] ? (byte[]) value : null;
+	}
+
+	public Set<Map.Entry<String, Object>> valueSet() {
+		return values.entrySet();
+	}
+
+	public Set<String> keySet() {
+		return values.keySet();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof ContentValues && values.equals(((ContentValues) o).values);
+	}
+
+	@Override
+	public int hashCode() {
+		return values.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+			if (sb.length() > 0)
+				sb.append(' ');
+			sb.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return sb.toString();
+	}
+}
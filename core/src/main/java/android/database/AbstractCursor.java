@@ -0,0 +1,150 @@
+package android.database;
+
+/**
+ * A {@link android.database.Cursor} handling the position, like the Android {@code AbstractCursor}.
+ */
+public abstract class AbstractCursor implements Cursor {
+	protected int mPos = -1;
+	protected boolean mClosed;
+
+	@Override
+	public abstract int getCount();
+
+	@Override
+	public abstract String[] getColumnNames();
+
+	@Override
+	public abstract String getString(int column);
+
+	@Override
+	public abstract short getShort(int column);
+
+	@Override
+	public abstract int getInt(int column);
+
+	@Override
+	public abstract long getLong(int column);
+
+	@Override
+	public abstract float getFloat(int column);
+
+	@Override
+	public abstract double getDouble(int column);
+
+	@Override
+	public abstract boolean isNull(int column);
+
+	@Override
+	public int getType(int column) {
+		return FIELD_TYPE_STRING;
+	}
+
+	@Override
+	public byte[] getBlob(int column) {
+		throw new UnsupportedOperationException("getBlob is not supported");
+	}
+
+	@Override
+	public final int getPosition() {
+		return mPos;
+	}
+
+	@Override
+	public final boolean moveToPosition(int position) {
+		final int count = getCount();
+		if (position >= count) {
+			mPos = count;
+			return false;
+		}
+		if (position < 0) {
+			mPos = -1;
+			return false;
+		}
+		mPos = position;
+		return true;
+	}
+
+	@Override
+	public final boolean move(int offset) {
+		return moveToPosition(mPos + offset);
+	}
+
+	@Override
+	public final boolean moveToFirst() {
+		return moveToPosition(0);
+	}
+
+	@Override
+	public final boolean moveToLast() {
+		return moveToPosition(getCount() - 1);
+	}
+
+	@Override
+	public final boolean moveToNext() {
+		return moveToPosition(mPos + 1);
+	}
+
+	@Override
+	public final boolean moveToPrevious() {
+		return moveToPosition(mPos - 1);
+	}
+
+	@Override
+	public final boolean isFirst() {
+		return mPos == 0 && getCount() != 0;
+	}
+
+	@Override
+	public final boolean isLast() {
+		final int count = getCount();
+		return mPos == (count - 1) && count != 0;
+	}
+
+	@Override
+	public final boolean isBeforeFirst() {
+		return getCount() == 0 || mPos == -1;
+	}
+
+	@Override
+	public final boolean isAfterLast() {
+		return getCount() == 0 || mPos == getCount();
+	}
+
+	@Override
+	public int getColumnIndex(String columnName) {
+		final String[] columnNames = getColumnNames();
+		for (int i = 0; i < columnNames.length; ++i) {
+			if (columnNames[i].equalsIgnoreCase(columnName))
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public int getColumnIndexOrThrow(String columnName) {
+		final int index = getColumnIndex(columnName);
+		if (index < 0)
+			throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+		return index;
+	}
+
+	@Override
+	public String getColumnName(int columnIndex) {
+		return getColumnNames()[columnIndex];
+	}
+
+	@Override
+	public int getColumnCount() {
+		return getColumnNames().length;
+	}
+
+	@Override
+	public void close() {
+		mClosed = true;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return mClosed;
+	}
+}
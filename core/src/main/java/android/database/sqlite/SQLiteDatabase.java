@@ -0,0 +1,9 @@
+package android.database.sqlite;
+
+/**
+ * SQLite databases are only available on Android, the core module has no implementation.
+ */
+public final class SQLiteDatabase {
+	private SQLiteDatabase() {
+	}
+}
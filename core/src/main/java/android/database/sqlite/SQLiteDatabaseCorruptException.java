@@ -0,0 +1,13 @@
+package android.database.sqlite;
+
+/**
+ * The database file is corrupted.
+ */
+public class SQLiteDatabaseCorruptException extends SQLiteException {
+	public SQLiteDatabaseCorruptException() {
+	}
+
+	public SQLiteDatabaseCorruptException(String error) {
+		super(error);
+	}
+}
@@ -0,0 +1,17 @@
+package android.database.sqlite;
+
+/**
+ * An SQLite error, SQLite sources are only available on Android.
+ */
+public class SQLiteException extends RuntimeException {
+	public SQLiteException() {
+	}
+
+	public SQLiteException(String error) {
+		super(error);
+	}
+
+	public SQLiteException(String error, Throwable cause) {
+		super(error, cause);
+	}
+}
@@ -0,0 +1,14 @@
+package android.database.sqlite;
+
+/**
+ * SQLite databases are only available on Android, the core module has no implementation.
+ */
+public abstract class SQLiteOpenHelper {
+	protected SQLiteOpenHelper() {
+		throw new UnsupportedOperationException("no SQLite on a plain JVM");
+	}
+
+	public abstract SQLiteDatabase getReadableDatabase();
+
+	public abstract void setWriteAheadLoggingEnabled(boolean enabled);
+}
@@ -0,0 +1,9 @@
+package android.net;
+
+/**
+ * Content provider URIs are only available on Android, the core module has no implementation.
+ */
+public abstract class Uri {
+	private Uri() {
+	}
+}
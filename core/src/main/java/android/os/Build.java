@@ -0,0 +1,23 @@
+package android.os;
+
+/**
+ * The Android version of the core module: the classes it provides behave like the ones of the Android 5.0 framework.
+ */
+public class Build {
+	public static class VERSION {
+		public static final int SDK_INT = VERSION_CODES.LOLLIPOP;
+	}
+
+	public static class VERSION_CODES {
+		public static final int ECLAIR = 5;
+		public static final int FROYO = 8;
+		public static final int GINGERBREAD = 9;
+		public static final int HONEYCOMB = 11;
+		public static final int ICE_CREAM_SANDWICH = 14;
+		public static final int JELLY_BEAN = 16;
+		public static final int JELLY_BEAN_MR1 = 17;
+		public static final int JELLY_BEAN_MR2 = 18;
+		public static final int KITKAT = 19;
+		public static final int LOLLIPOP = 21;
+	}
+}
@@ -0,0 +1,47 @@
+package android.os;
+
+/**
+ * The cancellation of an operation in progress, like the Android {@code CancellationSignal}.
+ */
+public final class CancellationSignal {
+	private boolean canceled;
+	private OnCancelListener onCancelListener;
+
+	public interface OnCancelListener {
+		void onCancel();
+	}
+
+	public boolean isCanceled() {
+		synchronized (this) {
+			return canceled;
+		}
+	}
+
+	public void throwIfCanceled() {
+		if (isCanceled())
+			throw new OperationCanceledException();
+	}
+
+	public void cancel() {
+		final OnCancelListener listener;
+		synchronized (this) {
+			if (canceled)
+				return;
+			canceled = true;
+			listener = onCancelListener;
+		}
+		if (null != listener)
+			listener.onCancel();
+	}
+
+	public void setOnCancelListener(OnCancelListener listener) {
+		synchronized (this) {
+			if (onCancelListener == listener)
+				return;
+			onCancelListener = listener;
+			if (!canceled || null == listener)
+				return;
+		}
+		listener.onCancel();
+	}
+}
@@ -0,0 +1,34 @@
+package android.os;
+
+/**
+ * There is no {@code Handler} on a plain JVM, see {@link android.os.Looper}.
+ */
+public class Handler {
+	public Handler() {
+		throw new UnsupportedOperationException("no Handler on a plain JVM");
+	}
+
+	public Handler(Looper looper) {
+		throw new UnsupportedOperationException("no Handler on a plain JVM");
+	}
+
+	public final boolean post(Runnable r) {
+		throw new UnsupportedOperationException();
+	}
+
+	public final boolean postDelayed(Runnable r, long delayMillis) {
+		throw new UnsupportedOperationException();
+	}
+
+	public final boolean sendEmptyMessage(int what) {
+		throw new UnsupportedOperationException();
+	}
+
+	public final void removeCallbacks(Runnable r) {
+		throw new UnsupportedOperationException();
+	}
+
+	public final Looper getLooper() {
+		throw new UnsupportedOperationException();
+	}
+}
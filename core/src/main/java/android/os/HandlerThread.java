@@ -0,0 +1,19 @@
+package android.os;
+
+/**
+ * There is no {@code HandlerThread} on a plain JVM, see {@link android.os.Looper}.
+ */
+public class HandlerThread extends Thread {
+	public HandlerThread(String name) {
+		this(name, Process.THREAD_PRIORITY_DEFAULT);
+	}
+
+	public HandlerThread(String name, int priority) {
+		super(name);
+		throw new UnsupportedOperationException("no HandlerThread on a plain JVM");
+	}
+
+	public Looper getLooper() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,26 @@
+package android.os;
+
+/**
+ * There is no {@code Looper} on a plain JVM, {@link #getMainLooper()} returns {@code null} so
+ * {@link org.gawst.asyncdb.DbScheduler} uses a {@link org.gawst.asyncdb.JavaDbScheduler}.
+ */
+public final class Looper {
+	private Looper() {
+	}
+
+	public static Looper getMainLooper() {
+		return null;
+	}
+
+	public static Looper myLooper() {
+		return null;
+	}
+
+	public static MessageQueue myQueue() {
+		throw new UnsupportedOperationException("no Looper on a plain JVM");
+	}
+
+	public Thread getThread() {
+		throw new UnsupportedOperationException("no Looper on a plain JVM");
+	}
+}
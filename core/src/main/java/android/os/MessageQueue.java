@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * There is no {@code MessageQueue} on a plain JVM, see {@link android.os.Looper}.
+ */
+public final class MessageQueue {
+	public interface IdleHandler {
+		boolean queueIdle();
+	}
+
+	private MessageQueue() {
+	}
+
+	public void addIdleHandler(IdleHandler handler) {
+		throw new UnsupportedOperationException("no MessageQueue on a plain JVM");
+	}
+
+	public void removeIdleHandler(IdleHandler handler) {
+		throw new UnsupportedOperationException("no MessageQueue on a plain JVM");
+	}
+}
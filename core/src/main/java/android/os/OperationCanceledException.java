@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * Thrown by {@link android.os.CancellationSignal#throwIfCanceled()} when an operation is cancelled.
+ */
+public class OperationCanceledException extends RuntimeException {
+	public OperationCanceledException() {
+		this(null);
+	}
+
+	public OperationCanceledException(String message) {
+		super(null != message ? message : "The operation has been canceled.");
+	}
+}
@@ -0,0 +1,9 @@
+package android.os;
+
+/**
+ * The thread priorities of the Android {@code Process}.
+ */
+public class Process {
+	public static final int THREAD_PRIORITY_DEFAULT = 0;
+	public static final int THREAD_PRIORITY_BACKGROUND = 10;
+}
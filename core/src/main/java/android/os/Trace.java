@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * Trace sections are not recorded on a plain JVM, use a Java profiler instead.
+ */
+public final class Trace {
+	private Trace() {
+	}
+
+	public static void beginSection(String sectionName) {
+	}
+
+	public static void endSection() {
+	}
+}
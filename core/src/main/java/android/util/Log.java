@@ -0,0 +1,63 @@
+package android.util;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Android {@code Log} API of the core module, sending the logs to {@code java.util.logging}.
+ */
+public final class Log {
+	public static final int VERBOSE = 2;
+	public static final int DEBUG = 3;
+	public static final int INFO = 4;
+	public static final int WARN = 5;
+	public static final int ERROR = 6;
+
+	private Log() {
+	}
+
+	private static int log(Level level, String tag, String msg, Throwable tr) {
+		Logger.getLogger(tag).log(level, msg, tr);
+		return 0;
+	}
+
+	public static int v(String tag, String msg) {
+		return log(Level.FINEST, tag, msg, null);
+	}
+
+	public static int v(String tag, String msg, Throwable tr) {
+		return log(Level.FINEST, tag, msg, tr);
+	}
+
+	public static int d(String tag, String msg) {
+		return log(Level.FINE, tag, msg, null);
+	}
+
+	public static int d(String tag, String msg, Throwable tr) {
+		return log(Level.FINE, tag, msg, tr);
+	}
+
+	public static int i(String tag, String msg) {
+		return log(Level.INFO, tag, msg, null);
+	}
+
+	public static int i(String tag, String msg, Throwable tr) {
+		return log(Level.INFO, tag, msg, tr);
+	}
+
+	public static int w(String tag, String msg) {
+		return log(Level.WARNING, tag, msg, null);
+	}
+
+	public static int w(String tag, String msg, Throwable tr) {
+		return log(Level.WARNING, tag, msg, tr);
+	}
+
+	public static int e(String tag, String msg) {
+		return log(Level.SEVERE, tag, msg, null);
+	}
+
+	public static int e(String tag, String msg, Throwable tr) {
+		return log(Level.SEVERE, tag, msg, tr);
+	}
+}
@@ -0,0 +1,36 @@
+package android.util;
+
+/**
+ * The pair of the core module, with the same API as the Android {@code Pair}.
+ */
+public class Pair<F, S> {
+	public final F first;
+	public final S second;
+
+	public Pair(F first, S second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	public static <A, B> Pair<A, B> create(A a, B b) {
+		return new Pair<A, B>(a, b);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Pair))
+			return false;
+		Pair<?, ?> p = (Pair<?, ?>) o;
+		return (null == first ? null == p.first : first.equals(p.first)) && (null == second ? null == p.second : second.equals(p.second));
+	}
+
+	@Override
+	public int hashCode() {
+		return (null == first ? 0 : first.hashCode()) ^ (null == second ? 0 : second.hashCode());
+	}
+
+	@Override
+	public String toString() {
+		return "Pair{" + first + " " + second + "}";
+	}
+}
@@ -0,0 +1,146 @@
+package org.gawst.asyncdb;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Trace;
+import android.support.annotation.NonNull;
+
+import org.gawst.asyncdb.adapter.UIHandler;
+
+import java.util.LinkedList;
+
+/**
+ * {@link org.gawst.asyncdb.DbScheduler} running the operations in a background {@code HandlerThread} and the callbacks
+ * in the UI thread.
+ */
+public class AndroidDbScheduler extends DbScheduler {
+
+	private final Handler workerHandler;
+	private final UIHandler uiHandler = new UIHandler();
+
+	/**
+	 * Runnables waiting to be run in the internal thread, each {@link #laneRunner} posted runs the one with the highest priority.
+	 */
+	private final PriorityLanes lanes = new PriorityLanes();
+	private final Runnable laneRunner = new Runnable() {
+		@Override
+		public void run() {
+			final Runnable next;
+			synchronized (lanes) {
+				next = lanes.poll();
+			}
+			if (null != next)
+				next.run();
+		}
+	};
+
+	/**
+	 * Runnables to run in the internal thread when there is nothing else to do, see {@link #postWhenIdle(Runnable)}
+	 */
+	private final LinkedList<Runnable> idleRunnables = new LinkedList<Runnable>();
+	private final MessageQueue.IdleHandler idleRunner = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			final Runnable idleRunnable;
+			final boolean hasMore;
+			synchronized (idleRunnables) {
+				idleRunnable = idleRunnables.poll();
+				hasMore = !idleRunnables.isEmpty();
+			}
+			if (null != idleRunnable) {
+				idleRunnable.run();
+				if (hasMore) {
+					// let the pending operations run before the next idle operation
+					workerHandler.sendEmptyMessage(0);
+				}
+			}
+			return true;
+		}
+	};
+
+	public AndroidDbScheduler() {
+		HandlerThread handlerThread = new HandlerThread("AsynchronousDbHelper", android.os.Process.THREAD_PRIORITY_BACKGROUND);
+		handlerThread.start();
+		workerHandler = new Handler(handlerThread.getLooper());
+		workerHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				Looper.myQueue().addIdleHandler(idleRunner);
+			}
+		});
+	}
+
+	@Override
+	public void post(@NonNull Runnable r) {
+		post(r, PRIORITY_NORMAL);
+	}
+
+	@Override
+	public void post(@NonNull Runnable r, int priority) {
+		synchronized (lanes) {
+			lanes.add(r, priority);
+		}
+		workerHandler.post(laneRunner);
+	}
+
+	@Override
+	public void postDelayed(@NonNull Runnable r, long delayMillis) {
+		workerHandler.postDelayed(r, delayMillis);
+	}
+
+	@Override
+	public void postWhenIdle(@NonNull Runnable r) {
+		synchronized (idleRunnables) {
+			idleRunnables.add(r);
+		}
+		// wake up the internal thread so it becomes idle again
+		workerHandler.sendEmptyMessage(0);
+	}
+
+	@Override
+	public void postCallback(@NonNull Runnable r) {
+		uiHandler.post(r);
+	}
+
+	@Override
+	public void runCallback(@NonNull Runnable r) {
+		uiHandler.runOnUiThread(r);
+	}
+
+	@Override
+	public void beginTraceSection(@NonNull String sectionName) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+			beginSection(sectionName);
+	}
+
+	@Override
+	public void endTraceSection() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+			endSection();
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static void beginSection(String sectionName) {
+		// the section name is limited to 127 characters
+		Trace.beginSection(sectionName.length() > 127 ? sectionName.substring(0, 127) : sectionName);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static void endSection() {
+		Trace.endSection();
+	}
+
+	@Override
+	public boolean isCallbackThread() {
+		return UIHandler.isUIThread();
+	}
+
+	@Override
+	public void removeCallback(@NonNull Runnable r) {
+		uiHandler.removeCallbacks(r);
+	}
+}
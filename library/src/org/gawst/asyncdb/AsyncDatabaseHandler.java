@@ -4,8 +4,6 @@ import org.gawst.asyncdb.source.typed.TypedDatabaseSource;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import android.os.Handler;
-import android.os.Looper;
 
 /**
  * Class similar to Android's {@link android.content.AsyncQueryHandler AsyncQueryHandler} to work with an
@@ -17,8 +15,15 @@ import android.os.Looper;
 public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 
 	private final AsynchronousDbHelper<?, INSERT_ID> asynchronousDbHelper;
-	private static final Handler mHandler = new Handler(Looper.getMainLooper());
+	private static final DbScheduler scheduler = DbScheduler.getDefault();
+	private final CancellableOperations pendingOperations = new CancellableOperations();
 	protected final TypedDatabaseSource<INSERT_ID, DATABASE_ID, ?> dataSource;
+	private final HandlerQueries.QueryCallback<Cursor> queryCallback = new HandlerQueries.QueryCallback<Cursor>() {
+		@Override
+		public void onQueryComplete(int token, Object cookie, Cursor cursor) {
+			AsyncDatabaseHandler.this.onQueryComplete(token, cookie, cursor);
+		}
+	};
 
 	/**
 	 * Constructor.
@@ -152,25 +157,32 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 	                       final String[] projection, final String selection, final String[] selectionArgs,
 	                       final String orderBy, final String limit) {
 		checkDatabaseId(databaseId);
-		asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
-			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
-				Cursor cursor1;
-				try {
-					cursor1 = dataSource.query(projection, selection, selectionArgs, null, null, orderBy, limit);
-				} catch (Exception e) {
-					cursor1 = null;
-				}
+		HandlerQueries.startQuery(asynchronousDbHelper, pendingOperations, dataSource, token, cookie, projection, selection, selectionArgs, orderBy, limit, queryCallback);
+	}
 
-				final Cursor cursor = cursor1;
-				mHandler.post(new Runnable() {
-					@Override
-					public void run() {
-						onQueryComplete(token, cookie, cursor);
-					}
-				});
-			}
-		});
+	/**
+	 * Attempts to cancel the operations started with the {@code token} that have not already started. Note that there is no
+	 * guarantee that the operation will be cancelled. They still may result in a call to on[Query/Insert/Update/Delete]Complete
+	 * after this call has completed.
+	 * <p>A query already running is interrupted if the {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource} supports
+	 * {@link org.gawst.asyncdb.source.typed.TypedCancellableDatabaseSource cancellation}, its result is never delivered.</p>
+	 *
+	 * @param token The token representing the operation to be cancelled.
+	 *              If multiple operations have the same token they will all be cancelled.
+	 */
+	public final void cancelOperation(int token) {
+		pendingOperations.cancel(token);
+	}
+
+	/**
+	 * Attempts to cancel the operations started with the {@code cookie} that have not already started.
+	 *
+	 * @param cookie The cookie passed when the operation was started.
+	 *               If multiple operations have the same cookie they will all be cancelled.
+	 * @see #cancelOperation(int)
+	 */
+	public final void cancelOperationsForCookie(Object cookie) {
+		pendingOperations.cancelCookie(cookie);
 	}
 
 	/**
@@ -204,9 +216,9 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 	 */
 	public void startInsert(final int token, final Object cookie,
 	                        final ContentValues initialValues) {
-		asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+		pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
 				INSERT_ID inserted1 = null;
 				try {
 					inserted1 = dataSource.insert(initialValues);
@@ -218,8 +230,10 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 					}
 				}
 
+				asynchronousDbHelper.invalidateQueryResultCache();
+
 				final INSERT_ID insertId = inserted1;
-				mHandler.post(new Runnable() {
+				scheduler.postCallback(new Runnable() {
 					@Override
 					public void run() {
 						onInsertComplete(token, cookie, insertId);
@@ -227,6 +241,7 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 				});
 			}
 		});
+		asynchronousDbHelper.invalidateQueryResultCache();
 	}
 
 	/**
@@ -260,18 +275,19 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 	 */
 	public void startUpdate(final int token, final Object cookie,
 	                        final ContentValues values, final String selection, final String[] selectionArgs) {
-		asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+		pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
 				int cursor1;
 				try {
 					cursor1 = dataSource.update(values, selection, selectionArgs);
 				} catch (Exception e) {
 					cursor1 = 0;
 				}
+				asynchronousDbHelper.invalidateQueryResultCache();
 
 				final int cursor = cursor1;
-				mHandler.post(new Runnable() {
+				scheduler.postCallback(new Runnable() {
 					@Override
 					public void run() {
 						onUpdateComplete(token, cookie, cursor);
@@ -279,6 +295,7 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 				});
 			}
 		});
+		asynchronousDbHelper.invalidateQueryResultCache();
 	}
 
 	/**
@@ -312,18 +329,19 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 	 */
 	public void startDelete(final int token, final Object cookie,
 	                        final String selection, final String[] selectionArgs) {
-		asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+		pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
 				int cursor1;
 				try {
 					cursor1 = dataSource.delete(selection, selectionArgs);
 				} catch (Exception e) {
 					cursor1 = 0;
 				}
+				asynchronousDbHelper.invalidateQueryResultCache();
 
 				final int cursor = cursor1;
-				mHandler.post(new Runnable() {
+				scheduler.postCallback(new Runnable() {
 					@Override
 					public void run() {
 						onDeleteComplete(token, cookie, cursor);
@@ -331,6 +349,7 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 				});
 			}
 		});
+		asynchronousDbHelper.invalidateQueryResultCache();
 	}
 
 	/**
@@ -342,12 +361,12 @@ public class AsyncDatabaseHandler<INSERT_ID, DATABASE_ID> {
 	 * @param job    The {@code Runnable} to run.
 	 */
 	public final void startRunnable(final int token, final Object cookie, final Runnable job) {
-		asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+		pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
 				job.run();
 
-				mHandler.post(new Runnable() {
+				scheduler.postCallback(new Runnable() {
 					@Override
 					public void run() {
 						onRunnableCompleted(token, cookie);
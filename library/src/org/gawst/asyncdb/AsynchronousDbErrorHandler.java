@@ -1,7 +1,6 @@
 package org.gawst.asyncdb;
 
 import android.content.ContentValues;
-import android.database.DatabaseErrorHandler;
 
 /**
  * interface used to receive errors from the {@link AsynchronousDbHelper}
@@ -23,6 +22,8 @@ public interface AsynchronousDbErrorHandler<E> {
 	
 	/**
 	 * Called when the database failed to update an item
+	 * <p>Also called with a {@link java.util.concurrent.RejectedExecutionException} for an update dropped by
+	 * {@link org.gawst.asyncdb.BackpressurePolicy#DROP_OLDEST}.</p>
 	 * @param db that tried to store
 	 * @param item the data that failed to store
 	 * @param cause an exception explaining why it failed
@@ -48,7 +49,7 @@ public interface AsynchronousDbErrorHandler<E> {
 	
 	/**
 	 * Called when the database has been found to be corrupted
-	 * @see DatabaseErrorHandler#onCorruption(android.database.sqlite.SQLiteDatabase)
+	 * @see android.database.DatabaseErrorHandler#onCorruption(android.database.sqlite.SQLiteDatabase)
 	 * @param db that is corrupted
 	 */
 	void onCorruption(AsynchronousDbHelper<E, ?> db);
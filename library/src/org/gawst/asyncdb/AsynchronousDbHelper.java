@@ -1,23 +1,35 @@
 package org.gawst.asyncdb;
 
-import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
 import android.content.ContentValues;
 import android.database.sqlite.SQLiteDatabaseCorruptException;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Message;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.util.Pair;
 
-import org.gawst.asyncdb.adapter.UIHandler;
+import org.gawst.asyncdb.purge.CountingPurgeHandler;
 import org.gawst.asyncdb.purge.PurgeHandler;
+import org.gawst.asyncdb.source.AsyncWriteDataSource;
+import org.gawst.asyncdb.source.DurableDataSource;
+import org.gawst.asyncdb.source.KeyedDataSource;
+import org.gawst.asyncdb.source.RowBinderDataSource;
+import org.gawst.asyncdb.source.typed.SqliteTableSource;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * the main helper class that saves/restore item in memory using a DB storage
@@ -44,8 +56,15 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	private static final int MSG_SWAP_ITEMS        = 106;
 	private static final int MSG_REPLACE_ITEM      = 107;
 	private static final int MSG_CUSTOM_OPERATION  = 108;
+	private static final int MSG_READ_OPERATION    = 109;
+	private static final int MSG_FLUSH             = 110;
+	private static final int MSG_REMOVE_INVALID    = 111;
 
-	private static final UIHandler UI_HANDLER = new UIHandler();
+	private static final DbScheduler scheduler = DbScheduler.getDefault();
+	private static final long MAX_LOCKED_WAIT_MILLIS = 1000L;
+	private static volatile Thread internalThread;
+	private static volatile LockMetrics lockMetrics;
+	private static volatile boolean loadProfiling;
 
 	private WeakReference<AsynchronousDbErrorHandler<E>> mErrorHandler; // not protected for now
 	private final CopyOnWriteArrayList<WeakReference<InMemoryDbListener<E>>> mDbListeners = new CopyOnWriteArrayList<WeakReference<InMemoryDbListener<E>>>();
@@ -56,11 +75,34 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	private final String name;
 
 	private PurgeHandler purgeHandler;
+	private volatile QueryResultCache queryResultCache;
+	private volatile QueueMetrics queueMetrics;
+	private volatile LoadProfile loadProfile;
+	private volatile ThreadPoolExecutor readerPool;
+	private final AtomicReference<DbMessage> pendingLoad = new AtomicReference<DbMessage>();
+	private ReentrantLock dataLock;
+	/**
+	 * The message running in the internal thread, to record its failure.
+	 */
+	private DbMessage currentMessage;
+	/**
+	 * The message writing elements in an {@link org.gawst.asyncdb.source.AsyncWriteDataSource}, that is done once its writes
+	 * queued in the source are done.
+	 */
+	private DbMessage writingMessage;
+	/**
+	 * The invalid entries waiting to be removed, see {@link #removeInvalidEntry(InvalidEntry)}.
+	 */
+	private final ArrayList<PendingInvalidEntry> pendingInvalidEntries = new ArrayList<PendingInvalidEntry>();
 
-	private final static HandlerThread handlerThread = new HandlerThread("AsynchronousDbHelper", android.os.Process.THREAD_PRIORITY_BACKGROUND);
-	static {
-		handlerThread.start();
-	}
+	private final AtomicInteger pendingOperations = new AtomicInteger();
+	private final Object backlogLock = new Object();
+	private volatile int maxPendingOperations;
+	private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+	/**
+	 * The last pending update of each element, when they can be coalesced or dropped.
+	 */
+	private LinkedHashMap<Object, DbMessage> pendingUpdates;
 
 	/**
 	 * A class similar to {@link android.content.AsyncQueryHandler AsyncQueryHandler} to do simple calls asynchronously with a callback when it's done.
@@ -79,7 +121,6 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	 * @param logger The {@link org.gawst.asyncdb.Logger} to use for all logs (can be null for the default Android logs)
 	 * @param initCookie Cookie to pass to {@link #preloadInit(Object)}
 	 */
-	@SuppressLint("HandlerLeak")
 	protected AsynchronousDbHelper(DataSource<E, INSERT_ID> db, final String name, Logger logger, Object initCookie) {
 		this.dataSource = db;
 		this.name = name;
@@ -89,98 +130,672 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 
 		preloadInit(initCookie);
 
-		saveStoreHandler.sendEmptyMessage(MSG_LOAD_IN_MEMORY);
+		sendEmptyMessage(MSG_LOAD_IN_MEMORY);
 	}
 
-	private final Handler saveStoreHandler = new Handler(handlerThread.getLooper()) {
-		public void handleMessage(Message msg) {
-			switch (msg.what) {
-				case MSG_LOAD_IN_MEMORY:
-					loadInMemory();
-					break;
+	/**
+	 * A write of an element queued in the {@link org.gawst.asyncdb.source.AsyncWriteDataSource} by a message.
+	 */
+	private final class QueuedWrite implements AsyncWriteDataSource.WriteCallback {
+		private final DbMessage msg;
+		private final E item;
+		private final ContentValues values;
+
+		private QueuedWrite(DbMessage msg, E item, ContentValues values) {
+			this.msg = msg;
+			this.item = item;
+			this.values = values;
+		}
 
-				case MSG_CLEAR_DATABASE:
-					clearAllData();
-					break;
+		@Override
+		public void onWriteQueued() {
+			msg.onWriteQueued();
+		}
 
-				case MSG_STORE_ITEM:
-					@SuppressWarnings("unchecked")
-					Pair<E, PurgeHandler> itemToAdd = (Pair<E, PurgeHandler>) msg.obj;
-					storeItem(itemToAdd.first, itemToAdd.second);
-					break;
+		@Override
+		public void onWriteDone(@Nullable final Throwable failure) {
+			if (null != failure) {
+				// the error handler is called in the internal thread, like for the other writes
+				scheduler.post(new Runnable() {
+					@Override
+					public void run() {
+						notifyQueuedWriteFailed(msg, item, values, failure);
+					}
+				}, DbScheduler.PRIORITY_URGENT);
+			}
+			msg.onQueuedWriteDone(failure);
+		}
+	}
 
-				case MSG_STORE_ITEMS:
-					@SuppressWarnings("unchecked")
-					Pair<Collection<? extends E>, PurgeHandler> itemsToAdd = (Pair<Collection<? extends E>, PurgeHandler>) msg.obj;
-					storeItems(itemsToAdd.first, itemsToAdd.second);
-					break;
+	/**
+	 * An invalid entry to remove once the operations scheduled before are done.
+	 */
+	private static final class PendingInvalidEntry {
+		private final InvalidEntry invalidEntry;
+		/**
+		 * The key of the entry in the data source, {@code null} if it's not known.
+		 */
+		private final Object key;
+		/**
+		 * Set when an operation that may have written in the same entry ran after it was read.
+		 */
+		private boolean written;
+
+		PendingInvalidEntry(InvalidEntry invalidEntry, Object key) {
+			this.invalidEntry = invalidEntry;
+			this.key = key;
+		}
+	}
 
-				case MSG_REMOVE_ITEM:
-					@SuppressWarnings("unchecked")
-					E itemToDelete = (E) msg.obj;
-					removeItem(itemToDelete);
-					break;
+	/**
+	 * A read/write request processed in the internal thread, and its completion.
+	 */
+	private final class DbMessage implements Runnable, OperationFuture {
+		private final int what;
+		private final Object obj;
+		private final Object arg;
+		private final QueueMetrics metrics;
+		private final long scheduledAt;
+		private boolean claimed;
+		private boolean done;
+		private Throwable failure;
+		private ArrayList<Callback> callbacks;
+		/**
+		 * The updates of the same element dropped in favor of this one, see {@link org.gawst.asyncdb.BackpressurePolicy#COALESCE}.
+		 */
+		private ArrayList<DbMessage> superseded;
+		private boolean ran;
+		/**
+		 * The writes queued in the {@link org.gawst.asyncdb.source.AsyncWriteDataSource} that are not done yet.
+		 */
+		private int queuedWrites;
+
+		private DbMessage(int what, Object obj, Object arg, QueueMetrics metrics) {
+			this.what = what;
+			this.obj = obj;
+			this.arg = arg;
+			this.metrics = metrics;
+			this.scheduledAt = null == metrics ? 0L : System.nanoTime();
+		}
 
-				case MSG_UPDATE_ITEM:
-					@SuppressWarnings("unchecked")
-					E itemToUpdate = (E) msg.obj;
-					updateItem(itemToUpdate);
-					break;
+		/**
+		 * @return {@code false} if the message has already been run or dropped, it may be posted more than once to change its priority.
+		 */
+		private synchronized boolean claim() {
+			if (claimed)
+				return false;
+			claimed = true;
+			return true;
+		}
 
-				case MSG_REPLACE_ITEM:
-					@SuppressWarnings("unchecked")
-					Pair<E, E> itemsToReplace = (Pair<E, E>) msg.obj;
-					replaceItem(itemsToReplace.first, itemsToReplace.second);
+		@Override
+		public void run() {
+			if (!claim())
+				return; // already run by boostDataLoad() or dropped by the BackpressurePolicy
+			internalThread = Thread.currentThread();
+			if (MSG_LOAD_IN_MEMORY == what)
+				pendingLoad.compareAndSet(this, null);
+			else
+				releaseBacklog(this);
+
+			final long startedAt = null == metrics ? 0L : System.nanoTime();
+			if (MSG_LOAD_IN_MEMORY != what && MSG_READ_OPERATION != what && MSG_FLUSH != what && MSG_REMOVE_INVALID != what)
+				markInvalidEntriesWritten(this);
+			currentMessage = this;
+			if (dataSource instanceof AsyncWriteDataSource && isItemWrite(what))
+				writingMessage = this;
+			try {
+				handleMessage(this);
+			} catch (RuntimeException e) {
+				onFailure(e);
+				throw e;
+			} finally {
+				if (null != writingMessage) {
+					writingMessage = null;
+					((AsyncWriteDataSource<?, ?>) dataSource).setNextWriteCallback(null);
+				}
+				currentMessage = null;
+				if (null != metrics)
+					metrics.onDone(getMetricsOperation(what), startedAt - scheduledAt, System.nanoTime() - startedAt);
+				synchronized (this) {
+					ran = true;
+					if (0 != queuedWrites)
+						return; // done by the last queued write
+				}
+				complete(null);
+			}
+		}
+
+		private synchronized void onWriteQueued() {
+			++queuedWrites;
+		}
+
+		private void onQueuedWriteDone(@Nullable Throwable cause) {
+			synchronized (this) {
+				if (null != cause)
+					onFailure(cause);
+				// may be called before onWriteQueued()
+				if (0 != --queuedWrites || !ran)
+					return;
+			}
+			complete(null);
+		}
+
+		private synchronized void onFailure(Throwable cause) {
+			if (null == failure)
+				failure = cause;
+		}
+
+		/**
+		 * @param cause The failure of the operation, if it's not already set.
+		 */
+		private void complete(@Nullable Throwable cause) {
+			final Throwable result;
+			final ArrayList<Callback> doneCallbacks;
+			final ArrayList<DbMessage> doneSuperseded;
+			synchronized (this) {
+				if (done)
+					return;
+				done = true;
+				if (null == failure)
+					failure = cause;
+				result = failure;
+				doneCallbacks = callbacks;
+				doneSuperseded = superseded;
+				callbacks = null;
+				superseded = null;
+				notifyAll();
+			}
+			if (null != doneSuperseded) {
+				for (DbMessage msg : doneSuperseded) {
+					msg.complete(result);
+				}
+			}
+			if (null != doneCallbacks) {
+				for (Callback callback : doneCallbacks) {
+					postDoneCallback(this, callback);
+				}
+			}
+		}
+
+		private synchronized void supersede(@NonNull DbMessage dropped) {
+			if (null == superseded)
+				superseded = new ArrayList<DbMessage>(1);
+			superseded.add(dropped);
+		}
+
+		@Override
+		public synchronized boolean isDone() {
+			return done;
+		}
+
+		@Override
+		public synchronized Throwable getFailure() {
+			return done ? failure : null;
+		}
+
+		@Override
+		public synchronized void await() throws InterruptedException {
+			checkNotInternalThread(this);
+			while (!done)
+				wait();
+		}
+
+		@Override
+		public synchronized boolean await(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+			checkNotInternalThread(this);
+			long remaining = unit.toNanos(timeout);
+			final long deadline = System.nanoTime() + remaining;
+			while (!done) {
+				if (remaining <= 0L)
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				remaining = deadline - System.nanoTime();
+			}
+			return true;
+		}
+
+		@Override
+		public void addCallback(@NonNull Callback callback) {
+			synchronized (this) {
+				if (!done) {
+					if (null == callbacks)
+						callbacks = new ArrayList<Callback>(1);
+					callbacks.add(callback);
+					return;
+				}
+			}
+			postDoneCallback(this, callback);
+		}
+
+		@Override
+		public String toString() {
+			return "{DbMessage " + what + " on " + name + '}';
+		}
+	}
+
+	/**
+	 * The {@link org.gawst.asyncdb.OperationFuture} of an operation that was not scheduled, like a {@code null} item.
+	 */
+	private static final OperationFuture DONE = new OperationFuture() {
+		@Override
+		public boolean isDone() {
+			return true;
+		}
+
+		@Override
+		public Throwable getFailure() {
+			return null;
+		}
+
+		@Override
+		public void await() {
+		}
+
+		@Override
+		public boolean await(long timeout, @NonNull TimeUnit unit) {
+			return true;
+		}
+
+		@Override
+		public void addCallback(@NonNull Callback callback) {
+			postDoneCallback(this, callback);
+		}
+	};
+
+	private static void postDoneCallback(@NonNull final OperationFuture future, @NonNull final OperationFuture.Callback callback) {
+		scheduler.postCallback(new Runnable() {
+			@Override
+			public void run() {
+				callback.onOperationDone(future);
+			}
+		});
+	}
+
+	private static void checkNotInternalThread(OperationFuture future) {
+		if (Thread.currentThread() == internalThread)
+			throw new IllegalStateException("waiting for " + future + " in the internal thread would never end");
+	}
+
+	/**
+	 * Record the failure of the operation running in the internal thread, for its {@link org.gawst.asyncdb.OperationFuture}.
+	 */
+	private void onOperationFailed(Throwable cause) {
+		final DbMessage msg = currentMessage;
+		if (null != msg)
+			msg.onFailure(cause);
+	}
+
+	private DbMessage sendMessage(int what, Object obj, Object arg) {
+		return sendMessage(what, obj, arg, DbScheduler.PRIORITY_NORMAL);
+	}
+
+	@SuppressWarnings("unchecked")
+	private DbMessage sendMessage(int what, Object obj, Object arg, int priority) {
+		final QueueMetrics metrics = queueMetrics;
+		final DbMessage msg = new DbMessage(what, obj, arg, metrics);
+		if (MSG_LOAD_IN_MEMORY != what)
+			acquireBacklog(msg);
+		if (null != metrics)
+			metrics.onScheduled();
+		if (MSG_LOAD_IN_MEMORY == what)
+			pendingLoad.set(msg);
+		else if (MSG_UPDATE_ITEM == what && 0 != maxPendingOperations) {
+			synchronized (backlogLock) {
+				if (null != pendingUpdates)
+					pendingUpdates.put(getCoalescingKey((E) obj), msg);
+			}
+		}
+		scheduler.post(msg, priority);
+		return msg;
+	}
+
+	/**
+	 * Count a new pending operation, applying the {@link org.gawst.asyncdb.BackpressurePolicy} if there are too many.
+	 */
+	@SuppressWarnings("unchecked")
+	private void acquireBacklog(DbMessage msg) {
+		if (0 == maxPendingOperations || Thread.currentThread() == internalThread) {
+			// never block the internal thread, it's the one that reduces the backlog
+			pendingOperations.incrementAndGet();
+			return;
+		}
+
+		final boolean holdsDataLock = null != dataLock && dataLock.isHeldByCurrentThread();
+		synchronized (backlogLock) {
+			while (0 != maxPendingOperations && pendingOperations.get() >= maxPendingOperations) {
+				if (BackpressurePolicy.FAIL == backpressurePolicy)
+					throw new RejectedExecutionException(name + " already has " + pendingOperations.get() + " pending operations");
+				if (MSG_UPDATE_ITEM == msg.what) {
+					if (BackpressurePolicy.COALESCE == backpressurePolicy && dropPendingUpdate(getCoalescingKey((E) msg.obj), msg))
+						continue;
+					if (BackpressurePolicy.DROP_OLDEST == backpressurePolicy && (dropPendingUpdate(getCoalescingKey((E) msg.obj), msg) || dropPendingUpdate(null, msg)))
+						continue;
+				}
+
+				try {
+					if (holdsDataLock) {
+						// the internal thread may need the lock we hold to make progress
+						backlogLock.wait(MAX_LOCKED_WAIT_MILLIS);
+						if (pendingOperations.get() >= maxPendingOperations) {
+							LogManager.log(LogManager.WARN, TAG, "{} going over {} pending operations, the data lock is held", name, maxPendingOperations);
+							break;
+						}
+					} else {
+						backlogLock.wait();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
 					break;
+				}
+			}
+			pendingOperations.incrementAndGet();
+		}
+	}
 
-				case MSG_SWAP_ITEMS:
+	/**
+	 * Drop the pending update of the element with the {@code coalescingKey}, or the oldest pending update if it's {@code null}.
+	 * <p>The oldest update is lost, it's reported to the {@link org.gawst.asyncdb.AsynchronousDbErrorHandler} in the internal thread.</p>
+	 * <p>Must be called with {@link #backlogLock} held.</p>
+	 *
+	 * @param update The update that will be scheduled instead.
+	 * @return {@code true} if an update was dropped.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean dropPendingUpdate(@Nullable Object coalescingKey, @NonNull DbMessage update) {
+		if (null == pendingUpdates || pendingUpdates.isEmpty())
+			return false;
+		final DbMessage msg;
+		if (null == coalescingKey)
+			msg = pendingUpdates.values().iterator().next();
+		else
+			msg = pendingUpdates.get(coalescingKey);
+		if (null == msg || !msg.claim())
+			return false; // already running
+		pendingUpdates.remove(null == coalescingKey ? getCoalescingKey((E) msg.obj) : coalescingKey);
+		pendingOperations.decrementAndGet();
+		if (null != msg.metrics)
+			msg.metrics.onDropped();
+		if (null == coalescingKey) {
+			final E droppedItem = (E) msg.obj;
+			final RejectedExecutionException cause = new RejectedExecutionException("update of " + droppedItem + " dropped from " + name);
+			msg.complete(cause);
+			scheduler.post(new Runnable() {
+				@Override
+				public void run() {
+					notifyUpdateItemDropped(droppedItem, cause);
+				}
+			}, DbScheduler.PRIORITY_URGENT);
+		} else
+			update.supersede(msg); // done when the newer update of the same element is done
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void releaseBacklog(DbMessage msg) {
+		pendingOperations.decrementAndGet();
+		if (0 != maxPendingOperations) {
+			synchronized (backlogLock) {
+				if (MSG_UPDATE_ITEM == msg.what && null != pendingUpdates) {
+					final Object coalescingKey = getCoalescingKey((E) msg.obj);
+					if (pendingUpdates.get(coalescingKey) == msg)
+						pendingUpdates.remove(coalescingKey);
+				}
+				backlogLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Limit the number of operations waiting to be run for this database, to keep the memory used under control when
+	 * operations are scheduled faster than they are written.
+	 * <p>Operations scheduled from the internal thread are never blocked or rejected.</p>
+	 *
+	 * @param maxPending The maximum number of pending operations, {@code 0} for no limit.
+	 * @param policy     What to do when an operation is scheduled and the limit is reached.
+	 * @see #getPendingOperations()
+	 */
+	public void setMaxPendingOperations(int maxPending, @NonNull BackpressurePolicy policy) {
+		if (maxPending < 0) throw new IllegalArgumentException("invalid maximum pending operations " + maxPending);
+		synchronized (backlogLock) {
+			backpressurePolicy = policy;
+			if (0 == maxPending || (BackpressurePolicy.COALESCE != policy && BackpressurePolicy.DROP_OLDEST != policy))
+				pendingUpdates = null;
+			else if (null == pendingUpdates)
+				pendingUpdates = new LinkedHashMap<Object, DbMessage>();
+			maxPendingOperations = maxPending;
+			backlogLock.notifyAll();
+		}
+	}
+
+	/**
+	 * @return The maximum number of pending operations, {@code 0} if there is no limit.
+	 * @see #setMaxPendingOperations(int, BackpressurePolicy)
+	 */
+	public int getMaxPendingOperations() {
+		return maxPendingOperations;
+	}
+
+	/**
+	 * @return The number of operations scheduled on this database that have not started yet.
+	 */
+	public int getPendingOperations() {
+		return pendingOperations.get();
+	}
+
+	/**
+	 * Get the identity of the element in the data source, used to coalesce the pending updates of the same element with
+	 * {@link org.gawst.asyncdb.BackpressurePolicy#COALESCE}.
+	 *
+	 * @return The element itself by default.
+	 */
+	@NonNull
+	protected Object getCoalescingKey(@NonNull E item) {
+		return item;
+	}
+
+	/**
+	 * Run the pending load of the data in memory before all the other operations, when a thread is blocked waiting for it.
+	 */
+	protected final void boostDataLoad() {
+		final DbMessage load = pendingLoad.get();
+		if (null != load) {
+			LogManager.log(LogManager.DEBUG, STARTUP_TAG, "boost data loading of {}", this);
+			scheduler.post(load, DbScheduler.PRIORITY_URGENT);
+		}
+	}
+
+	private static QueueMetrics.Operation getMetricsOperation(int what) {
+		switch (what) {
+			case MSG_LOAD_IN_MEMORY:
+				return QueueMetrics.Operation.LOAD;
+			case MSG_STORE_ITEM:
+			case MSG_STORE_ITEMS:
+				return QueueMetrics.Operation.STORE;
+			case MSG_REMOVE_ITEM:
+				return QueueMetrics.Operation.REMOVE;
+			case MSG_UPDATE_ITEM:
+				return QueueMetrics.Operation.UPDATE;
+			case MSG_CLEAR_DATABASE:
+				return QueueMetrics.Operation.CLEAR;
+			case MSG_SWAP_ITEMS:
+				return QueueMetrics.Operation.SWAP;
+			case MSG_REPLACE_ITEM:
+				return QueueMetrics.Operation.REPLACE;
+			default:
+				return QueueMetrics.Operation.CUSTOM;
+		}
+	}
+
+	private void sendEmptyMessage(int what) {
+		sendMessage(what, null, null);
+	}
+
+	private void handleMessage(DbMessage msg) {
+		switch (msg.what) {
+			case MSG_LOAD_IN_MEMORY:
+				loadInMemory();
+				break;
+
+			case MSG_CLEAR_DATABASE:
+				clearAllData();
+				break;
+
+			case MSG_STORE_ITEM:
+				@SuppressWarnings("unchecked")
+				E itemToAdd = (E) msg.obj;
+				storeItem(itemToAdd, (PurgeHandler) msg.arg);
+				break;
+
+			case MSG_STORE_ITEMS:
+				@SuppressWarnings("unchecked")
+				Collection<? extends E> itemsToAdd = (Collection<? extends E>) msg.obj;
+				storeItems(itemsToAdd, (PurgeHandler) msg.arg);
+				break;
+
+			case MSG_REMOVE_ITEM:
+				@SuppressWarnings("unchecked")
+				E itemToDelete = (E) msg.obj;
+				removeItem(itemToDelete);
+				break;
+
+			case MSG_UPDATE_ITEM:
+				@SuppressWarnings("unchecked")
+				E itemToUpdate = (E) msg.obj;
+				updateItem(itemToUpdate);
+				break;
+
+			case MSG_REPLACE_ITEM:
+				@SuppressWarnings("unchecked")
+				E itemToReplace = (E) msg.obj;
+				@SuppressWarnings("unchecked")
+				E replacement = (E) msg.arg;
+				replaceItem(itemToReplace, replacement);
+				break;
+
+			case MSG_SWAP_ITEMS:
+				@SuppressWarnings("unchecked")
+				E itemA = (E) msg.obj;
+				@SuppressWarnings("unchecked")
+				E itemB = (E) msg.arg;
+				swapItems(itemA, itemB);
+				break;
+
+			case MSG_CUSTOM_OPERATION:
+				try {
 					@SuppressWarnings("unchecked")
-					Pair<E, E> itemsToSwap = (Pair<E, E>) msg.obj;
-					swapItems(itemsToSwap.first, itemsToSwap.second);
-					break;
+					AsynchronousDbOperation operation = (AsynchronousDbOperation) msg.obj;
+					operation.runInMemoryDbOperation(AsynchronousDbHelper.this);
+				} catch (Exception e) {
+					LogManager.log(LogManager.WARN, TAG, "{} failed to run operation {}", name, msg.obj, e);
+					onOperationFailed(e);
+				}
+				break;
+
+			case MSG_READ_OPERATION:
+				runReadOperation((AsynchronousDbOperation) msg.obj);
+				break;
+
+			case MSG_REMOVE_INVALID:
+				deleteInvalidEntry((PendingInvalidEntry) msg.obj);
+				break;
 
-				case MSG_CUSTOM_OPERATION:
+			case MSG_FLUSH:
+				if (dataSource instanceof DurableDataSource) {
 					try {
-						@SuppressWarnings("unchecked")
-						AsynchronousDbOperation operation = (AsynchronousDbOperation) msg.obj;
-						operation.runInMemoryDbOperation(AsynchronousDbHelper.this);
-					} catch (Exception e) {
-						LogManager.logger.w(TAG, name + " failed to run operation " + msg.obj, e);
+						((DurableDataSource<?, ?>) dataSource).sync();
+					} catch (RuntimeException e) {
+						LogManager.log(LogManager.ERROR, TAG, "{} failed to sync {}", name, dataSource, e);
+						onOperationFailed(e);
 					}
-					break;
-			}
+				}
+				break;
+		}
 
-			super.handleMessage(msg);
+		if (msg.what != MSG_LOAD_IN_MEMORY && msg.what != MSG_CUSTOM_OPERATION && msg.what != MSG_READ_OPERATION && msg.what != MSG_FLUSH) {
+			// the data in the source have been modified
+			invalidateQueryResultCache();
 		}
-	};
+	}
 
 	private void loadInMemory() {
+		final LoadProfile profile = loadProfiling ? new LoadProfile(name) : null;
+		if (null != profile) {
+			loadProfile = profile;
+			scheduler.beginTraceSection("load " + name);
+		}
 		startLoadingInMemory();
 		try {
 			if (shouldReloadAllData()) {
 				try {
-					dataSource.queryAll(AsynchronousDbHelper.this);
+					if (null == profile) {
+						dataSource.queryAll(AsynchronousDbHelper.this);
+					} else {
+						openSource(profile);
+						scheduler.beginTraceSection("read " + name);
+						try {
+							dataSource.queryAll(profile.wrap(AsynchronousDbHelper.this));
+						} finally {
+							scheduler.endTraceSection();
+						}
+					}
 				} catch (Exception e) {
-					LogManager.logger.w(STARTUP_TAG, "Can't query source " + dataSource + " in " + name, e);
+					LogManager.log(LogManager.WARN, STARTUP_TAG, "Can't query source {} in {}", dataSource, name, e);
 				}
 			}
 		} catch (Exception e) {
 			if (e instanceof SQLiteDatabaseCorruptException || e.getCause() instanceof SQLiteDatabaseCorruptException)
 				notifyDatabaseCorrupted(dataSource, name, e);
 			else
-				LogManager.logger.w(STARTUP_TAG, "Can't open database " + name, e);
+				LogManager.log(LogManager.WARN, STARTUP_TAG, "Can't open database {}", name, e);
 		} finally {
 			finishLoadingInMemory();
+			if (null != profile) {
+				profile.finish();
+				scheduler.endTraceSection();
+				LogManager.log(LogManager.INFO, STARTUP_TAG, "{}", profile);
+			}
+		}
+	}
+
+	/**
+	 * @return The {@code SQLiteOpenHelper} of the data source, {@code null} if it's not an SQLite source.
+	 */
+	@Nullable
+	private SQLiteOpenHelper getSQLiteOpenHelper() {
+		if (dataSource instanceof SqliteTableSource)
+			return ((SqliteTableSource) dataSource).getSQLiteOpenHelper();
+		return null;
+	}
+
+	/**
+	 * Open the SQLite database before the query, to measure it separately.
+	 */
+	private void openSource(LoadProfile profile) {
+		final SQLiteOpenHelper openHelper = getSQLiteOpenHelper();
+		if (null == openHelper)
+			return;
+
+		final long openStartedAt = System.nanoTime();
+		scheduler.beginTraceSection("open " + name);
+		try {
+			openHelper.getReadableDatabase();
+		} finally {
+			scheduler.endTraceSection();
+			profile.setOpenTime(System.nanoTime() - openStartedAt);
 		}
 	}
 
 	private void clearAllData() {
 		try {
-			dataSource.clearAllData();
+			int removed = dataSource.clearAllData();
+			if (purgeHandler instanceof CountingPurgeHandler) {
+				((CountingPurgeHandler) purgeHandler).onElementsRemoved(this, removed);
+			}
 		} catch (Throwable e) {
-			LogManager.logger.w(TAG, "Failed to empty table " + dataSource + " in " + name, e);
+			LogManager.log(LogManager.WARN, TAG, "Failed to empty table {} in {}", dataSource, name, e);
 		} finally {
-			saveStoreHandler.sendEmptyMessage(MSG_LOAD_IN_MEMORY); // reload the DB into memory
+			sendEmptyMessage(MSG_LOAD_IN_MEMORY); // reload the DB into memory
 		}
 	}
 
@@ -188,18 +803,22 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 		ContentValues addValues = null;
 		boolean itemAdded = false;
 		try {
-			addValues = getValuesFromData(item, false);
-			if (addValues != null) {
-				directStoreItem(addValues);
+			final RowBinder<E> binder = getSourceRowBinder();
+			if (null != binder) {
+				directStoreItem(item, binder);
 				itemAdded = true;
+			} else {
+				addValues = getValuesFromData(item, false);
+				if (addValues != null) {
+					directStoreItem(item, addValues);
+					itemAdded = true;
+				}
 			}
 		} catch (Exception e) {
 			notifyAddItemFailed(item, addValues, e);
 		} finally {
 			if (itemAdded) {
-				if (purgeHandler != null) {
-					purgeHandler.onElementsAdded(AsynchronousDbHelper.this);
-				}
+				notifyElementsAdded(purgeHandler, 1);
 				if (!notifyOnSchedule()) {
 					pushModifyingTransaction();
 					popModifyingTransaction();
@@ -210,23 +829,27 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 
 	private void storeItems(@NonNull Collection<? extends E> items, @Nullable PurgeHandler purgeHandler) {
 		ContentValues addValues;
-		boolean itemsAdded = false;
+		int itemsAdded = 0;
+		final RowBinder<E> binder = getSourceRowBinder();
 		for (E item : items) {
 			addValues = null;
 			try {
-				addValues = getValuesFromData(item, false);
-				if (addValues != null) {
-					directStoreItem(addValues);
-					itemsAdded = true;
+				if (null != binder) {
+					directStoreItem(item, binder);
+					++itemsAdded;
+				} else {
+					addValues = getValuesFromData(item, false);
+					if (addValues != null) {
+						directStoreItem(item, addValues);
+						++itemsAdded;
+					}
 				}
 			} catch (Exception e) {
 				notifyAddItemFailed(item, addValues, e);
 			}
 		}
-		if (itemsAdded) {
-			if (purgeHandler != null) {
-				purgeHandler.onElementsAdded(AsynchronousDbHelper.this);
-			}
+		if (itemsAdded != 0) {
+			notifyElementsAdded(purgeHandler, itemsAdded);
 			if (!notifyOnSchedule()) {
 				pushModifyingTransaction();
 				popModifyingTransaction();
@@ -236,12 +859,19 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 
 	private void removeItem(@NonNull E itemToDelete) {
 		try {
-			if (DEBUG_DB) LogManager.logger.d(TAG, name + " remove " + itemToDelete);
-			if (dataSource.delete(itemToDelete)==0) {
+			if (DEBUG_DB) LogManager.log(LogManager.DEBUG, TAG, "{} remove {}", name, itemToDelete);
+			queueNextWrite(itemToDelete, null);
+			int removed = dataSource.delete(itemToDelete);
+			if (removed==0) {
 				notifyRemoveItemFailed(itemToDelete, new RuntimeException("No item " + itemToDelete + " in " + name));
-			} else if (!notifyOnSchedule()) {
-				pushModifyingTransaction();
-				popModifyingTransaction();
+			} else {
+				if (purgeHandler instanceof CountingPurgeHandler) {
+					((CountingPurgeHandler) purgeHandler).onElementsRemoved(this, removed);
+				}
+				if (!notifyOnSchedule()) {
+					pushModifyingTransaction();
+					popModifyingTransaction();
+				}
 			}
 
 		} catch (Throwable e) {
@@ -252,9 +882,16 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	private void updateItem(@NonNull E itemToUpdate) {
 		ContentValues updateValues = null;
 		try {
-			updateValues = getValuesFromData(itemToUpdate, true);
-			if (!directUpdate(itemToUpdate, updateValues)) {
-				notifyUpdateItemFailed(itemToUpdate, updateValues, new RuntimeException("Can't update " + updateValues + " in " + name));
+			final boolean updated;
+			final RowBinder<E> binder = getSourceRowBinder();
+			if (null != binder) {
+				updated = directUpdate(itemToUpdate, itemToUpdate, binder);
+			} else {
+				updateValues = getValuesFromData(itemToUpdate, true);
+				updated = directUpdate(itemToUpdate, updateValues);
+			}
+			if (!updated) {
+				notifyUpdateItemFailed(itemToUpdate, updateValues, new RuntimeException("Can't update " + (null != binder ? itemToUpdate : updateValues) + " in " + name));
 			} else if (!notifyOnSchedule()) {
 				pushModifyingTransaction();
 				popModifyingTransaction();
@@ -266,8 +903,15 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 
 	private void replaceItem(@NonNull E src, @NonNull E replacement) {
 		try {
-			ContentValues replacementValues = getValuesFromData(src, true);
-			if (directUpdate(replacement, replacementValues)) {
+			final boolean updated;
+			final RowBinder<E> binder = getSourceRowBinder();
+			if (null != binder) {
+				updated = directUpdate(replacement, src, binder);
+			} else {
+				ContentValues replacementValues = getValuesFromData(src, true);
+				updated = directUpdate(replacement, replacementValues);
+			}
+			if (updated) {
 				if (!notifyOnSchedule()) {
 					pushModifyingTransaction();
 					popModifyingTransaction();
@@ -279,11 +923,30 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	}
 
 	private void swapItems(@NonNull E first, @NonNull E second) {
+		final RowBinder<E> binder = getSourceRowBinder();
+		if (null != binder) {
+			try {
+				directUpdate(first, second, binder);
+			} catch (Throwable e) {
+				notifyUpdateItemFailed(first, null, e);
+			}
+			try {
+				directUpdate(second, first, binder);
+			} catch (Throwable e) {
+				notifyUpdateItemFailed(second, null, e);
+			}
+			if (!notifyOnSchedule()) {
+				pushModifyingTransaction();
+				popModifyingTransaction();
+			}
+			return;
+		}
+
 		ContentValues newValuesA = null;
 		try {
 			newValuesA = getValuesFromData(second, true);
 			if (newValuesA != null) {
-				if (DEBUG_DB) LogManager.logger.d(TAG, name + " update " + second + " with " + newValuesA);
+				if (DEBUG_DB) LogManager.log(LogManager.DEBUG, TAG, "{} update {} with {}", name, second, newValuesA);
 				directUpdate(first, newValuesA);
 			}
 		} catch (Throwable e) {
@@ -293,7 +956,7 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 		try {
 			newValuesB = getValuesFromData(first, true);
 			if (newValuesB != null) {
-				if (DEBUG_DB) LogManager.logger.d(TAG, name + " update " + first + " with " + newValuesB);
+				if (DEBUG_DB) LogManager.log(LogManager.DEBUG, TAG, "{} update {} with {}", name, first, newValuesB);
 				directUpdate(second, newValuesB);
 			}
 		} catch (Throwable e) {
@@ -310,9 +973,10 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	 * @param addValues Values that will be written in the database
 	 * @throws RuntimeException if the insertion failed
 	 */
-	private void directStoreItem(ContentValues addValues) throws RuntimeException {
+	private void directStoreItem(E item, ContentValues addValues) throws RuntimeException {
+		queueNextWrite(item, addValues);
 		INSERT_ID inserted = dataSource.insert(addValues);
-		if (DEBUG_DB) LogManager.logger.d(TAG, AsynchronousDbHelper.this+" insert "+addValues+" = "+inserted);
+		if (DEBUG_DB) LogManager.log(LogManager.DEBUG, TAG, "{} insert {} = {}", this, addValues, inserted);
 		if (inserted==null) throw new RuntimeException("failed to add values "+addValues+" in "+ dataSource);
 	}
 
@@ -324,12 +988,92 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	 */
 	protected final boolean directUpdate(E itemToUpdate, ContentValues updateValues) {
 		if (updateValues!=null) {
-			if (DEBUG_DB) LogManager.logger.d(TAG, AsynchronousDbHelper.this+" update "+updateValues+" for "+itemToUpdate);
+			if (DEBUG_DB) LogManager.log(LogManager.DEBUG, TAG, "{} update {} for {}", this, updateValues, itemToUpdate);
+			queueNextWrite(itemToUpdate, updateValues);
 			return dataSource.update(itemToUpdate, updateValues/*, SQLiteDatabase.CONFLICT_NONE*/);
 		}
 		return false;
 	}
 
+	/**
+	 * Method to call to insert data directly in the data source with a {@link org.gawst.asyncdb.RowBinder}
+	 * @throws RuntimeException if the insertion failed
+	 */
+	private void directStoreItem(E item, RowBinder<E> binder) throws RuntimeException {
+		queueNextWrite(item, null);
+		@SuppressWarnings("unchecked")
+		INSERT_ID inserted = ((RowBinderDataSource<E, INSERT_ID>) dataSource).insert(item, binder);
+		if (DEBUG_DB) LogManager.log(LogManager.DEBUG, TAG, "{} insert {} = {}", this, item, inserted);
+		if (inserted==null) throw new RuntimeException("failed to add "+item+" in "+ dataSource);
+	}
+
+	/**
+	 * Method to call to update the data directly in the data source with a {@link org.gawst.asyncdb.RowBinder}
+	 * @param itemToUpdate Item in the data source that needs to be updated
+	 * @param newItem Item holding the values to write
+	 * @return {@code true} if the data were updated successfully
+	 */
+	private boolean directUpdate(E itemToUpdate, E newItem, RowBinder<E> binder) {
+		if (DEBUG_DB) LogManager.log(LogManager.DEBUG, TAG, "{} update {} with {}", this, itemToUpdate, newItem);
+		@SuppressWarnings("unchecked")
+		RowBinderDataSource<E, INSERT_ID> binderDataSource = (RowBinderDataSource<E, INSERT_ID>) dataSource;
+		queueNextWrite(itemToUpdate, null);
+		return binderDataSource.update(itemToUpdate, newItem, binder);
+	}
+
+	/**
+	 * @return {@code true} if the message {@code what} only writes elements of the helper in the data source.
+	 */
+	private static boolean isItemWrite(int what) {
+		return MSG_STORE_ITEM == what || MSG_STORE_ITEMS == what || MSG_REMOVE_ITEM == what || MSG_UPDATE_ITEM == what
+				|| MSG_REPLACE_ITEM == what || MSG_SWAP_ITEMS == what;
+	}
+
+	/**
+	 * Let the next write of the running message in an {@link org.gawst.asyncdb.source.AsyncWriteDataSource} return
+	 * without waiting, the message is done once the write is done.
+	 */
+	private void queueNextWrite(E item, @Nullable ContentValues values) {
+		final DbMessage msg = writingMessage;
+		if (null != msg)
+			((AsyncWriteDataSource<?, ?>) dataSource).setNextWriteCallback(new QueuedWrite(msg, item, values));
+	}
+
+	/**
+	 * Report the failure of a write queued in the {@link org.gawst.asyncdb.source.AsyncWriteDataSource} by {@code msg}.
+	 */
+	@SuppressWarnings("unchecked")
+	private void notifyQueuedWriteFailed(DbMessage msg, E item, @Nullable ContentValues values, Throwable cause) {
+		switch (msg.what) {
+			case MSG_STORE_ITEM:
+			case MSG_STORE_ITEMS:
+				notifyAddItemFailed(item, values, cause);
+				break;
+
+			case MSG_REMOVE_ITEM:
+				notifyRemoveItemFailed(item, cause);
+				break;
+
+			case MSG_REPLACE_ITEM:
+				notifyReplaceItemFailed((E) msg.obj, (E) msg.arg, cause);
+				break;
+
+			default:
+				notifyUpdateItemFailed(item, values, cause);
+				break;
+		}
+	}
+
+	/**
+	 * @return The {@link #getRowBinder()} if the data source can use it.
+	 */
+	@Nullable
+	private RowBinder<E> getSourceRowBinder() {
+		if (dataSource instanceof RowBinderDataSource)
+			return getRowBinder();
+		return null;
+	}
+
 	/**
 	 * Method called at the end of constructor, just before the data start loading
 	 * @param cookie Data that may be needed to initialize all internal storage
@@ -367,8 +1111,8 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	 */
 	protected void popModifyingTransaction() {
 		if (modifyingTransactionLevel.decrementAndGet()==0) {
-			UI_HANDLER.removeCallbacks(dataChanged);
-			UI_HANDLER.runOnUiThread(dataChanged);
+			scheduler.removeCallback(dataChanged);
+			scheduler.runCallback(dataChanged);
 		}
 	}
 
@@ -389,6 +1133,32 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 
 	protected void clearDataInMemory() {}
 
+	/**
+	 * Remove the elements from memory without touching the source.
+	 * <p>Called in the internal thread.</p>
+	 *
+	 * @param items The elements to remove from memory.
+	 * @see #evictPurgedItems(java.util.Collection)
+	 */
+	protected void removeItemsInMemory(@NonNull Collection<? extends E> items) {}
+
+	/**
+	 * Remove from memory the elements a purge already deleted from the source.
+	 * <p>Listeners are notified once for all the elements.</p>
+	 * <p>The purged elements are new instances read from the source, lists and sets find them in memory with
+	 * {@link Object#equals(Object) equals()} and {@link Object#hashCode() hashCode()}. Elements that don't implement them
+	 * are not evicted.</p>
+	 *
+	 * @param purgedItems The elements deleted from the source.
+	 */
+	public final void evictPurgedItems(@NonNull Collection<? extends E> purgedItems) {
+		if (!purgedItems.isEmpty()) {
+			pushModifyingTransaction();
+			removeItemsInMemory(purgedItems);
+			popModifyingTransaction();
+		}
+	}
+
 	/**
 	 * set the listener that will receive error events
 	 * @param listener null to remove the listener
@@ -408,11 +1178,217 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 		this.purgeHandler = purgeHandler;
 	}
 
+	/**
+	 * Set the cache used by the {@link org.gawst.asyncdb.AsyncDatabaseHandler} queries on this database.
+	 * <p>The cache is invalidated everytime a write is scheduled/done through this database or its handlers.</p>
+	 *
+	 * @param queryResultCache The cache to use, {@code null} to disable query caching.
+	 */
+	public void setQueryResultCache(@Nullable QueryResultCache queryResultCache) {
+		this.queryResultCache = queryResultCache;
+	}
+
+	/**
+	 * @return The cache used by the {@link org.gawst.asyncdb.AsyncDatabaseHandler} queries on this database or {@code null}.
+	 */
+	@Nullable
+	public QueryResultCache getQueryResultCache() {
+		return queryResultCache;
+	}
+
+	/**
+	 * Measure the operations of this database in the internal thread.
+	 * <p>Operations scheduled before the metrics are set are not measured.</p>
+	 *
+	 * @param queueMetrics The metrics to update, {@code null} to stop measuring.
+	 */
+	public void setQueueMetrics(@Nullable QueueMetrics queueMetrics) {
+		this.queueMetrics = queueMetrics;
+	}
+
+	/**
+	 * @return The metrics of the operations of this database or {@code null}.
+	 */
+	@Nullable
+	public QueueMetrics getQueueMetrics() {
+		return queueMetrics;
+	}
+
+	/**
+	 * Run the operations scheduled with {@link #scheduleReadOperation(AsynchronousDbOperation)} in a pool of threads, so
+	 * long reads don't delay the writes of the internal thread and the writes don't delay the reads.
+	 * <p>On Android 4.1+ write-ahead logging is enabled on SQLite sources so the readers don't wait for the writer, and
+	 * disabled again when the parallel reads are turned off. The change is done in the internal thread before the
+	 * operations scheduled after this call, once the reads of the previous pool are done. If the database is used outside of
+	 * this helper at that time the change fails and is logged.
+	 * Other sources must support reads from several threads during a write.</p>
+	 *
+	 * @param maxReaders The maximum number of reads run at the same time, {@code 0} to run them in the internal thread.
+	 */
+	public void setParallelReads(int maxReaders) {
+		if (maxReaders < 0) throw new IllegalArgumentException("invalid number of readers " + maxReaders);
+		final ThreadPoolExecutor oldPool;
+		final boolean walChanged;
+		synchronized (this) {
+			oldPool = readerPool;
+			walChanged = (null == oldPool) != (0 == maxReaders);
+			if (0 == maxReaders) {
+				readerPool = null;
+			} else {
+				final ThreadPoolExecutor pool = new ThreadPoolExecutor(maxReaders, maxReaders, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(@NonNull Runnable r) {
+						Thread thread = new Thread(r, name + "-reader" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				pool.allowCoreThreadTimeOut(true);
+				readerPool = pool;
+			}
+			if (null != oldPool)
+				oldPool.shutdown(); // the reads already dispatched still run
+		}
+		if (walChanged)
+			setWriteAheadLogging(0 != maxReaders, oldPool);
+	}
+
+	/**
+	 * @return The maximum number of reads run at the same time, {@code 0} if they are run in the internal thread.
+	 * @see #setParallelReads(int)
+	 */
+	public int getParallelReads() {
+		final ThreadPoolExecutor pool = readerPool;
+		return null == pool ? 0 : pool.getMaximumPoolSize();
+	}
+
+	/**
+	 * Change the write-ahead logging of the SQLite source in the internal thread, where no transaction of the helper is
+	 * running.
+	 *
+	 * @param oldPool The reader pool to wait for before disabling write-ahead logging, as its reads hold connections.
+	 */
+	private void setWriteAheadLogging(final boolean enabled, @Nullable final ThreadPoolExecutor oldPool) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN || null == getSQLiteOpenHelper())
+			return;
+		sendMessage(MSG_CUSTOM_OPERATION, new AsynchronousDbOperation() {
+			@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+			@Override
+			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+				if (!enabled && null != oldPool) {
+					try {
+						oldPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				getSQLiteOpenHelper().setWriteAheadLoggingEnabled(enabled);
+			}
+
+			@Override
+			public String toString() {
+				return (enabled ? "enable" : "disable") + " WAL in " + name;
+			}
+		}, null, DbScheduler.PRIORITY_URGENT);
+	}
+
+	/**
+	 * Measure the contention on the in-memory data locks of the thread-safe containers created after this call.
+	 * <p>When not set, the containers use a regular {@code ReentrantLock} with no added cost.</p>
+	 *
+	 * @param metrics The metrics to update, {@code null} to stop measuring the next containers.
+	 * @see #newDataLock()
+	 */
+	public static void setLockMetrics(@Nullable LockMetrics metrics) {
+		lockMetrics = metrics;
+	}
+
+	/**
+	 * @return The metrics used for the locks of the containers created from now on or {@code null}.
+	 */
+	@Nullable
+	public static LockMetrics getLockMetrics() {
+		return lockMetrics;
+	}
+
+	/**
+	 * Create the lock used to protect the data in memory, measured if {@link #setLockMetrics(LockMetrics)} is set.
+	 */
+	@NonNull
+	protected ReentrantLock newDataLock() {
+		final LockMetrics metrics = lockMetrics;
+		if (null == metrics)
+			dataLock = new ReentrantLock();
+		else
+			dataLock = new InstrumentedLock(name, metrics);
+		return dataLock;
+	}
+
+	/**
+	 * Measure the next loads of the data in memory of all the databases, see {@link #getLoadProfile()}.
+	 * <p>The timings are also logged and marked as sections in the system trace on Android 4.3+.</p>
+	 *
+	 * @param enabled {@code true} to measure the loads.
+	 */
+	public static void setLoadProfiling(boolean enabled) {
+		loadProfiling = enabled;
+	}
+
+	/**
+	 * @return The timings of the last load of the data in memory, {@code null} if it was not measured.
+	 * @see #setLoadProfiling(boolean)
+	 */
+	@Nullable
+	public LoadProfile getLoadProfile() {
+		return loadProfile;
+	}
+
+	/**
+	 * Tell how long a caller was blocked waiting for the data to be loaded in memory.
+	 *
+	 * @param waitMillis The time the caller was blocked, in milliseconds.
+	 */
+	protected final void onWaitedForDataLoaded(long waitMillis) {
+		final LoadProfile profile = loadProfile;
+		if (null != profile)
+			profile.onBlocked(TimeUnit.MILLISECONDS.toNanos(waitMillis));
+	}
+
+	/**
+	 * Drop all the cached query results, call this when writing in the source from a custom operation.
+	 *
+	 * @see #setQueryResultCache(QueryResultCache)
+	 */
+	public void invalidateQueryResultCache() {
+		final QueryResultCache cache = queryResultCache;
+		if (null != cache) {
+			cache.invalidate();
+		}
+	}
+
 	/**
 	 * Call this after an element is inserted for the purge to do its job.
 	 */
 	public void triggerPurgeHandler() {
-		if (null != purgeHandler) {
+		triggerPurgeHandler(1);
+	}
+
+	/**
+	 * Call this after elements are inserted for the purge to do its job.
+	 *
+	 * @param insertedCount The number of elements inserted.
+	 */
+	public void triggerPurgeHandler(int insertedCount) {
+		notifyElementsAdded(purgeHandler, insertedCount);
+	}
+
+	private void notifyElementsAdded(@Nullable PurgeHandler purgeHandler, int count) {
+		if (purgeHandler instanceof CountingPurgeHandler) {
+			((CountingPurgeHandler) purgeHandler).onElementsAdded(this, count);
+		} else if (purgeHandler != null) {
 			purgeHandler.onElementsAdded(this);
 		}
 	}
@@ -426,7 +1402,7 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 		}
 		mDbListeners.add(new WeakReference<InMemoryDbListener<E>>(listener));
 		if (mDataLoaded.get())
-			UI_HANDLER.runOnUiThread(new Runnable() {
+			scheduler.runCallback(new Runnable() {
 				@Override
 				public void run() {
 					listener.onMemoryDbChanged(AsynchronousDbHelper.this);
@@ -450,11 +1426,13 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 		pushModifyingTransaction();
 		clearDataInMemory();
 		popModifyingTransaction();
-		saveStoreHandler.sendEmptyMessage(MSG_CLEAR_DATABASE);
+		sendEmptyMessage(MSG_CLEAR_DATABASE);
+		invalidateQueryResultCache();
 	}
 
 	private void notifyAddItemFailed(E item, ContentValues values, Throwable cause) {
-		LogManager.logger.d(TAG, this+" failed to add item "+item+(DEBUG_DB ? (" values"+values) : ""), cause);
+		onOperationFailed(cause);
+		LogManager.log(LogManager.DEBUG, TAG, "{} failed to add item {}{}", this, item, DEBUG_DB ? (" values"+values) : "", cause);
 		if (mErrorHandler!=null) {
 			final AsynchronousDbErrorHandler<E> listener = mErrorHandler.get();
 			if (listener==null)
@@ -467,7 +1445,8 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	}
 
 	private void notifyReplaceItemFailed(E srcItem, E replacement, Throwable cause) {
-		LogManager.logger.i(TAG, this+" failed to replace item "+srcItem+" with "+replacement, cause);
+		onOperationFailed(cause);
+		LogManager.log(LogManager.INFO, TAG, "{} failed to replace item {} with {}", this, srcItem, replacement, cause);
 		if (mErrorHandler!=null) {
 			final AsynchronousDbErrorHandler<E> listener = mErrorHandler.get();
 			if (listener==null)
@@ -480,7 +1459,8 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	}
 
 	private void notifyUpdateItemFailed(E item, ContentValues values, Throwable cause) {
-		LogManager.logger.i(TAG, this+" failed to update item "+item+(DEBUG_DB ? (" values"+values) : ""), cause);
+		onOperationFailed(cause);
+		LogManager.log(LogManager.INFO, TAG, "{} failed to update item {}{}", this, item, DEBUG_DB ? (" values"+values) : "", cause);
 		if (mErrorHandler!=null) {
 			final AsynchronousDbErrorHandler<E> listener = mErrorHandler.get();
 			if (listener==null)
@@ -492,8 +1472,23 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 		popModifyingTransaction();
 	}
 
+	/**
+	 * Report an update dropped by the {@link org.gawst.asyncdb.BackpressurePolicy}, it never ran so it's not a failed write.
+	 */
+	private void notifyUpdateItemDropped(E item, Throwable cause) {
+		LogManager.log(LogManager.INFO, TAG, "{} dropped the update of {}", this, item, cause);
+		if (mErrorHandler!=null) {
+			final AsynchronousDbErrorHandler<E> listener = mErrorHandler.get();
+			if (listener==null)
+				mErrorHandler = null;
+			else
+				listener.onUpdateItemFailed(this, item, cause);
+		}
+	}
+
 	private void notifyRemoveItemFailed(E item, Throwable cause) {
-		LogManager.logger.i(TAG, this+" failed to remove item "+item, cause);
+		onOperationFailed(cause);
+		LogManager.log(LogManager.INFO, TAG, "{} failed to remove item {}", this, item, cause);
 		if (mErrorHandler!=null) {
 			final AsynchronousDbErrorHandler<E> listener = mErrorHandler.get();
 			if (listener==null)
@@ -506,7 +1501,7 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	}
 
 	private void notifyDatabaseCorrupted(DataSource<E, INSERT_ID> dataSource, String name, Throwable cause) {
-		LogManager.logger.e(STARTUP_TAG, "table "+ this.dataSource +" is corrupted in "+name);
+		LogManager.log(LogManager.ERROR, STARTUP_TAG, "table {} is corrupted in {}", this.dataSource, name);
 		if (mErrorHandler!=null) {
 			final AsynchronousDbErrorHandler<E> listener = mErrorHandler.get();
 			if (listener==null)
@@ -530,13 +1525,25 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	@Nullable
 	public abstract ContentValues getValuesFromData(E data, boolean update) throws RuntimeException;
 
+	/**
+	 * Get the binder writing the elements directly in the data source, without the allocations of {@link android.content.ContentValues}.
+	 * <p>It's only used when the data source is a {@link org.gawst.asyncdb.source.RowBinderDataSource},
+	 * {@link #getValuesFromData(Object, boolean)} is used otherwise.</p>
+	 * @return {@code null} by default to always use {@link #getValuesFromData(Object, boolean)}.
+	 */
+	@Nullable
+	protected RowBinder<E> getRowBinder() {
+		return null;
+	}
+
 	/**
 	 * Request to store the item in the database asynchronously
 	 * <p>Will call the {@link org.gawst.asyncdb.AsynchronousDbErrorHandler#onAddItemFailed(AsynchronousDbHelper, Object, android.content.ContentValues, Throwable)} on failure
 	 * @param item to add
+	 * @return the completion of the operation
 	 */
-	protected final void scheduleAddOperation(E item) {
-		scheduleAddOperation(item, purgeHandler);
+	protected final OperationFuture scheduleAddOperation(E item) {
+		return scheduleAddOperation(item, purgeHandler);
 	}
 
 	/**
@@ -544,24 +1551,29 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	 * <p>Will call the {@link org.gawst.asyncdb.AsynchronousDbErrorHandler#onAddItemFailed(AsynchronousDbHelper, Object, android.content.ContentValues, Throwable) AsynchronousDbErrorHandler.onAddItemFailed()} on failure
 	 * @param item to add
 	 * @param purgeHandler
+	 * @return the completion of the operation
 	 */
-	protected final void scheduleAddOperation(E item, PurgeHandler purgeHandler) {
+	protected final OperationFuture scheduleAddOperation(E item, PurgeHandler purgeHandler) {
 		if (null != item) {
-			saveStoreHandler.sendMessage(Message.obtain(saveStoreHandler, MSG_STORE_ITEM, new Pair<E, PurgeHandler>(item, purgeHandler)));
+			final OperationFuture future = sendMessage(MSG_STORE_ITEM, item, purgeHandler);
+			invalidateQueryResultCache();
 			if (notifyOnSchedule()) {
 				pushModifyingTransaction();
 				popModifyingTransaction();
 			}
+			return future;
 		}
+		return DONE;
 	}
 
 	/**
 	 * Request to store the items in the database asynchronously
 	 * <p>Will call {@link org.gawst.asyncdb.AsynchronousDbErrorHandler#onAddItemFailed(AsynchronousDbHelper, Object, android.content.ContentValues, Throwable) AsynchronousDbErrorHandler.onAddItemFailed()} on each item failing
 	 * @param items to add
+	 * @return the completion of the operation
 	 */
-	protected final void scheduleAddOperation(Collection<? extends E> items) {
-		scheduleAddOperation(items, purgeHandler);
+	protected final OperationFuture scheduleAddOperation(Collection<? extends E> items) {
+		return scheduleAddOperation(items, purgeHandler);
 	}
 
 	/**
@@ -569,15 +1581,19 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	 * <p>Will call {@link org.gawst.asyncdb.AsynchronousDbErrorHandler#onAddItemFailed(AsynchronousDbHelper, Object, android.content.ContentValues, Throwable) AsynchronousDbErrorHandler.onAddItemFailed()} on each item failing
 	 * @param items to add
 	 * @param purgeHandler
+	 * @return the completion of the operation
 	 */
-	protected final void scheduleAddOperation(Collection<? extends E> items, PurgeHandler purgeHandler) {
+	protected final OperationFuture scheduleAddOperation(Collection<? extends E> items, PurgeHandler purgeHandler) {
 		if (null != items) {
-			saveStoreHandler.sendMessage(Message.obtain(saveStoreHandler, MSG_STORE_ITEMS, new Pair<Collection<? extends E>, PurgeHandler>(items, purgeHandler)));
+			final OperationFuture future = sendMessage(MSG_STORE_ITEMS, items, purgeHandler);
+			invalidateQueryResultCache();
 			if (notifyOnSchedule()) {
 				pushModifyingTransaction();
 				popModifyingTransaction();
 			}
+			return future;
 		}
+		return DONE;
 	}
 
 	/**
@@ -586,15 +1602,19 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	 * <p>Will call {@link org.gawst.asyncdb.AsynchronousDbErrorHandler#onUpdateItemFailed(AsynchronousDbHelper, Object, Throwable) AsynchronousDbErrorHandler.onUpdateItemFailed()} on failure
 	 * @see #getValuesFromData(Object, boolean)
 	 * @param item to update
+	 * @return the completion of the operation
 	 */
-	protected final void scheduleUpdateOperation(@NonNull E item) {
+	protected final OperationFuture scheduleUpdateOperation(@NonNull E item) {
 		if (null != item) {
-			saveStoreHandler.sendMessage(Message.obtain(saveStoreHandler, MSG_UPDATE_ITEM, item));
+			final OperationFuture future = sendMessage(MSG_UPDATE_ITEM, item, null);
+			invalidateQueryResultCache();
 			if (notifyOnSchedule()) {
 				pushModifyingTransaction();
 				popModifyingTransaction();
 			}
+			return future;
 		}
+		return DONE;
 	}
 
 	/**
@@ -603,44 +1623,170 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 	 * <p>Will call {@link org.gawst.asyncdb.AsynchronousDbErrorHandler#onReplaceItemFailed(AsynchronousDbHelper, Object, Object, Throwable) AsynchronousDbErrorHandler.onReplaceItemFailed()} on failure
 	 * @param original Item to replace
 	 * @param replacement Item to replace with
+	 * @return the completion of the operation
 	 */
-	protected final void scheduleReplaceOperation(@NonNull E original, @NonNull E replacement) {
-		saveStoreHandler.sendMessage(Message.obtain(saveStoreHandler, MSG_REPLACE_ITEM, new Pair<E, E>(original, replacement)));
+	protected final OperationFuture scheduleReplaceOperation(@NonNull E original, @NonNull E replacement) {
+		final OperationFuture future = sendMessage(MSG_REPLACE_ITEM, original, replacement);
+		invalidateQueryResultCache();
 		if (notifyOnSchedule()) {
 			pushModifyingTransaction();
 			popModifyingTransaction();
 		}
+		return future;
 	}
 
-	protected final void scheduleSwapOperation(@NonNull E itemA, @NonNull E itemB) {
-		saveStoreHandler.sendMessage(Message.obtain(saveStoreHandler, MSG_SWAP_ITEMS, new Pair<E,E>(itemA, itemB)));
+	protected final OperationFuture scheduleSwapOperation(@NonNull E itemA, @NonNull E itemB) {
+		final OperationFuture future = sendMessage(MSG_SWAP_ITEMS, itemA, itemB);
+		invalidateQueryResultCache();
 		if (notifyOnSchedule()) {
 			pushModifyingTransaction();
 			popModifyingTransaction();
 		}
+		return future;
 	}
 
 	/**
 	 * Request to delete the item from the database
 	 * <p>Will call the {@link org.gawst.asyncdb.AsynchronousDbErrorHandler#onRemoveItemFailed(AsynchronousDbHelper, Object, Throwable) AsynchronousDbErrorHandler.onRemoveItemFailed()} on failure
 	 * @param item to remove
+	 * @return the completion of the operation
 	 */
-	protected final void scheduleRemoveOperation(E item) {
+	protected final OperationFuture scheduleRemoveOperation(E item) {
 		if (null != item) {
-			saveStoreHandler.sendMessage(Message.obtain(saveStoreHandler, MSG_REMOVE_ITEM, item));
+			final OperationFuture future = sendMessage(MSG_REMOVE_ITEM, item, null);
+			invalidateQueryResultCache();
 			if (notifyOnSchedule()) {
 				pushModifyingTransaction();
 				popModifyingTransaction();
 			}
+			return future;
 		}
+		return DONE;
 	}
 
 	/**
 	 * run the operation in the internal thread
 	 * @param operation
+	 * @return the completion of the operation
+	 */
+	public final OperationFuture scheduleCustomOperation(@NonNull AsynchronousDbOperation operation) {
+		return sendMessage(MSG_CUSTOM_OPERATION, operation, null);
+	}
+
+	/**
+	 * Run the operation in the internal thread before the operations with a lower priority already scheduled.
+	 * <p>Operations with different priorities may not run in the order they were scheduled.</p>
+	 *
+	 * @param operation The operation to run.
+	 * @param priority  One of {@link org.gawst.asyncdb.DbScheduler#PRIORITY_URGENT}, {@link org.gawst.asyncdb.DbScheduler#PRIORITY_INTERACTIVE},
+	 *                  {@link org.gawst.asyncdb.DbScheduler#PRIORITY_NORMAL} or {@link org.gawst.asyncdb.DbScheduler#PRIORITY_BACKGROUND}.
+	 * @return The completion of the operation.
+	 */
+	public final OperationFuture scheduleCustomOperation(@NonNull AsynchronousDbOperation operation, int priority) {
+		return sendMessage(MSG_CUSTOM_OPERATION, operation, null, priority);
+	}
+
+	/**
+	 * Schedule a barrier done once all the operations scheduled before are written, except the background ones.
+	 * <p>If the data source is a {@link org.gawst.asyncdb.source.DurableDataSource} its writes are forced on the storage.</p>
+	 *
+	 * @return The completion of the barrier, failed if the data source could not be synced.
+	 */
+	@NonNull
+	public final OperationFuture flush() {
+		return sendMessage(MSG_FLUSH, null, null);
+	}
+
+	/**
+	 * Run a read-only operation after all the operations already scheduled.
+	 * <p>If {@link #setParallelReads(int) parallel reads} are enabled it's run in the reader pool, otherwise in the internal
+	 * thread like {@link #scheduleCustomOperation(AsynchronousDbOperation)}. It should not write in the data source.</p>
+	 *
+	 * @param operation The operation to run.
+	 */
+	public final void scheduleReadOperation(@NonNull AsynchronousDbOperation operation) {
+		scheduleReadOperation(operation, DbScheduler.PRIORITY_NORMAL);
+	}
+
+	/**
+	 * Run a read-only operation before the operations with a lower priority already scheduled.
+	 *
+	 * @param operation The operation to run.
+	 * @param priority  The priority of the operation, see {@link #scheduleCustomOperation(AsynchronousDbOperation, int)}.
+	 * @see #scheduleReadOperation(AsynchronousDbOperation)
+	 */
+	public final void scheduleReadOperation(@NonNull AsynchronousDbOperation operation, int priority) {
+		if (null == readerPool)
+			sendMessage(MSG_CUSTOM_OPERATION, operation, null, priority);
+		else
+			sendMessage(MSG_READ_OPERATION, operation, null, priority);
+	}
+
+	private void runReadOperation(@NonNull final AsynchronousDbOperation operation) {
+		final Runnable read = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					operation.runInMemoryDbOperation(AsynchronousDbHelper.this);
+				} catch (Exception e) {
+					LogManager.log(LogManager.WARN, TAG, "{} failed to run read operation {}", name, operation, e);
+				}
+			}
+		};
+
+		final ThreadPoolExecutor pool = readerPool;
+		if (null != pool) {
+			try {
+				// the writes scheduled before are done, the next ones don't have to wait for this read
+				pool.execute(read);
+				return;
+			} catch (RejectedExecutionException e) {
+				// the pool was replaced or disabled in the meantime
+			}
+		}
+		read.run();
+	}
+
+	/**
+	 * Run the operation in the internal thread when it has no other operation to process, so it never delays the pending
+	 * loads and writes.
+	 * <p>Idle operations from all the {@link AsynchronousDbHelper} are run one at a time in the order they were scheduled.</p>
+	 * @param operation
 	 */
-	public final void scheduleCustomOperation(@NonNull AsynchronousDbOperation operation) {
-		saveStoreHandler.sendMessage(Message.obtain(saveStoreHandler, MSG_CUSTOM_OPERATION, operation));
+	public final void scheduleIdleOperation(@NonNull final AsynchronousDbOperation operation) {
+		final QueueMetrics metrics = queueMetrics;
+		if (null != metrics)
+			metrics.onScheduled();
+		final long scheduledAt = null == metrics ? 0L : System.nanoTime();
+		scheduler.postWhenIdle(new Runnable() {
+			@Override
+			public void run() {
+				final long startedAt = null == metrics ? 0L : System.nanoTime();
+				try {
+					operation.runInMemoryDbOperation(AsynchronousDbHelper.this);
+				} catch (Exception e) {
+					LogManager.log(LogManager.WARN, TAG, "{} failed to run idle operation {}", name, operation, e);
+				} finally {
+					if (null != metrics)
+						metrics.onDone(QueueMetrics.Operation.IDLE, startedAt - scheduledAt, System.nanoTime() - startedAt);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Run the operation in the internal thread when it has no other operation to process, after the given delay.
+	 * @param operation
+	 * @param delayMillis the minimum delay before the operation is run, in milliseconds.
+	 * @see #scheduleIdleOperation(AsynchronousDbOperation)
+	 */
+	public final void scheduleIdleOperation(@NonNull final AsynchronousDbOperation operation, long delayMillis) {
+		scheduler.postDelayed(new Runnable() {
+			@Override
+			public void run() {
+				scheduleIdleOperation(operation);
+			}
+		}, delayMillis);
 	}
 
 	/**
@@ -661,15 +1807,102 @@ public abstract class AsynchronousDbHelper<E, INSERT_ID> implements DataSource.B
 		popModifyingTransaction();
 	}
 
+	/**
+	 * Remove the invalid entry from the data source once the other operations are done.
+	 * <p>An operation run in the internal thread after the entry was read may have written a valid element in its place,
+	 * so the entry is kept until it's read again if an element was written in the same entry in between. When the data
+	 * source is not a {@link org.gawst.asyncdb.source.KeyedDataSource} any write in between keeps it.</p>
+	 */
 	@Override
 	public void removeInvalidEntry(final InvalidEntry invalidEntry) {
-		scheduleCustomOperation(new AsynchronousDbOperation() {
-			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
-				// remove the element from the DB forever
-				dataSource.deleteInvalidEntry(invalidEntry);
+		Object key = null;
+		if (dataSource instanceof KeyedDataSource) {
+			try {
+				key = ((KeyedDataSource<?, ?>) dataSource).getInvalidEntryKey(invalidEntry);
+			} catch (RuntimeException e) {
+				LogManager.log(LogManager.WARN, TAG, "{} failed to get the key of invalid entry {}", name, invalidEntry, e);
 			}
-		});
+		}
+		final PendingInvalidEntry pending = new PendingInvalidEntry(invalidEntry, key);
+		synchronized (pendingInvalidEntries) {
+			pendingInvalidEntries.add(pending);
+		}
+		sendMessage(MSG_REMOVE_INVALID, pending, null, DbScheduler.PRIORITY_BACKGROUND);
+	}
+
+	/**
+	 * Mark the pending invalid entries that the operation {@code msg} may write, so they are not removed.
+	 */
+	@SuppressWarnings("unchecked")
+	private void markInvalidEntriesWritten(DbMessage msg) {
+		synchronized (pendingInvalidEntries) {
+			if (pendingInvalidEntries.isEmpty())
+				return;
+			switch (msg.what) {
+				case MSG_STORE_ITEM:
+				case MSG_UPDATE_ITEM:
+				case MSG_REMOVE_ITEM:
+					markEntryWritten(getItemKey((E) msg.obj));
+					break;
+
+				case MSG_STORE_ITEMS:
+					for (E item : (Collection<? extends E>) msg.obj) {
+						markEntryWritten(getItemKey(item));
+					}
+					break;
+
+				case MSG_REPLACE_ITEM:
+				case MSG_SWAP_ITEMS:
+					markEntryWritten(getItemKey((E) msg.obj));
+					markEntryWritten(getItemKey((E) msg.arg));
+					break;
+
+				default:
+					// custom operations and clearing may write any entry
+					markEntryWritten(null);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * @param key The key of the entry written, {@code null} if any entry may have been written.
+	 */
+	private void markEntryWritten(@Nullable Object key) {
+		for (PendingInvalidEntry pending : pendingInvalidEntries) {
+			if (null == key || null == pending.key || key.equals(pending.key))
+				pending.written = true;
+		}
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	private Object getItemKey(@Nullable E item) {
+		if (null == item || !(dataSource instanceof KeyedDataSource))
+			return null;
+		try {
+			return ((KeyedDataSource<E, INSERT_ID>) dataSource).getItemKey(item);
+		} catch (RuntimeException e) {
+			// like an element without a key yet, it may be written anywhere
+			return null;
+		}
+	}
+
+	private void deleteInvalidEntry(PendingInvalidEntry pending) {
+		synchronized (pendingInvalidEntries) {
+			pendingInvalidEntries.remove(pending);
+			if (pending.written) {
+				if (DEBUG_DB) LogManager.log(LogManager.DEBUG, TAG, "{} keep invalid entry {} written since it was read", name, pending.invalidEntry);
+				return;
+			}
+		}
+		try {
+			// remove the element from the DB forever
+			dataSource.deleteInvalidEntry(pending.invalidEntry);
+		} catch (RuntimeException e) {
+			LogManager.log(LogManager.WARN, TAG, "{} failed to remove invalid entry {}", name, pending.invalidEntry, e);
+			onOperationFailed(e);
+		}
 	}
 
 	/**
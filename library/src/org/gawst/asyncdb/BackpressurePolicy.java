@@ -0,0 +1,31 @@
+package org.gawst.asyncdb;
+
+/**
+ * What to do when an operation is scheduled on an {@link org.gawst.asyncdb.AsynchronousDbHelper} that already has the
+ * maximum number of pending operations.
+ *
+ * @see AsynchronousDbHelper#setMaxPendingOperations(int, BackpressurePolicy)
+ */
+public enum BackpressurePolicy {
+	/**
+	 * Block the caller until an operation is done.
+	 */
+	BLOCK,
+	/**
+	 * Throw a {@link java.util.concurrent.RejectedExecutionException} to the caller. The element may already be changed in memory.
+	 */
+	FAIL,
+	/**
+	 * An update replaces the pending update of the same element, see {@link AsynchronousDbHelper#getCoalescingKey(Object)}.
+	 * Block the caller for the other operations.
+	 */
+	COALESCE,
+	/**
+	 * An update replaces the pending update of the same element or drops the oldest pending update, which may be the update
+	 * of another element. Only use it if all the elements of the helper can lose an update, like a cache refreshed later.
+	 * The dropped update fails with a {@link java.util.concurrent.RejectedExecutionException} in its
+	 * {@link org.gawst.asyncdb.OperationFuture} and in {@link org.gawst.asyncdb.AsynchronousDbErrorHandler#onUpdateItemFailed(AsynchronousDbHelper, Object, Throwable)
+	 * AsynchronousDbErrorHandler.onUpdateItemFailed()}. Block the caller for the other operations.
+	 */
+	DROP_OLDEST,
+}
@@ -0,0 +1,204 @@
+package org.gawst.asyncdb;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Keep track of the {@link org.gawst.asyncdb.AsynchronousDbOperation} started with a token and a cookie, so they can be
+ * cancelled before they are run, or while they are running if they support it.
+ *
+ * @see org.gawst.asyncdb.AsyncDatabaseHandler#cancelOperation(int)
+ * @see org.gawst.asyncdb.typed.TypedAsyncDatabaseHandler#cancelOperation(int)
+ */
+public class CancellableOperations {
+
+	/**
+	 * An {@link org.gawst.asyncdb.AsynchronousDbOperation} that is skipped if it's cancelled before it's run.
+	 */
+	public abstract static class Operation implements AsynchronousDbOperation {
+		private final int token;
+		private final Object cookie;
+		private CancellableOperations owner;
+		private boolean write;
+		private volatile boolean cancelled;
+		private Object cancellationSignal;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param token  The token used to identify the operation.
+		 * @param cookie The cookie passed with the operation.
+		 */
+		public Operation(int token, Object cookie) {
+			this.token = token;
+			this.cookie = cookie;
+		}
+
+		@Override
+		public final void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+			try {
+				if (cancelled)
+					onCancelled(db);
+				else
+					runOperation(db);
+			} finally {
+				if (null != owner)
+					owner.remove(this);
+			}
+		}
+
+		/**
+		 * The actual operation to run in the internal thread of {@code db}, if it wasn't cancelled before.
+		 * <p>Long operations should check {@link #isCancelled()} or use {@link #getCancellationSignal()}.</p>
+		 *
+		 * @param db on which this operation is processed
+		 */
+		protected abstract void runOperation(AsynchronousDbHelper<?, ?> db);
+
+		/**
+		 * Called in the internal thread of {@code db} instead of {@link #runOperation(AsynchronousDbHelper)} when the operation
+		 * was cancelled before it started.
+		 *
+		 * @param db on which this operation is processed
+		 */
+		protected void onCancelled(AsynchronousDbHelper<?, ?> db) {
+		}
+
+		/**
+		 * @return {@code true} if the operation has been cancelled, the result of the operation should not be delivered.
+		 */
+		public final boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * @return A {@code CancellationSignal} that is cancelled when this operation is cancelled.
+		 */
+		@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+		@NonNull
+		public final synchronized CancellationSignal getCancellationSignal() {
+			if (null == cancellationSignal) {
+				CancellationSignal signal = new CancellationSignal();
+				if (cancelled)
+					signal.cancel();
+				cancellationSignal = signal;
+			}
+			return (CancellationSignal) cancellationSignal;
+		}
+
+		@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+		private synchronized void cancel() {
+			cancelled = true;
+			if (null != cancellationSignal)
+				((CancellationSignal) cancellationSignal).cancel();
+		}
+
+		@Override
+		public String toString() {
+			return "{Operation token=" + token + " cookie=" + cookie + (cancelled ? " cancelled" : "") + '}';
+		}
+	}
+
+	private final ArrayList<Operation> operations = new ArrayList<Operation>();
+	/**
+	 * Number of operations in {@link #operations} scheduled with {@link #schedule(AsynchronousDbHelper, Operation)}.
+	 */
+	private int pendingWrites;
+
+	/**
+	 * Track the {@code operation} and run it in the internal thread of the {@code db}, in order with its writes.
+	 *
+	 * @param db        The {@link org.gawst.asyncdb.AsynchronousDbHelper} that will run the operation.
+	 * @param operation The operation to run.
+	 */
+	public void schedule(@NonNull AsynchronousDbHelper<?, ?> db, @NonNull Operation operation) {
+		operation.write = true;
+		add(operation);
+		db.scheduleCustomOperation(operation, DbScheduler.PRIORITY_NORMAL);
+	}
+
+	/**
+	 * Track the read-only {@code operation} and run it in the reader pool of the {@code db}, if it has one.
+	 * <p>It's run ahead of the pending writes of the {@code db}, unless an operation scheduled with
+	 * {@link #schedule(AsynchronousDbHelper, Operation)} is still pending: then it's run after it, so it sees its changes.</p>
+	 *
+	 * @param db        The {@link org.gawst.asyncdb.AsynchronousDbHelper} that will run the operation.
+	 * @param operation The operation to run, it must not write in the data source.
+	 * @see org.gawst.asyncdb.AsynchronousDbHelper#scheduleReadOperation(AsynchronousDbOperation)
+	 */
+	public void scheduleRead(@NonNull AsynchronousDbHelper<?, ?> db, @NonNull Operation operation) {
+		final int priority;
+		synchronized (operations) {
+			priority = 0 == pendingWrites ? DbScheduler.PRIORITY_INTERACTIVE : DbScheduler.PRIORITY_NORMAL;
+		}
+		add(operation);
+		db.scheduleReadOperation(operation, priority);
+	}
+
+	/**
+	 * Track the {@code operation} that will be run outside of {@link #schedule(AsynchronousDbHelper, Operation)}.
+	 * <p>It's not tracked anymore once it's run or with {@link #remove(Operation)}.</p>
+	 */
+	public void add(@NonNull Operation operation) {
+		synchronized (operations) {
+			if (null != operation.owner && this != operation.owner)
+				throw new IllegalStateException("operation " + operation + " already tracked by " + operation.owner);
+			operation.owner = this;
+			operations.add(operation);
+			if (operation.write)
+				++pendingWrites;
+		}
+	}
+
+	/**
+	 * Stop tracking the {@code operation}.
+	 */
+	public void remove(@NonNull Operation operation) {
+		synchronized (operations) {
+			if (operations.remove(operation) && operation.write)
+				--pendingWrites;
+		}
+	}
+
+	/**
+	 * Cancel all the operations started with the {@code token}.
+	 *
+	 * @return the number of operations cancelled.
+	 */
+	public int cancel(int token) {
+		int cancelled = 0;
+		synchronized (operations) {
+			for (int i = operations.size() - 1; i >= 0; --i) {
+				Operation operation = operations.get(i);
+				if (!operation.cancelled && operation.token == token) {
+					operation.cancel();
+					++cancelled;
+				}
+			}
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Cancel all the operations started with the {@code cookie}.
+	 *
+	 * @return the number of operations cancelled.
+	 */
+	public int cancelCookie(Object cookie) {
+		int cancelled = 0;
+		synchronized (operations) {
+			for (int i = operations.size() - 1; i >= 0; --i) {
+				Operation operation = operations.get(i);
+				if (!operation.cancelled && (operation.cookie == cookie || (null != cookie && cookie.equals(operation.cookie)))) {
+					operation.cancel();
+					++cancelled;
+				}
+			}
+		}
+		return cancelled;
+	}
+}
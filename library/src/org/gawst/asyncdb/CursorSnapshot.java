@@ -0,0 +1,230 @@
+package org.gawst.asyncdb;
+
+import android.annotation.TargetApi;
+import android.database.AbstractCursor;
+import android.database.Cursor;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * Immutable copy of all the rows of a {@link android.database.Cursor} or a JDBC {@link java.sql.ResultSet} kept in memory.
+ * <p>Each call to {@link #newCursor()} creates a new read-only {@code Cursor} over the same shared data, so a snapshot can
+ * be handed to multiple readers at once without touching the database again.</p>
+ *
+ * @see org.gawst.asyncdb.QueryResultCache
+ */
+public final class CursorSnapshot {
+	private final String[] columnNames;
+	private final Object[][] rows;
+
+	private CursorSnapshot(String[] columnNames, Object[][] rows) {
+		this.columnNames = columnNames;
+		this.rows = rows;
+	}
+
+	/**
+	 * Read all the rows of the {@code cursor} in memory. The {@code cursor} is not closed.
+	 *
+	 * @param cursor The Cursor to copy, it will be moved.
+	 * @return The snapshot of the whole {@code cursor} data.
+	 */
+	@NonNull
+	public static CursorSnapshot copyOf(@NonNull Cursor cursor) {
+		final String[] columnNames = cursor.getColumnNames();
+		final Object[][] rows = new Object[cursor.getCount()][];
+		int row = 0;
+		if (cursor.moveToFirst()) {
+			do {
+				final Object[] values = new Object[columnNames.length];
+				for (int column = 0; column < columnNames.length; ++column) {
+					values[column] = readValue(cursor, column);
+				}
+				rows[row++] = values;
+			} while (row < rows.length && cursor.moveToNext());
+		}
+		return new CursorSnapshot(columnNames, rows);
+	}
+
+	/**
+	 * Read all the remaining rows of the JDBC {@code resultSet} in memory. The {@code resultSet} is not closed.
+	 *
+	 * @param resultSet The ResultSet to copy, it will be moved.
+	 * @return The snapshot of the whole {@code resultSet} data.
+	 */
+	@NonNull
+	public static CursorSnapshot copyOf(@NonNull ResultSet resultSet) throws SQLException {
+		final ResultSetMetaData metaData = resultSet.getMetaData();
+		final String[] columnNames = new String[metaData.getColumnCount()];
+		for (int column = 0; column < columnNames.length; ++column) {
+			columnNames[column] = metaData.getColumnLabel(column + 1);
+		}
+		final ArrayList<Object[]> rows = new ArrayList<Object[]>();
+		while (resultSet.next()) {
+			final Object[] values = new Object[columnNames.length];
+			for (int column = 0; column < columnNames.length; ++column) {
+				values[column] = readValue(resultSet.getObject(column + 1));
+			}
+			rows.add(values);
+		}
+		return new CursorSnapshot(columnNames, rows.toArray(new Object[rows.size()][]));
+	}
+
+	private static Object readValue(Object value) {
+		// use the same types as the Cursor values
+		if (null == value || value instanceof byte[] || value instanceof String)
+			return value;
+		if (value instanceof Float || value instanceof Double || value instanceof BigDecimal)
+			return ((Number) value).doubleValue();
+		if (value instanceof Number)
+			return ((Number) value).longValue();
+		if (value instanceof Boolean)
+			return (Boolean) value ? 1L : 0L;
+		return value.toString();
+	}
+
+	private static Object readValue(Cursor cursor, int column) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB)
+			return readTypedValue(cursor, column);
+
+		if (cursor.isNull(column))
+			return null;
+		try {
+			return cursor.getString(column);
+		} catch (Exception e) {
+			// a BLOB can't be read as a String
+			return cursor.getBlob(column);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private static Object readTypedValue(Cursor cursor, int column) {
+		switch (cursor.getType(column)) {
+			case Cursor.FIELD_TYPE_NULL:
+				return null;
+			case Cursor.FIELD_TYPE_INTEGER:
+				return cursor.getLong(column);
+			case Cursor.FIELD_TYPE_FLOAT:
+				return cursor.getDouble(column);
+			case Cursor.FIELD_TYPE_BLOB:
+				return cursor.getBlob(column);
+			default:
+				return cursor.getString(column);
+		}
+	}
+
+	/**
+	 * @return The number of rows in the snapshot.
+	 */
+	public int getCount() {
+		return rows.length;
+	}
+
+	/**
+	 * @return A new read-only {@code Cursor} positioned before the first row of the snapshot.
+	 */
+	@NonNull
+	public Cursor newCursor() {
+		return new SnapshotCursor();
+	}
+
+	private class SnapshotCursor extends AbstractCursor {
+		private Object get(int column) {
+			if (column < 0 || column >= columnNames.length)
+				throw new IllegalArgumentException("invalid column " + column);
+			if (mPos < 0 || mPos >= rows.length)
+				throw new IllegalStateException("invalid cursor position " + mPos);
+			return rows[mPos][column];
+		}
+
+		@Override
+		public int getCount() {
+			return rows.length;
+		}
+
+		@Override
+		public String[] getColumnNames() {
+			return columnNames;
+		}
+
+		@Override
+		public String getString(int column) {
+			Object value = get(column);
+			if (value == null)
+				return null;
+			if (value instanceof byte[])
+				return new String((byte[]) value);
+			return value.toString();
+		}
+
+		@Override
+		public short getShort(int column) {
+			Object value = get(column);
+			if (value == null) return 0;
+			if (value instanceof Number) return ((Number) value).shortValue();
+			return Short.parseShort(value.toString());
+		}
+
+		@Override
+		public int getInt(int column) {
+			Object value = get(column);
+			if (value == null) return 0;
+			if (value instanceof Number) return ((Number) value).intValue();
+			return Integer.parseInt(value.toString());
+		}
+
+		@Override
+		public long getLong(int column) {
+			Object value = get(column);
+			if (value == null) return 0L;
+			if (value instanceof Number) return ((Number) value).longValue();
+			return Long.parseLong(value.toString());
+		}
+
+		@Override
+		public float getFloat(int column) {
+			Object value = get(column);
+			if (value == null) return 0.0f;
+			if (value instanceof Number) return ((Number) value).floatValue();
+			return Float.parseFloat(value.toString());
+		}
+
+		@Override
+		public double getDouble(int column) {
+			Object value = get(column);
+			if (value == null) return 0.0d;
+			if (value instanceof Number) return ((Number) value).doubleValue();
+			return Double.parseDouble(value.toString());
+		}
+
+		@Override
+		public byte[] getBlob(int column) {
+			Object value = get(column);
+			if (value == null)
+				return null;
+			if (value instanceof byte[])
+				return ((byte[]) value).clone(); // the snapshot is shared by all the cursors of the cached query
+			return value.toString().getBytes();
+		}
+
+		@Override
+		public int getType(int column) {
+			Object value = get(column);
+			if (value == null) return FIELD_TYPE_NULL;
+			if (value instanceof byte[]) return FIELD_TYPE_BLOB;
+			if (value instanceof Double) return FIELD_TYPE_FLOAT;
+			if (value instanceof Long) return FIELD_TYPE_INTEGER;
+			return FIELD_TYPE_STRING;
+		}
+
+		@Override
+		public boolean isNull(int column) {
+			return get(column) == null;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+
+/**
+ * The threads used by all the {@link org.gawst.asyncdb.AsynchronousDbHelper} and their handlers: a single internal thread
+ * to read/write the data sources and a thread to notify the listeners.
+ * <p>On Android the internal thread is a {@code HandlerThread} and the listeners are notified in the UI thread, see
+ * {@link org.gawst.asyncdb.AndroidDbScheduler}. On a plain JVM {@link org.gawst.asyncdb.JavaDbScheduler} is used.</p>
+ *
+ * @see #setDefault(DbScheduler)
+ */
+public abstract class DbScheduler {
+
+	/**
+	 * Priority of the operations run before all the others, like a load a thread is blocked on.
+	 */
+	public static final int PRIORITY_URGENT = 3;
+	/**
+	 * Priority of the operations the user is waiting for, like the queries of the handlers.
+	 */
+	public static final int PRIORITY_INTERACTIVE = 2;
+	/**
+	 * Priority of the regular operations, used by {@link #post(Runnable)}.
+	 */
+	public static final int PRIORITY_NORMAL = 1;
+	/**
+	 * Priority of the maintenance operations run after all the others, like purges.
+	 */
+	public static final int PRIORITY_BACKGROUND = 0;
+
+	private static DbScheduler defaultScheduler;
+
+	/**
+	 * @return The scheduler used by all the {@link org.gawst.asyncdb.AsynchronousDbHelper}, created on first use.
+	 */
+	@NonNull
+	public static synchronized DbScheduler getDefault() {
+		if (null == defaultScheduler) {
+			if (isAndroid())
+				defaultScheduler = new AndroidDbScheduler();
+			else
+				defaultScheduler = new JavaDbScheduler("AsynchronousDbHelper");
+		}
+		return defaultScheduler;
+	}
+
+	/**
+	 * Set the scheduler to use for all the {@link org.gawst.asyncdb.AsynchronousDbHelper}.
+	 * <p>Must be called before any {@link org.gawst.asyncdb.AsynchronousDbHelper} is created.</p>
+	 *
+	 * @param scheduler The scheduler to use.
+	 * @throws IllegalStateException if another scheduler is already in use.
+	 */
+	public static synchronized void setDefault(@NonNull DbScheduler scheduler) {
+		if (null != defaultScheduler && defaultScheduler != scheduler)
+			throw new IllegalStateException("scheduler " + defaultScheduler + " already in use");
+		defaultScheduler = scheduler;
+	}
+
+	/**
+	 * @return {@code true} if the Android main {@code Looper} is available, including in JVM-hosted Android tests like
+	 * Robolectric, so the listeners keep being called in the UI thread.
+	 */
+	static boolean isAndroid() {
+		try {
+			return null != Class.forName("android.os.Looper").getMethod("getMainLooper").invoke(null);
+		} catch (Exception e) {
+			// no Android framework, or the android.jar stubs throwing "Stub!"
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Run the {@code Runnable} in the internal thread, after all the ones already posted.
+	 */
+	public abstract void post(@NonNull Runnable r);
+
+	/**
+	 * Run the {@code Runnable} in the internal thread, after all the ones already posted with the same or a higher priority
+	 * and before the ones with a lower priority.
+	 * <p>The default implementation ignores the priority.</p>
+	 *
+	 * @param priority One of {@link #PRIORITY_URGENT}, {@link #PRIORITY_INTERACTIVE}, {@link #PRIORITY_NORMAL} or
+	 *                 {@link #PRIORITY_BACKGROUND}.
+	 */
+	public void post(@NonNull Runnable r, int priority) {
+		post(r);
+	}
+
+	/**
+	 * Run the {@code Runnable} in the internal thread after the given delay.
+	 *
+	 * @param delayMillis the delay before the {@code Runnable} is run, in milliseconds.
+	 */
+	public abstract void postDelayed(@NonNull Runnable r, long delayMillis);
+
+	/**
+	 * Run the {@code Runnable} in the internal thread when there is nothing else to run.
+	 * <p>Idle {@code Runnable} are run one at a time, in the order they were posted. Other posted {@code Runnable}
+	 * are run first if there are some pending.</p>
+	 */
+	public abstract void postWhenIdle(@NonNull Runnable r);
+
+	/**
+	 * Run the {@code Runnable} in the thread used to notify the listeners, even if it's the current thread.
+	 */
+	public abstract void postCallback(@NonNull Runnable r);
+
+	/**
+	 * Run the {@code Runnable} in the thread used to notify the listeners, right away if it's the current thread.
+	 */
+	public abstract void runCallback(@NonNull Runnable r);
+
+	/**
+	 * Start a named section in the system trace, if available, for the current thread.
+	 *
+	 * @see #endTraceSection()
+	 */
+	public void beginTraceSection(@NonNull String sectionName) {
+	}
+
+	/**
+	 * End the last section started with {@link #beginTraceSection(String)} in the current thread.
+	 */
+	public void endTraceSection() {
+	}
+
+	/**
+	 * @return {@code true} if the current thread is the thread used to notify the listeners.
+	 */
+	public abstract boolean isCallbackThread();
+
+	/**
+	 * Remove the pending {@code Runnable} posted with {@link #postCallback(Runnable)} or {@link #runCallback(Runnable)}.
+	 */
+	public abstract void removeCallback(@NonNull Runnable r);
+}
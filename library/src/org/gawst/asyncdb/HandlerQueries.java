@@ -0,0 +1,174 @@
+package org.gawst.asyncdb;
+
+import org.gawst.asyncdb.source.typed.TypedCancellableDatabaseSource;
+import org.gawst.asyncdb.source.typed.TypedDatabaseSource;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The queries shared by {@link org.gawst.asyncdb.AsyncDatabaseHandler} and
+ * {@link org.gawst.asyncdb.typed.TypedAsyncDatabaseHandler}: the {@link org.gawst.asyncdb.QueryResultCache} lookup, the
+ * merging of identical pending queries and the cancellation.
+ * <p>Public only because the handlers are in different packages, it's not meant to be used directly.</p>
+ */
+public final class HandlerQueries {
+
+	private static final DbScheduler scheduler = DbScheduler.getDefault();
+
+	/**
+	 * Receive the result of a query started with {@link #startQuery(AsynchronousDbHelper, CancellableOperations, TypedDatabaseSource, int, Object, String[], String, String[], String, String, QueryCallback) startQuery()}.
+	 *
+	 * @param <CURSOR> Type of {@code Cursor} returned by the data source.
+	 */
+	public interface QueryCallback<CURSOR extends Cursor> {
+		/**
+		 * Called in the thread used to notify the listeners.
+		 *
+		 * @param cursor The result of the query, {@code null} if it failed.
+		 */
+		void onQueryComplete(int token, Object cookie, @Nullable CURSOR cursor);
+	}
+
+	private HandlerQueries() {
+	}
+
+	/**
+	 * Start an asynchronous query, served from the {@link org.gawst.asyncdb.QueryResultCache} of the {@code db} if it has one.
+	 */
+	public static <CURSOR extends Cursor> void startQuery(@NonNull AsynchronousDbHelper<?, ?> db, @NonNull final CancellableOperations pendingOperations,
+	                                                      @NonNull final TypedDatabaseSource<?, ?, CURSOR> dataSource,
+	                                                      final int token, final Object cookie,
+	                                                      final String[] projection, final String selection, final String[] selectionArgs,
+	                                                      final String orderBy, final String limit, @NonNull final QueryCallback<? super CURSOR> callback) {
+		final QueryResultCache queryCache = db.getQueryResultCache();
+		final QueryResultCache.Key cacheKey;
+		final long cacheGeneration;
+		final QueryResultCache.PendingQuery pendingQuery;
+		if (null == queryCache) {
+			cacheKey = null;
+			cacheGeneration = 0;
+			pendingQuery = null;
+		} else {
+			cacheKey = new QueryResultCache.Key(dataSource, projection, selection, selectionArgs, orderBy, limit);
+			CursorSnapshot cached = queryCache.get(cacheKey);
+			if (null != cached) {
+				deliver(callback, token, cookie, dataSource.wrapCursor(cached.newCursor()));
+				return;
+			}
+			cacheGeneration = queryCache.getGeneration();
+			final CancellableOperations.Operation mergedOperation = new CancellableOperations.Operation(token, cookie) {
+				@Override
+				protected void runOperation(AsynchronousDbHelper<?, ?> db) {
+					// only used to cancel the merged query, run by onPendingQueryDone()
+				}
+			};
+			pendingOperations.add(mergedOperation);
+			pendingQuery = queryCache.startQuery(cacheKey, cacheGeneration, new QueryResultCache.MergedQueryCallback() {
+				@Override
+				public void onPendingQueryDone(@Nullable CursorSnapshot snapshot) {
+					try {
+						if (mergedOperation.isCancelled())
+							return;
+
+						CURSOR cursor;
+						try {
+							if (null != snapshot)
+								cursor = dataSource.wrapCursor(snapshot.newCursor());
+							else
+								cursor = query(dataSource, mergedOperation, projection, selection, selectionArgs, orderBy, limit);
+						} catch (Exception e) {
+							cursor = null;
+						}
+
+						if (mergedOperation.isCancelled()) {
+							if (null != cursor)
+								cursor.close();
+							return;
+						}
+
+						deliver(callback, token, cookie, cursor);
+					} finally {
+						pendingOperations.remove(mergedOperation);
+					}
+				}
+			});
+			if (null == pendingQuery) {
+				// merged with an identical query already pending
+				return;
+			}
+			pendingOperations.remove(mergedOperation);
+		}
+
+		pendingOperations.scheduleRead(db, new CancellableOperations.Operation(token, cookie) {
+			@Override
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
+				CURSOR cursor;
+				CursorSnapshot snapshot = null;
+				try {
+					snapshot = null == queryCache ? null : queryCache.get(cacheKey);
+					if (null != snapshot) {
+						cursor = dataSource.wrapCursor(snapshot.newCursor());
+					} else {
+						cursor = query(dataSource, this, projection, selection, selectionArgs, orderBy, limit);
+						if (null != queryCache && null != cursor) {
+							snapshot = queryCache.put(cacheKey, cursor, cacheGeneration);
+							if (null != snapshot)
+								cursor = dataSource.wrapCursor(snapshot.newCursor());
+						}
+					}
+				} catch (Exception e) {
+					cursor = null;
+				} finally {
+					if (null != pendingQuery)
+						queryCache.finishQuery(pendingQuery, snapshot);
+				}
+
+				if (isCancelled()) {
+					if (null != cursor)
+						cursor.close();
+					return;
+				}
+
+				deliver(callback, token, cookie, cursor);
+			}
+
+			@Override
+			protected void onCancelled(AsynchronousDbHelper<?, ?> db) {
+				// let the merged queries run on their own
+				if (null != pendingQuery)
+					queryCache.finishQuery(pendingQuery, null);
+			}
+		});
+	}
+
+	/**
+	 * Query the {@code dataSource}, interrupted when the {@code operation} is cancelled if the source supports it.
+	 */
+	public static <CURSOR extends Cursor> CURSOR query(@NonNull TypedDatabaseSource<?, ?, CURSOR> dataSource, @NonNull CancellableOperations.Operation operation,
+	                                                   String[] projection, String selection, String[] selectionArgs, String orderBy, String limit) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && dataSource instanceof TypedCancellableDatabaseSource)
+			return queryCancellable(dataSource, operation, projection, selection, selectionArgs, orderBy, limit);
+		return dataSource.query(projection, selection, selectionArgs, null, null, orderBy, limit);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static <CURSOR extends Cursor> CURSOR queryCancellable(TypedDatabaseSource<?, ?, CURSOR> dataSource, CancellableOperations.Operation operation,
+	                                                               String[] projection, String selection, String[] selectionArgs, String orderBy, String limit) {
+		@SuppressWarnings("unchecked")
+		TypedCancellableDatabaseSource<CURSOR> source = (TypedCancellableDatabaseSource<CURSOR>) dataSource;
+		return source.query(projection, selection, selectionArgs, null, null, orderBy, limit, operation.getCancellationSignal());
+	}
+
+	private static <CURSOR extends Cursor> void deliver(final QueryCallback<? super CURSOR> callback, final int token, final Object cookie, final CURSOR cursor) {
+		scheduler.postCallback(new Runnable() {
+			@Override
+			public void run() {
+				callback.onQueryComplete(token, cookie, cursor);
+			}
+		});
+	}
+}
@@ -0,0 +1,127 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of positive values (durations in nanoseconds, queue depths...) with power of 2 buckets.
+ * <p>Recording a value doesn't allocate, the values can be read at any time with {@link #snapshot()}.</p>
+ */
+public final class Histogram {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * An immutable copy of the values of a {@link org.gawst.asyncdb.Histogram}.
+	 */
+	public static final class Snapshot {
+		private final long[] buckets;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		private Snapshot(long[] buckets, long count, long sum, long max) {
+			this.buckets = buckets;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		/**
+		 * @return The number of values recorded.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return The sum of all the values recorded.
+		 */
+		public long getSum() {
+			return sum;
+		}
+
+		/**
+		 * @return The biggest value recorded.
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * @return The average of the values recorded, {@code 0} if there are none.
+		 */
+		public double getMean() {
+			return count == 0 ? 0.0 : (double) sum / count;
+		}
+
+		/**
+		 * @param percentile The percentile to get, between 0 and 100.
+		 * @return The upper bound of the bucket containing the percentile, it's at most twice the real value.
+		 */
+		public long getPercentile(double percentile) {
+			if (count == 0)
+				return 0;
+			long rank = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; ++i) {
+				seen += buckets[i];
+				if (seen >= rank && seen != 0)
+					return Math.min(max, upperBound(i));
+			}
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return "{count=" + count + " mean=" + (long) getMean() + " p50=" + getPercentile(50) + " p99=" + getPercentile(99) + " max=" + max + '}';
+		}
+	}
+
+	/**
+	 * Add a value in the histogram, negative values are counted as {@code 0}.
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		buckets.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+		}
+	}
+
+	/**
+	 * @return A copy of the current values, the values recorded while the copy is made may be partially counted.
+	 */
+	@NonNull
+	public Snapshot snapshot() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; ++i) {
+			copy[i] = buckets.get(i);
+		}
+		return new Snapshot(copy, count.get(), sum.get(), max.get());
+	}
+
+	private static int bucketOf(long value) {
+		// bucket i holds the values in [2^(i-1), 2^i[
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	private static long upperBound(int bucket) {
+		return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
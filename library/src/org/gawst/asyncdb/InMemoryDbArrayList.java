@@ -1,6 +1,6 @@
 package org.gawst.asyncdb;
 
-import org.gawst.asyncdb.adapter.InMemoryFilteredAdapter;
+import org.gawst.asyncdb.adapter.InMemoryFilter;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -17,7 +17,7 @@ import java.util.concurrent.locks.ReentrantLock;
  *
  * @param <E> the type of items stored in memory by the {@link InMemoryDbArrayList}
  */
-public abstract class InMemoryDbArrayList<E, INSERT_ID> extends InMemoryDbList<E, ArrayList<E>, INSERT_ID> implements InMemoryFilteredAdapter.InMemoryFilter.InMemoryFilterable<E> {
+public abstract class InMemoryDbArrayList<E, INSERT_ID> extends InMemoryDbList<E, ArrayList<E>, INSERT_ID> implements InMemoryFilter.InMemoryFilterable<E> {
 
 	/**
 	 * the array where the data are stored, locked when writing on it
@@ -60,7 +60,7 @@ public abstract class InMemoryDbArrayList<E, INSERT_ID> extends InMemoryDbList<E
 	
 	@Override
 	protected void preloadInit(Object cookie) {
-		mDataLock = new ReentrantLock();
+		mDataLock = newDataLock();
 		dataLoaded = mDataLock.newCondition();
 		super.preloadInit(cookie);
 		mData = new ArrayList<E>();
@@ -72,12 +72,15 @@ public abstract class InMemoryDbArrayList<E, INSERT_ID> extends InMemoryDbList<E
 		if (!isDataLoaded() && !mIsLoading)
 			try {
 				// we're trying to read the data but they are not loading yet
-				LogManager.logger.v(STARTUP_TAG, "waiting data loaded in "+this);
+				boostDataLoad();
+				LogManager.log(LogManager.VERBOSE, STARTUP_TAG, "waiting data loaded in {}", this);
 				long now = System.currentTimeMillis();
 				dataLoaded.await(10, TimeUnit.SECONDS);
-				LogManager.logger.v(STARTUP_TAG, "waiting data loaded in "+this+" finished after "+(System.currentTimeMillis()-now));
+				long waitedMillis = System.currentTimeMillis()-now;
+				LogManager.log(LogManager.VERBOSE, STARTUP_TAG, "waiting data loaded in {} finished after {}", this, waitedMillis);
+				onWaitedForDataLoaded(waitedMillis);
 			} catch (InterruptedException ignored) {
-				LogManager.logger.w(STARTUP_TAG, "timed out waiting for data loaded in "+this);
+				LogManager.log(LogManager.WARN, STARTUP_TAG, "timed out waiting for data loaded in {}", this);
 			}
 		return mData;
 	}
@@ -159,6 +162,17 @@ public abstract class InMemoryDbArrayList<E, INSERT_ID> extends InMemoryDbList<E
 		}
 	}
 
+	@Override
+	protected void removeItemsInMemory(Collection<? extends E> items) {
+		// protect the data coherence
+		mDataLock.lock();
+		try {
+			super.removeItemsInMemory(items);
+		} finally {
+			mDataLock.unlock();
+		}
+	}
+
 	@Override
 	protected void clearDataInMemory() {
 		// protect the data coherence
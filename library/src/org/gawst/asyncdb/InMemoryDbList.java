@@ -5,6 +5,7 @@ import android.support.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -173,6 +174,15 @@ public abstract class InMemoryDbList<E, L extends List<E>, INSERT_ID> extends As
 		}
 	}
 
+	/**
+	 * Remove the purged {@code items} matching with {@link Object#equals(Object) equals()} and {@link Object#hashCode() hashCode()},
+	 * they are not the instances held in memory.
+	 */
+	@Override
+	protected void removeItemsInMemory(Collection<? extends E> items) {
+		getList().removeAll(new HashSet<E>(items));
+	}
+
 	@Override
 	protected void clearDataInMemory() {
 		getList().clear();
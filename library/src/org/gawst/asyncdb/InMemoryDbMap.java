@@ -1,11 +1,13 @@
 package org.gawst.asyncdb;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
 import org.gawst.asyncdb.source.MapDataSource;
 
 import android.content.ContentValues;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 public abstract class InMemoryDbMap<K, V, H extends Map<K, V>, INSERT_ID> extends AsynchronousDbHelper<MapEntry<K,V>, INSERT_ID> {
@@ -55,6 +57,12 @@ public abstract class InMemoryDbMap<K, V, H extends Map<K, V>, INSERT_ID> extend
 		return getValuesFromData(data.getKey(), data.getValue(), update);
 	}
 
+	@NonNull
+	@Override
+	protected Object getCoalescingKey(@NonNull MapEntry<K, V> item) {
+		return item.getKey();
+	}
+
 	/**
 	 * Internal callback when writing an item in the Map.
 	 */
@@ -63,6 +71,14 @@ public abstract class InMemoryDbMap<K, V, H extends Map<K, V>, INSERT_ID> extend
 		map.put(key, value);
 	}
 
+	@Override
+	protected void removeItemsInMemory(Collection<? extends MapEntry<K, V>> items) {
+		final H map = getMap();
+		for (MapEntry<K, V> entry : items) {
+			map.remove(entry.getKey());
+		}
+	}
+
 	@Override
 	protected void clearDataInMemory() {
 		getMap().clear();
@@ -124,12 +140,12 @@ public abstract class InMemoryDbMap<K, V, H extends Map<K, V>, INSERT_ID> extend
 	 */
 	@Nullable
 	public K findKey(K key) {
-		if (DEBUG_DB) LogManager.logger.d("colors", "looking for "+key);
+		if (DEBUG_DB) LogManager.log(LogManager.DEBUG, "colors", "looking for {}", key);
 		Set<K> keys = getMap().keySet();
 		for (K k : keys ){
-			if (DEBUG_DB) LogManager.logger.d("colors", " testing key "+k);
+			if (DEBUG_DB) LogManager.log(LogManager.DEBUG, "colors", " testing key {}", k);
 			if (k.equals(key)) {
-				if (DEBUG_DB) LogManager.logger.d("colors", " using "+k);
+				if (DEBUG_DB) LogManager.log(LogManager.DEBUG, "colors", " using {}", k);
 				return k;
 			}
 		}
@@ -4,7 +4,7 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.support.annotation.Nullable;
 
-import org.gawst.asyncdb.adapter.InMemoryFilteredAdapter;
+import org.gawst.asyncdb.adapter.InMemoryFilter;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
@@ -19,7 +19,7 @@ import java.util.Set;
  * @param <E> the type of items stored in memory by the {@link InMemoryDbSet}
  * @param <S> the type of in memory storage that will be used
  */
-public abstract class InMemoryDbSet<E, S extends Set<E>, INSERT_ID> extends AsynchronousDbHelper<E, INSERT_ID> implements AsynchronousDbErrorHandler<E>, InMemoryFilteredAdapter.InMemoryFilter.InMemoryFilterable<E>/*, Set<E>*/ {
+public abstract class InMemoryDbSet<E, S extends Set<E>, INSERT_ID> extends AsynchronousDbHelper<E, INSERT_ID> implements AsynchronousDbErrorHandler<E>, InMemoryFilter.InMemoryFilterable<E>/*, Set<E>*/ {
 
 	private WeakReference<AsynchronousDbErrorHandler<E>> mListener;
 
@@ -144,6 +144,11 @@ public abstract class InMemoryDbSet<E, S extends Set<E>, INSERT_ID> extends Asyn
 		return it.next();
 	}
 
+	@Override
+	protected void removeItemsInMemory(Collection<? extends E> items) {
+		getSet().removeAll(items);
+	}
+
 	@Override
 	protected void clearDataInMemory() {
 		getSet().clear();
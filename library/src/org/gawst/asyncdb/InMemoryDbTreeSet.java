@@ -65,7 +65,7 @@ public abstract class InMemoryDbTreeSet<E, INSERT_ID> extends InMemoryDbSet<E, T
 
 	@Override
 	protected void preloadInit(Object cookie) {
-		mDataLock = new ReentrantLock();
+		mDataLock = newDataLock();
 		dataLoaded = mDataLock.newCondition();
 		super.preloadInit(cookie);
 		mData = new TreeSet<E>(comparator);
@@ -77,12 +77,15 @@ public abstract class InMemoryDbTreeSet<E, INSERT_ID> extends InMemoryDbSet<E, T
 		if (!isDataLoaded() && !mIsLoading)
 			try {
 				// we're trying to read the data but they are not loading yet
-				LogManager.logger.v(STARTUP_TAG, "waiting data loaded in "+this);
+				boostDataLoad();
+				LogManager.log(LogManager.VERBOSE, STARTUP_TAG, "waiting data loaded in {}", this);
 				long now = System.currentTimeMillis();
 				dataLoaded.await(10, TimeUnit.SECONDS);
-				LogManager.logger.v(STARTUP_TAG, "waiting data loaded in "+this+" finished after "+(System.currentTimeMillis()-now));
+				long waitedMillis = System.currentTimeMillis()-now;
+				LogManager.log(LogManager.VERBOSE, STARTUP_TAG, "waiting data loaded in {} finished after {}", this, waitedMillis);
+				onWaitedForDataLoaded(waitedMillis);
 			} catch (InterruptedException ignored) {
-				LogManager.logger.w(STARTUP_TAG, "timed out waiting for data loaded in "+this);
+				LogManager.log(LogManager.WARN, STARTUP_TAG, "timed out waiting for data loaded in {}", this);
 			}
 		return mData;
 	}
@@ -158,6 +161,17 @@ public abstract class InMemoryDbTreeSet<E, INSERT_ID> extends InMemoryDbSet<E, T
 		}
 	}
 
+	@Override
+	protected void removeItemsInMemory(Collection<? extends E> items) {
+		// protect the data coherence
+		mDataLock.lock();
+		try {
+			super.removeItemsInMemory(items);
+		} finally {
+			mDataLock.unlock();
+		}
+	}
+
 	@Override
 	protected void clearDataInMemory() {
 		// protect the data coherence
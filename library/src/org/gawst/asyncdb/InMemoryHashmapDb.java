@@ -1,5 +1,6 @@
 package org.gawst.asyncdb;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
@@ -69,7 +70,7 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 
 	@Override
 	protected void preloadInit(Object cookie) {
-		mDataLock = new ReentrantLock();
+		mDataLock = newDataLock();
 		dataLoaded = mDataLock.newCondition();
 		super.preloadInit(cookie);
 		mData = new HashMap<K,V>();
@@ -83,13 +84,16 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 			try {
 				waited = true;
 				// we're trying to read the data but they are not loading yet
-				LogManager.logger.v(STARTUP_TAG, "waiting data loaded in "+this);
+				boostDataLoad();
+				LogManager.log(LogManager.VERBOSE, STARTUP_TAG, "waiting data loaded in {}", this);
 				long now = System.currentTimeMillis();
 				dataLoaded.await(10, TimeUnit.SECONDS);
-				LogManager.logger.v(STARTUP_TAG, "waiting data loaded in "+this+" finished after "+(System.currentTimeMillis()-now));
+				long waitedMillis = System.currentTimeMillis()-now;
+				LogManager.log(LogManager.VERBOSE, STARTUP_TAG, "waiting data loaded in {} finished after {}", this, waitedMillis);
+				onWaitedForDataLoaded(waitedMillis);
 				//Thread.sleep(1000);
 			} catch (InterruptedException ignored) {
-				LogManager.logger.w(STARTUP_TAG, "timed out waiting for data loaded in "+this);
+				LogManager.log(LogManager.WARN, STARTUP_TAG, "timed out waiting for data loaded in {}", this);
 			}
 		if (null==mData) throw new NullPointerException("no HashMap, waited:"+waited+" mIsLoading:"+mIsLoading+" constructorPassed:"+constructorPassed);
 		return mData;
@@ -111,6 +115,17 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 		mDataLock.unlock();
 	}
 
+	@Override
+	protected void removeItemsInMemory(Collection<? extends MapEntry<K, V>> items) {
+		// protect the data coherence
+		mDataLock.lock();
+		try {
+			super.removeItemsInMemory(items);
+		} finally {
+			mDataLock.unlock();
+		}
+	}
+
 	@Override
 	protected void clearDataInMemory() {
 		// protect the data coherence
@@ -125,12 +140,12 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 	@Override
 	public boolean containsKey(K key) {
 		// protect the data coherence
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock containsKey");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock containsKey", this);
 		mDataLock.lock();
 		try {
 			return super.containsKey(key);
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock containsKey");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock containsKey", this);
 			mDataLock.unlock();
 		}
 	}
@@ -138,12 +153,12 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 	@Override
 	public K findKey(K key) {
 		// protect the data coherence
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock findKey");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock findKey", this);
 		mDataLock.lock();
 		try {
 			return super.findKey(key);
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock findKey");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock findKey", this);
 			mDataLock.unlock();
 		}
 	}
@@ -151,12 +166,12 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 	@Override
 	public V remove(K key) {
 		// protect the data coherence
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock remove");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock remove", this);
 		mDataLock.lock();
 		try {
 			return super.remove(key);
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock remove");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock remove", this);
 			mDataLock.unlock();
 		}
 	}
@@ -164,12 +179,12 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 	@Override
 	public V put(K key, V value) {
 		// protect the data coherence
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock put");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock put", this);
 		mDataLock.lock();
 		try {
 			return super.put(key, value);
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock put");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock put", this);
 			mDataLock.unlock();
 		}
 	}
@@ -177,12 +192,12 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 	@Override
 	public V get(K key) {
 		// protect the data coherence
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock get");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock get", this);
 		mDataLock.lock();
 		try {
 			return super.get(key);
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock get");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock get", this);
 			mDataLock.unlock();
 		}
 	}
@@ -190,25 +205,25 @@ public abstract class InMemoryHashmapDb<K, V, INSERT_ID> extends InMemoryDbMap<K
 	@Override
 	public int size() {
 		// protect the data coherence
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock size");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock size", this);
 		mDataLock.lock();
 		try {
 			return null==mData ? 0 : mData.size();
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock size");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock size", this);
 			mDataLock.unlock();
 		}
 	}
 
 	@Override
 	public void waitForDataLoaded() {
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock waitForDataLoaded");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock waitForDataLoaded", this);
 		mDataLock.lock();
 		try {
 			getMap();
 		    super.waitForDataLoaded();
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock waitForDataLoaded");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock waitForDataLoaded", this);
 			mDataLock.unlock();
 		}
 	}
@@ -1,5 +1,6 @@
 package org.gawst.asyncdb;
 
+import java.util.Collection;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -20,6 +21,11 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 */
 	private boolean mIsLoading;
 
+	/**
+	 * Field to tell when purged elements are removed from {@link #mData}, they are already deleted from the DB
+	 */
+	private boolean mIsEvictingPurged;
+
 	/**
 	 * ReentrantLock used to protect {@link #mData} when reading/writing/iterating it
 	 */
@@ -47,7 +53,7 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	
 	@Override
 	protected void preloadInit(Object cookie) {
-		mDataLock = new ReentrantLock();
+		mDataLock = newDataLock();
 		dataLoaded = mDataLock.newCondition();
 		super.preloadInit(cookie);
 		mData = new LruCache<K, V>((Integer) cookie) {
@@ -76,10 +82,13 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 			try {
 				waited = true;
 				// we're trying to read the data but they are not loading yet
-				LogManager.logger.v(STARTUP_TAG, "waiting data loaded in "+this);
+				boostDataLoad();
+				LogManager.log(LogManager.VERBOSE, STARTUP_TAG, "waiting data loaded in {}", this);
 				long now = System.currentTimeMillis();
 				dataLoaded.await();
-				LogManager.logger.v(STARTUP_TAG, "waiting data loaded in "+this+" finished after "+(System.currentTimeMillis()-now));
+				long waitedMillis = System.currentTimeMillis()-now;
+				LogManager.log(LogManager.VERBOSE, STARTUP_TAG, "waiting data loaded in {} finished after {}", this, waitedMillis);
+				onWaitedForDataLoaded(waitedMillis);
 				//Thread.sleep(1000);
 			} catch (InterruptedException ignored) {
 			}
@@ -137,15 +146,17 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 *     an eviction or a {@link #remove}.
 	 */
 	protected void entryRemoved(boolean evicted, K key, V oldValue, V newValue) {
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock entryRemoved");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock entryRemoved", this);
 		mDataLock.lock();
 		try {
+			if (mIsEvictingPurged)
+				return;
 			if (null!=newValue)
 				scheduleUpdateOperation(new MapEntry<K,V>(key, newValue));
 			else
 				scheduleRemoveOperation(new MapEntry<K,V>(key, oldValue));
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock entryRemoved");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock entryRemoved", this);
 			mDataLock.unlock();
 		}
 	}
@@ -174,12 +185,12 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 */
 	public V get(K key) {
 		// protect the data coherence
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock get");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock get", this);
 		mDataLock.lock();
 		try {
 			return getLruCache().get(key);
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock get");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock get", this);
 			mDataLock.unlock();
 		}
 	}
@@ -192,7 +203,7 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 */
 	public V put(K key, V value) {
 		// protect the data coherence
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock put");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock put", this);
 		mDataLock.lock();
 		try {
 			V oldValue = getLruCache().put(key, value);
@@ -202,7 +213,7 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 				scheduleUpdateOperation(new MapEntry<K,V>(key, value)); // TODO: is this called twice ?
 			return oldValue;
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock put");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock put", this);
 			mDataLock.unlock();
 		}
 	}
@@ -215,12 +226,12 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 *            to evict even 0-sized elements.
 	 */
 	public void trimToSize(int maxSize) {
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock trimToSize");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock trimToSize", this);
 		mDataLock.lock();
 		try {
 			getLruCache().trimToSize(maxSize);
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock trimToSize");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock trimToSize", this);
 			mDataLock.unlock();
 		}
 	}
@@ -231,12 +242,12 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 * @return the previous value mapped by {@code key}.
 	 */
 	public final V remove(K key) {
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock remove");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock remove", this);
 		mDataLock.lock();
 		try {
 			return getLruCache().remove(key);
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock remove");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock remove", this);
 			mDataLock.unlock();
 		}
 	}
@@ -257,12 +268,32 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 * key.
 	 */
 	protected V create(K key) {
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock create");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock create", this);
 		mDataLock.lock();
 		try {
 			return null;
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock create");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock create", this);
+			mDataLock.unlock();
+		}
+	}
+
+	@Override
+	protected void removeItemsInMemory(Collection<? extends MapEntry<K, V>> items) {
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock removeItemsInMemory", this);
+		mDataLock.lock();
+		try {
+			final LruCache<K, V> cache = getLruCache();
+			mIsEvictingPurged = true;
+			try {
+				for (MapEntry<K, V> entry : items) {
+					cache.remove(entry.getKey());
+				}
+			} finally {
+				mIsEvictingPurged = false;
+			}
+		} finally {
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock removeItemsInMemory", this);
 			mDataLock.unlock();
 		}
 	}
@@ -271,12 +302,12 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 * Clear the cache, calling {@link #entryRemoved} on each removed entry.
 	 */
 	public final void evictAll() {
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock evictAll");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock evictAll", this);
 		mDataLock.lock();
 		try {
 			getLruCache().evictAll();
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock evictAll");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock evictAll", this);
 			mDataLock.unlock();
 		}
 	}
@@ -287,12 +318,12 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 * the sizes of the entries in this cache.
 	 */
 	public synchronized final int size() {
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock size");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock size", this);
 		mDataLock.lock();
 		try {
 			return getLruCache().size();
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock size");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock size", this);
 			mDataLock.unlock();
 		}
 	}
@@ -303,12 +334,12 @@ public abstract class InMemoryLruCache<K,V, INSERT_ID> extends AsynchronousDbHel
 	 * maximum sum of the sizes of the entries in this cache.
 	 */
 	public synchronized final int maxSize() {
-		if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" lock maxSize");
+		if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} lock maxSize", this);
 		mDataLock.lock();
 		try {
 			return getLruCache().maxSize();
 		} finally {
-			if (DEBUG_LOCK) LogManager.getLogger().i(TAG, this+" unlock maxSize");
+			if (DEBUG_LOCK) LogManager.log(LogManager.INFO, TAG, "{} unlock maxSize", this);
 			mDataLock.unlock();
 		}
 	}
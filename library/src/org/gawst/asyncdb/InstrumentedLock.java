@@ -0,0 +1,217 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link java.util.concurrent.locks.ReentrantLock} reporting its contention to a {@link org.gawst.asyncdb.LockMetrics}.
+ * <p>Only used when {@link AsynchronousDbHelper#setLockMetrics(LockMetrics)} is set, a regular {@code ReentrantLock} is used otherwise.</p>
+ */
+class InstrumentedLock extends ReentrantLock {
+
+	private final String name;
+	private final LockMetrics metrics;
+	/** when the lock was taken by its owner, only accessed by the owner */
+	private long acquiredAt;
+
+	InstrumentedLock(@NonNull String name, @NonNull LockMetrics metrics) {
+		this.name = name;
+		this.metrics = metrics;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	@Override
+	public void lock() {
+		if (!tryLock()) {
+			try {
+				lockContended(false);
+			} catch (InterruptedException e) {
+				// not thrown when not interruptible
+			}
+		}
+	}
+
+	@Override
+	public void lockInterruptibly() throws InterruptedException {
+		if (!tryLock()) {
+			lockContended(true);
+		}
+	}
+
+	@Override
+	public boolean tryLock() {
+		if (super.tryLock()) {
+			onAcquired();
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean tryLock(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+		if (tryLock())
+			return true;
+		final long waitStart = System.nanoTime();
+		if (!super.tryLock(timeout, unit))
+			return false;
+		metrics.onContention(this, System.nanoTime() - waitStart, null, null);
+		onAcquired();
+		return true;
+	}
+
+	/**
+	 * Wait for the lock held by another thread.
+	 * <p>What the holder is doing is only read when the wait is long enough to be reported, as reading the stack of
+	 * another thread is costly.</p>
+	 */
+	private void lockContended(boolean interruptibly) throws InterruptedException {
+		final long waitStart = System.nanoTime();
+		Thread holder = null;
+		String holderOperation = null;
+		boolean acquired = false;
+		if (metrics.isReportedWaiter()) {
+			boolean interrupted = false;
+			try {
+				acquired = super.tryLock(metrics.getReportThreshold(), TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				if (interruptibly)
+					throw e;
+				interrupted = true;
+			}
+			if (!acquired && !interrupted) {
+				// still held after the threshold
+				holder = getOwner();
+				holderOperation = getOperation(holder);
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		if (!acquired) {
+			if (interruptibly)
+				super.lockInterruptibly();
+			else
+				super.lock();
+		}
+		metrics.onContention(this, System.nanoTime() - waitStart, holder, holderOperation);
+		onAcquired();
+	}
+
+	@Override
+	public void unlock() {
+		if (isHeldByCurrentThread() && getHoldCount() == 1) {
+			metrics.onHold(System.nanoTime() - acquiredAt);
+		}
+		super.unlock();
+	}
+
+	private void onAcquired() {
+		if (getHoldCount() == 1) {
+			acquiredAt = System.nanoTime();
+		}
+	}
+
+	/**
+	 * @return The first library method found in the stack of the {@code thread}.
+	 */
+	private static String getOperation(Thread thread) {
+		if (null == thread)
+			return null;
+		for (StackTraceElement element : thread.getStackTrace()) {
+			if (element.getClassName().startsWith("org.gawst.asyncdb.") && !element.getClassName().equals(InstrumentedLock.class.getName()))
+				return element.getClassName() + '.' + element.getMethodName();
+		}
+		return null;
+	}
+
+	@Override
+	public Condition newCondition() {
+		final Condition condition = super.newCondition();
+		return new Condition() {
+			private void beforeWait() {
+				metrics.onHold(System.nanoTime() - acquiredAt);
+			}
+
+			private void afterWait(long waitStart) {
+				acquiredAt = System.nanoTime();
+				metrics.onConditionWait(InstrumentedLock.this, acquiredAt - waitStart);
+			}
+
+			@Override
+			public void await() throws InterruptedException {
+				beforeWait();
+				final long waitStart = System.nanoTime();
+				try {
+					condition.await();
+				} finally {
+					afterWait(waitStart);
+				}
+			}
+
+			@Override
+			public void awaitUninterruptibly() {
+				beforeWait();
+				final long waitStart = System.nanoTime();
+				try {
+					condition.awaitUninterruptibly();
+				} finally {
+					afterWait(waitStart);
+				}
+			}
+
+			@Override
+			public long awaitNanos(long nanosTimeout) throws InterruptedException {
+				beforeWait();
+				final long waitStart = System.nanoTime();
+				try {
+					return condition.awaitNanos(nanosTimeout);
+				} finally {
+					afterWait(waitStart);
+				}
+			}
+
+			@Override
+			public boolean await(long time, TimeUnit unit) throws InterruptedException {
+				beforeWait();
+				final long waitStart = System.nanoTime();
+				try {
+					return condition.await(time, unit);
+				} finally {
+					afterWait(waitStart);
+				}
+			}
+
+			@Override
+			public boolean awaitUntil(@NonNull Date deadline) throws InterruptedException {
+				beforeWait();
+				final long waitStart = System.nanoTime();
+				try {
+					return condition.awaitUntil(deadline);
+				} finally {
+					afterWait(waitStart);
+				}
+			}
+
+			@Override
+			public void signal() {
+				condition.signal();
+			}
+
+			@Override
+			public void signalAll() {
+				condition.signalAll();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "{InstrumentedLock " + name + ' ' + super.toString() + '}';
+	}
+}
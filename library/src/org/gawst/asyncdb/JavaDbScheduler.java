@@ -0,0 +1,159 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link org.gawst.asyncdb.DbScheduler} that only uses plain Java threads, to use the library outside of Android.
+ * <p>The operations are run in one daemon thread and the callbacks in another daemon thread.</p>
+ * <p>The helpers and the sources still use {@code ContentValues}, {@code android.util.Pair} (through
+ * {@link org.gawst.asyncdb.MapEntry}) and {@code Build}, the {@code core} module provides them on a plain JVM.</p>
+ */
+public class JavaDbScheduler extends DbScheduler {
+
+	private static final class DelayedRunnable implements Comparable<DelayedRunnable> {
+		private final Runnable runnable;
+		private final long when;
+		private final long sequence;
+
+		private DelayedRunnable(Runnable runnable, long when, long sequence) {
+			this.runnable = runnable;
+			this.when = when;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(DelayedRunnable another) {
+			if (when != another.when)
+				return when < another.when ? -1 : 1;
+			return sequence < another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+		}
+	}
+
+	private final PriorityQueue<DelayedRunnable> runnables = new PriorityQueue<DelayedRunnable>();
+	private final PriorityLanes lanes = new PriorityLanes();
+	private final LinkedList<Runnable> idleRunnables = new LinkedList<Runnable>();
+	private long sequence;
+
+	private final ThreadPoolExecutor callbackExecutor;
+	private volatile Thread callbackThread;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name The name of the internal thread.
+	 */
+	public JavaDbScheduler(@NonNull String name) {
+		Thread workerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (;;) {
+					Runnable next = takeNext();
+					try {
+						next.run();
+					} catch (RuntimeException e) {
+						LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "failed to run {}", next, e);
+					}
+				}
+			}
+		}, name);
+		workerThread.setDaemon(true);
+		workerThread.start();
+
+		final String callbackName = name + "-callbacks";
+		callbackExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(@NonNull Runnable r) {
+				Thread thread = new Thread(r, callbackName);
+				thread.setDaemon(true);
+				callbackThread = thread;
+				return thread;
+			}
+		});
+	}
+
+	private static long uptimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	private Runnable takeNext() {
+		synchronized (runnables) {
+			for (;;) {
+				final DelayedRunnable head = runnables.peek();
+				final long now = uptimeMillis();
+				if (null != head && head.when <= now)
+					return runnables.poll().runnable;
+				final Runnable next = lanes.poll();
+				if (null != next)
+					return next;
+				if (!idleRunnables.isEmpty())
+					return idleRunnables.poll();
+				try {
+					if (null == head)
+						runnables.wait();
+					else
+						runnables.wait(head.when - now);
+				} catch (InterruptedException ignored) {
+				}
+			}
+		}
+	}
+
+	@Override
+	public void post(@NonNull Runnable r) {
+		post(r, PRIORITY_NORMAL);
+	}
+
+	@Override
+	public void post(@NonNull Runnable r, int priority) {
+		synchronized (runnables) {
+			lanes.add(r, priority);
+			runnables.notify();
+		}
+	}
+
+	@Override
+	public void postDelayed(@NonNull Runnable r, long delayMillis) {
+		synchronized (runnables) {
+			runnables.add(new DelayedRunnable(r, uptimeMillis() + Math.max(0L, delayMillis), sequence++));
+			runnables.notify();
+		}
+	}
+
+	@Override
+	public void postWhenIdle(@NonNull Runnable r) {
+		synchronized (runnables) {
+			idleRunnables.add(r);
+			runnables.notify();
+		}
+	}
+
+	@Override
+	public void postCallback(@NonNull Runnable r) {
+		callbackExecutor.execute(r);
+	}
+
+	@Override
+	public void runCallback(@NonNull Runnable r) {
+		if (Thread.currentThread() == callbackThread)
+			r.run();
+		else
+			callbackExecutor.execute(r);
+	}
+
+	@Override
+	public boolean isCallbackThread() {
+		return Thread.currentThread() == callbackThread;
+	}
+
+	@Override
+	public void removeCallback(@NonNull Runnable r) {
+		callbackExecutor.remove(r);
+	}
+}
@@ -0,0 +1,17 @@
+package org.gawst.asyncdb;
+
+/**
+ * A {@link org.gawst.asyncdb.Logger} that can tell if a message would be logged, so it's not formatted when it's not needed.
+ *
+ * @see LogManager#log(int, String, String, Object)
+ */
+public interface LevelLogger extends Logger {
+	/**
+	 * Checks whether a log for the specified tag is loggable at the specified level.
+	 * @param tag Used to identify the source of a log message.
+	 * @param level The level to check, one of {@link LogManager#VERBOSE}, {@link LogManager#DEBUG}, {@link LogManager#INFO},
+	 *        {@link LogManager#WARN} or {@link LogManager#ERROR}.
+	 * @return {@code true} if the message would be logged.
+	 */
+	boolean isLoggable(String tag, int level);
+}
@@ -0,0 +1,186 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings of the loading of the data source in memory by an {@link org.gawst.asyncdb.AsynchronousDbHelper}.
+ * <p>All the times are in nanoseconds. The values are only complete once {@link #isFinished()} is {@code true}, except for
+ * the time callers spent blocked waiting for the data which is updated as long as the data are used.</p>
+ *
+ * @see AsynchronousDbHelper#setLoadProfiling(boolean)
+ * @see AsynchronousDbHelper#getLoadProfile()
+ */
+public final class LoadProfile {
+
+	private final String name;
+	private final long startedAt = System.nanoTime();
+	private final Histogram decodeTime = new Histogram();
+	private final AtomicLong blockedTime = new AtomicLong();
+	private final AtomicInteger blockedCount = new AtomicInteger();
+
+	private long openTime;
+	private long queryTime = -1;
+	private long insertTime;
+	private long totalTime;
+	private int rowCount;
+	private int itemCount;
+	private int invalidCount;
+	private volatile boolean finished;
+
+	LoadProfile(@NonNull String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return The name of the {@link org.gawst.asyncdb.AsynchronousDbHelper} that loaded the data.
+	 */
+	@NonNull
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return {@code true} once all the data are loaded in memory.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return The time to open the database, {@code 0} if it's not measured separately from the query.
+	 */
+	public long getOpenTime() {
+		return openTime;
+	}
+
+	/**
+	 * @return The time until the first row was available.
+	 */
+	public long getQueryTime() {
+		return queryTime;
+	}
+
+	/**
+	 * @return The time to turn each row into an element.
+	 */
+	@NonNull
+	public Histogram.Snapshot getDecodeTime() {
+		return decodeTime.snapshot();
+	}
+
+	/**
+	 * @return The time spent adding the elements in memory.
+	 */
+	public long getInsertTime() {
+		return insertTime;
+	}
+
+	/**
+	 * @return The whole time of the loading.
+	 */
+	public long getTotalTime() {
+		return totalTime;
+	}
+
+	/**
+	 * @return The number of rows read from the data source.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return The number of elements added in memory.
+	 */
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	/**
+	 * @return The number of invalid entries removed from the data source.
+	 */
+	public int getInvalidCount() {
+		return invalidCount;
+	}
+
+	/**
+	 * @return The total time callers were blocked waiting for the data to be loaded.
+	 */
+	public long getBlockedTime() {
+		return blockedTime.get();
+	}
+
+	/**
+	 * @return The number of times callers were blocked waiting for the data to be loaded.
+	 */
+	public int getBlockedCount() {
+		return blockedCount.get();
+	}
+
+	void setOpenTime(long openTime) {
+		this.openTime = openTime;
+	}
+
+	void onBlocked(long waitNanos) {
+		blockedCount.incrementAndGet();
+		blockedTime.addAndGet(waitNanos);
+	}
+
+	void finish() {
+		totalTime = System.nanoTime() - startedAt;
+		if (queryTime < 0)
+			queryTime = totalTime - openTime;
+		finished = true;
+	}
+
+	/**
+	 * @return A callback measuring the calls to {@code callback} while the data source is read.
+	 */
+	@NonNull
+	<E> DataSource.BatchReadingCallback<E> wrap(@NonNull final DataSource.BatchReadingCallback<E> callback) {
+		final long queryStartedAt = System.nanoTime();
+		return new DataSource.BatchReadingCallback<E>() {
+			private long lastReturn = queryStartedAt;
+
+			@Override
+			public void startLoadingAllItems(int elementCount) {
+				queryTime = System.nanoTime() - queryStartedAt;
+				rowCount = elementCount;
+				callback.startLoadingAllItems(elementCount);
+				lastReturn = System.nanoTime();
+			}
+
+			@Override
+			public void addItemInMemory(E item) {
+				final long decoded = System.nanoTime();
+				decodeTime.record(decoded - lastReturn);
+				callback.addItemInMemory(item);
+				lastReturn = System.nanoTime();
+				insertTime += lastReturn - decoded;
+				++itemCount;
+			}
+
+			@Override
+			public void removeInvalidEntry(InvalidEntry invalidEntry) {
+				++invalidCount;
+				callback.removeInvalidEntry(invalidEntry);
+				lastReturn = System.nanoTime();
+			}
+		};
+	}
+
+	private static long ms(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	@Override
+	public String toString() {
+		return "{LoadProfile:" + name + (finished ? "" : " loading") + " total=" + ms(totalTime) + "ms open=" + ms(openTime) + "ms query=" + ms(queryTime)
+				+ "ms rows=" + rowCount + " items=" + itemCount + " invalid=" + invalidCount + " decode=" + decodeTime + " insert=" + ms(insertTime)
+				+ "ms blocked=" + ms(blockedTime.get()) + "ms/" + blockedCount.get() + '}';
+	}
+}
@@ -0,0 +1,104 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measure the contention on the locks protecting the in-memory data of the thread-safe containers, like
+ * {@link org.gawst.asyncdb.InMemoryHashmapDb} or {@link org.gawst.asyncdb.InMemoryDbArrayList}.
+ * <p>When the thread notifying the listeners (the UI thread on Android) waits for a lock or for the data to be loaded longer
+ * than a threshold, a warning is logged with the thread holding the lock and what it's doing.</p>
+ * <p>All the times are in nanoseconds.</p>
+ *
+ * @see AsynchronousDbHelper#setLockMetrics(LockMetrics)
+ */
+public class LockMetrics {
+
+	private final long callbackThreadWaitThreshold;
+	private final AtomicLong contentionCount = new AtomicLong();
+	private final Histogram waitTime = new Histogram();
+	private final Histogram holdTime = new Histogram();
+	private final Histogram dataLoadedWaitTime = new Histogram();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param callbackThreadWaitThresholdMillis Log a warning when the UI/callback thread is blocked longer than this, in milliseconds.
+	 */
+	public LockMetrics(long callbackThreadWaitThresholdMillis) {
+		this.callbackThreadWaitThreshold = TimeUnit.MILLISECONDS.toNanos(callbackThreadWaitThresholdMillis);
+	}
+
+	/**
+	 * @return The number of times a thread had to wait for the lock to be released.
+	 */
+	public long getContentionCount() {
+		return contentionCount.get();
+	}
+
+	/**
+	 * @return The time threads waited to get a lock held by another thread.
+	 */
+	@NonNull
+	public Histogram.Snapshot getWaitTime() {
+		return waitTime.snapshot();
+	}
+
+	/**
+	 * @return The time the locks were held.
+	 */
+	@NonNull
+	public Histogram.Snapshot getHoldTime() {
+		return holdTime.snapshot();
+	}
+
+	/**
+	 * @return The time threads waited for the data to be loaded in memory.
+	 */
+	@NonNull
+	public Histogram.Snapshot getDataLoadedWaitTime() {
+		return dataLoadedWaitTime.snapshot();
+	}
+
+	/**
+	 * @return {@code true} if a long wait of the current thread would be reported with what the holder of the lock is doing.
+	 */
+	boolean isReportedWaiter() {
+		return DbScheduler.getDefault().isCallbackThread() && LogManager.isLoggable(AsynchronousDbHelper.TAG, LogManager.WARN);
+	}
+
+	/**
+	 * @return The wait time after which the waits of the UI/callback thread are reported, in nanoseconds.
+	 */
+	long getReportThreshold() {
+		return callbackThreadWaitThreshold;
+	}
+
+	void onContention(@NonNull InstrumentedLock lock, long waitNanos, @Nullable Thread holder, @Nullable String holderOperation) {
+		contentionCount.incrementAndGet();
+		waitTime.record(waitNanos);
+		if (waitNanos >= callbackThreadWaitThreshold && isReportedWaiter()) {
+			LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "{} waited {}ms for the lock of {} held by {}", Thread.currentThread().getName(), TimeUnit.NANOSECONDS.toMillis(waitNanos), lock.getName(),
+					null == holder ? null : (holder.getName() + " in " + holderOperation));
+		}
+	}
+
+	void onHold(long holdNanos) {
+		holdTime.record(holdNanos);
+	}
+
+	void onConditionWait(@NonNull InstrumentedLock lock, long waitNanos) {
+		dataLoadedWaitTime.record(waitNanos);
+		if (waitNanos >= callbackThreadWaitThreshold && DbScheduler.getDefault().isCallbackThread()) {
+			LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "{} waited {}ms for the data of {} to be loaded", Thread.currentThread().getName(), TimeUnit.NANOSECONDS.toMillis(waitNanos), lock.getName());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{LockMetrics contentions=" + contentionCount.get() + " wait=" + waitTime + " hold=" + holdTime + " dataLoaded=" + dataLoadedWaitTime + '}';
+	}
+}
@@ -2,13 +2,22 @@ package org.gawst.asyncdb;
 
 import android.util.Log;
 
+import java.util.logging.Level;
+
 /**
  * class that holds the {@link Logger} for this library, defaults to {@link LoggerDefault} to send logs to android {@link Log}
+ * or {@link LoggerJava} outside of Android
  */
 public final class LogManager {
 
-	static Logger logger = new LoggerDefault();
-	
+	public static final int VERBOSE = 2;
+	public static final int DEBUG = 3;
+	public static final int INFO = 4;
+	public static final int WARN = 5;
+	public static final int ERROR = 6;
+
+	static Logger logger = DbScheduler.isAndroid() ? new LoggerDefault() : new LoggerJava();
+
 	public static void setLogger(Logger newLogger) {
 		logger = newLogger;
 	}
@@ -17,10 +26,130 @@ public final class LogManager {
 		return logger;
 	}
 
+	/**
+	 * @param tag   Used to identify the source of a log message.
+	 * @param level One of {@link #VERBOSE}, {@link #DEBUG}, {@link #INFO}, {@link #WARN} or {@link #ERROR}.
+	 * @return {@code true} if the message would be logged, always {@code true} if the {@link Logger} is not a {@link LevelLogger}.
+	 */
+	public static boolean isLoggable(String tag, int level) {
+		final Logger logger = LogManager.logger;
+		return !(logger instanceof LevelLogger) || ((LevelLogger) logger).isLoggable(tag, level);
+	}
+
+	/**
+	 * Log a message only formatted if the level is loggable. Each {@code {}} in the {@code format} is replaced by the
+	 * next argument. If the last argument is a {@code Throwable} not used in the {@code format}, it's logged as the exception.
+	 *
+	 * @param level  One of {@link #VERBOSE}, {@link #DEBUG}, {@link #INFO}, {@link #WARN} or {@link #ERROR}.
+	 * @param tag    Used to identify the source of a log message.
+	 * @param format The message with {@code {}} where the arguments should go.
+	 */
+	public static void log(int level, String tag, String format, Object arg1) {
+		if (isLoggable(tag, level))
+			print(level, tag, format, 1, arg1, null, null, null);
+	}
+
+	/**
+	 * @see #log(int, String, String, Object)
+	 */
+	public static void log(int level, String tag, String format, Object arg1, Object arg2) {
+		if (isLoggable(tag, level))
+			print(level, tag, format, 2, arg1, arg2, null, null);
+	}
+
+	/**
+	 * @see #log(int, String, String, Object)
+	 */
+	public static void log(int level, String tag, String format, Object arg1, Object arg2, Object arg3) {
+		if (isLoggable(tag, level))
+			print(level, tag, format, 3, arg1, arg2, arg3, null);
+	}
+
+	/**
+	 * @see #log(int, String, String, Object)
+	 */
+	public static void log(int level, String tag, String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+		if (isLoggable(tag, level))
+			print(level, tag, format, 4, arg1, arg2, arg3, arg4);
+	}
+
+	private static Object getArg(int index, Object arg1, Object arg2, Object arg3, Object arg4) {
+		switch (index) {
+			case 0: return arg1;
+			case 1: return arg2;
+			case 2: return arg3;
+			default: return arg4;
+		}
+	}
+
+	private static void print(int level, String tag, String format, int argCount, Object arg1, Object arg2, Object arg3, Object arg4) {
+		final StringBuilder msg = new StringBuilder(format.length() + 64);
+		int used = 0;
+		int start = 0;
+		int placeholder;
+		while (used < argCount && (placeholder = format.indexOf("{}", start)) >= 0) {
+			msg.append(format, start, placeholder);
+			msg.append(getArg(used, arg1, arg2, arg3, arg4));
+			++used;
+			start = placeholder + 2;
+		}
+		msg.append(format, start, format.length());
+
+		Throwable tr = null;
+		if (used < argCount) {
+			final Object last = getArg(argCount - 1, arg1, arg2, arg3, arg4);
+			if (last instanceof Throwable)
+				tr = (Throwable) last;
+		}
+
+		final Logger logger = LogManager.logger;
+		final String message = msg.toString();
+		switch (level) {
+			case VERBOSE:
+				if (null == tr) logger.v(tag, message); else logger.v(tag, message, tr);
+				break;
+			case DEBUG:
+				if (null == tr) logger.d(tag, message); else logger.d(tag, message, tr);
+				break;
+			case INFO:
+				if (null == tr) logger.i(tag, message); else logger.i(tag, message, tr);
+				break;
+			case WARN:
+				if (null == tr) logger.w(tag, message); else logger.w(tag, message, tr);
+				break;
+			default:
+				if (null == tr) logger.e(tag, message); else logger.e(tag, message, tr);
+				break;
+		}
+	}
+
 	/**
 	 * Helper class to redirect {@link LogManager#logger} to {@link Log}
 	 */
-	public static class LoggerDefault implements Logger {
+	public static class LoggerDefault implements LevelLogger {
+
+		private final int minLevel;
+
+		/**
+		 * Constructor logging all the messages.
+		 */
+		public LoggerDefault() {
+			this(VERBOSE);
+		}
+
+		/**
+		 * Constructor.
+		 *
+		 * @param minLevel The lowest level logged, one of {@link #VERBOSE}, {@link #DEBUG}, {@link #INFO}, {@link #WARN} or {@link #ERROR}.
+		 */
+		public LoggerDefault(int minLevel) {
+			this.minLevel = minLevel;
+		}
+
+		@Override
+		public boolean isLoggable(String tag, int level) {
+			return level >= minLevel;
+		}
 
 		@Override
 		public int v(String tag, String msg) {
@@ -73,4 +202,81 @@ public final class LogManager {
 		}
 
 	}
+
+	/**
+	 * Helper class to redirect {@link LogManager#logger} to {@link java.util.logging.Logger}, using the tag as the logger name
+	 */
+	public static class LoggerJava implements LevelLogger {
+
+		private static Level toLevel(int level) {
+			switch (level) {
+				case VERBOSE: return Level.FINEST;
+				case DEBUG: return Level.FINE;
+				case INFO: return Level.INFO;
+				case WARN: return Level.WARNING;
+				default: return Level.SEVERE;
+			}
+		}
+
+		@Override
+		public boolean isLoggable(String tag, int level) {
+			return java.util.logging.Logger.getLogger(tag).isLoggable(toLevel(level));
+		}
+
+		private static int log(Level level, String tag, String msg, Throwable tr) {
+			java.util.logging.Logger.getLogger(tag).log(level, msg, tr);
+			return 0;
+		}
+
+		@Override
+		public int v(String tag, String msg) {
+			return log(Level.FINEST, tag, msg, null);
+		}
+
+		@Override
+		public int v(String tag, String msg, Throwable tr) {
+			return log(Level.FINEST, tag, msg, tr);
+		}
+
+		@Override
+		public int d(String tag, String msg) {
+			return log(Level.FINE, tag, msg, null);
+		}
+
+		@Override
+		public int d(String tag, String msg, Throwable tr) {
+			return log(Level.FINE, tag, msg, tr);
+		}
+
+		@Override
+		public int i(String tag, String msg) {
+			return log(Level.INFO, tag, msg, null);
+		}
+
+		@Override
+		public int i(String tag, String msg, Throwable tr) {
+			return log(Level.INFO, tag, msg, tr);
+		}
+
+		@Override
+		public int w(String tag, String msg) {
+			return log(Level.WARNING, tag, msg, null);
+		}
+
+		@Override
+		public int w(String tag, String msg, Throwable tr) {
+			return log(Level.WARNING, tag, msg, tr);
+		}
+
+		@Override
+		public int e(String tag, String msg) {
+			return log(Level.SEVERE, tag, msg, null);
+		}
+
+		@Override
+		public int e(String tag, String msg, Throwable tr) {
+			return log(Level.SEVERE, tag, msg, tr);
+		}
+
+	}
 }
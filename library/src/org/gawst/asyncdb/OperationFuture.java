@@ -0,0 +1,59 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The completion of an operation scheduled on an {@link org.gawst.asyncdb.AsynchronousDbHelper}.
+ * <p>The errors are still reported to the {@link org.gawst.asyncdb.AsynchronousDbErrorHandler}.</p>
+ *
+ * @see AsynchronousDbHelper#flush()
+ */
+public interface OperationFuture {
+
+	/**
+	 * Callback called when the operation is done.
+	 */
+	interface Callback {
+		/**
+		 * Called in the thread used to notify the listeners, the UI thread on Android.
+		 *
+		 * @param future The operation that is done.
+		 */
+		void onOperationDone(@NonNull OperationFuture future);
+	}
+
+	/**
+	 * @return {@code true} if the operation has been run or dropped.
+	 */
+	boolean isDone();
+
+	/**
+	 * @return The error that made the operation fail, {@code null} if it succeeded or is not done yet.
+	 * A {@link java.util.concurrent.RejectedExecutionException} if it was dropped by the {@link org.gawst.asyncdb.BackpressurePolicy}.
+	 */
+	@Nullable
+	Throwable getFailure();
+
+	/**
+	 * Wait until the operation is done.
+	 *
+	 * @throws IllegalStateException if called from the internal thread that runs the operation.
+	 */
+	void await() throws InterruptedException;
+
+	/**
+	 * Wait until the operation is done or the {@code timeout} expired.
+	 *
+	 * @return {@code false} if the operation is not done yet.
+	 * @throws IllegalStateException if called from the internal thread that runs the operation.
+	 */
+	boolean await(long timeout, @NonNull TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Call the {@code callback} when the operation is done, soon after this call if it's already done.
+	 */
+	void addCallback(@NonNull Callback callback);
+}
@@ -0,0 +1,42 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.LinkedList;
+
+/**
+ * The {@code Runnable} waiting to be run in the internal thread, one FIFO queue for each
+ * {@link org.gawst.asyncdb.DbScheduler#post(Runnable, int) priority}.
+ * <p>Not thread-safe, the {@link org.gawst.asyncdb.DbScheduler} must synchronize the calls.</p>
+ */
+final class PriorityLanes {
+
+	private final LinkedList<Runnable>[] lanes;
+
+	@SuppressWarnings("unchecked")
+	PriorityLanes() {
+		lanes = new LinkedList[DbScheduler.PRIORITY_URGENT + 1];
+		for (int i = 0; i < lanes.length; ++i) {
+			lanes[i] = new LinkedList<Runnable>();
+		}
+	}
+
+	void add(@NonNull Runnable r, int priority) {
+		if (priority < DbScheduler.PRIORITY_BACKGROUND || priority > DbScheduler.PRIORITY_URGENT)
+			throw new IllegalArgumentException("invalid priority " + priority);
+		lanes[priority].add(r);
+	}
+
+	/**
+	 * @return The oldest {@code Runnable} with the highest priority, {@code null} if there are none.
+	 */
+	@Nullable
+	Runnable poll() {
+		for (int i = lanes.length - 1; i >= 0; --i) {
+			if (!lanes[i].isEmpty())
+				return lanes[i].poll();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,250 @@
+package org.gawst.asyncdb;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of query results shared by all the {@link org.gawst.asyncdb.AsyncDatabaseHandler} working on the same
+ * {@link org.gawst.asyncdb.AsynchronousDbHelper}.
+ * <p>Results are kept as {@link org.gawst.asyncdb.CursorSnapshot} so the same query issued again doesn't hit the database.
+ * The whole cache is invalidated as soon as a write is scheduled or done on the {@link org.gawst.asyncdb.AsynchronousDbHelper}.</p>
+ * <p>Identical queries issued while the same query is already pending are merged with it, the query is run once and each caller
+ * gets its own {@code Cursor} over the shared result.</p>
+ * <p>Writes done in a {@link org.gawst.asyncdb.AsynchronousDbOperation} cannot be detected, call
+ * {@link AsynchronousDbHelper#invalidateQueryResultCache()} when doing so.</p>
+ *
+ * @see AsynchronousDbHelper#setQueryResultCache(QueryResultCache)
+ */
+public class QueryResultCache {
+
+	/**
+	 * Identify a query by the data source queried and all the fields passed to
+	 * {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource#query(String[], String, String[], String, String, String, String) query()}.
+	 */
+	public static final class Key {
+		private final Object source;
+		private final String[] projection;
+		private final String selection;
+		private final String[] selectionArgs;
+		private final String orderBy;
+		private final String limit;
+		private final int hashCode;
+
+		/**
+		 * @param source The data source queried, compared by identity so the same cache can be shared between sources.
+		 */
+		public Key(@NonNull Object source, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String orderBy, @Nullable String limit) {
+			this.source = source;
+			this.projection = projection == null ? null : projection.clone();
+			this.selection = selection;
+			this.selectionArgs = selectionArgs == null ? null : selectionArgs.clone();
+			this.orderBy = orderBy;
+			this.limit = limit;
+
+			int result = System.identityHashCode(source);
+			result = 31 * result + Arrays.hashCode(this.projection);
+			result = 31 * result + (selection == null ? 0 : selection.hashCode());
+			result = 31 * result + Arrays.hashCode(this.selectionArgs);
+			result = 31 * result + (orderBy == null ? 0 : orderBy.hashCode());
+			result = 31 * result + (limit == null ? 0 : limit.hashCode());
+			this.hashCode = result;
+		}
+
+		private static boolean same(Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key key = (Key) o;
+			return hashCode == key.hashCode
+					&& source == key.source
+					&& Arrays.equals(projection, key.projection)
+					&& same(selection, key.selection)
+					&& Arrays.equals(selectionArgs, key.selectionArgs)
+					&& same(orderBy, key.orderBy)
+					&& same(limit, key.limit);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public String toString() {
+			return "{Query " + source + ' ' + Arrays.toString(projection) + " where " + selection + ' ' + Arrays.toString(selectionArgs) + " order " + orderBy + " limit " + limit + '}';
+		}
+	}
+
+	/**
+	 * Callback for a query merged with an identical query already pending.
+	 */
+	public interface MergedQueryCallback {
+		/**
+		 * Called when the pending query the query was merged with is done.
+		 * <p>Called in the worker thread of the {@link org.gawst.asyncdb.AsynchronousDbHelper}.</p>
+		 *
+		 * @param snapshot The result of the query, {@code null} if it could not be shared and the query needs to be run again.
+		 */
+		void onPendingQueryDone(@Nullable CursorSnapshot snapshot);
+	}
+
+	/**
+	 * A query that is scheduled but not run yet, other identical queries are merged with it.
+	 *
+	 * @see #startQuery(Key, long, MergedQueryCallback)
+	 * @see #finishQuery(PendingQuery, CursorSnapshot)
+	 */
+	public static final class PendingQuery {
+		private final Key key;
+		private final long generation;
+		private final List<MergedQueryCallback> mergedQueries = new ArrayList<MergedQueryCallback>(2);
+
+		private PendingQuery(Key key, long generation) {
+			this.key = key;
+			this.generation = generation;
+		}
+	}
+
+	private final int maxRowsPerEntry;
+	private final LinkedHashMap<Key, CursorSnapshot> entries;
+	private final HashMap<Key, PendingQuery> pendingQueries = new HashMap<Key, PendingQuery>();
+	private long generation;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxEntries      Maximum number of queries results to keep, the least recently used are dropped first.
+	 * @param maxRowsPerEntry Maximum number of rows a query result can have to be kept in memory.
+	 */
+	public QueryResultCache(final int maxEntries, int maxRowsPerEntry) {
+		if (maxEntries <= 0) throw new IllegalArgumentException("the max entries in QueryResultCache must be positive");
+		if (maxRowsPerEntry < 0) throw new IllegalArgumentException("the max rows in QueryResultCache can't be negative");
+		this.maxRowsPerEntry = maxRowsPerEntry;
+		this.entries = new LinkedHashMap<Key, CursorSnapshot>(maxEntries, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CursorSnapshot> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @return The current generation of the cache, to pass to {@link #put(Key, android.database.Cursor, long)}
+	 * when the query is scheduled.
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @param key The query to look for.
+	 * @return The cached result for this query or {@code null}.
+	 */
+	@Nullable
+	public synchronized CursorSnapshot get(@NonNull Key key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Store the result of a query in the cache.
+	 * <p>The {@code cursor} is closed if it was turned into a {@link org.gawst.asyncdb.CursorSnapshot}, otherwise it's left
+	 * untouched so it can be used directly.</p>
+	 *
+	 * @param key        The query that produced the {@code cursor}.
+	 * @param cursor     The result of the query.
+	 * @param generation The value of {@link #getGeneration()} when the query was scheduled. If the cache was invalidated since
+	 *                   then the result is not kept in the cache.
+	 * @return The snapshot of the {@code cursor} or {@code null} if it has too many rows to be kept in memory.
+	 */
+	@Nullable
+	public CursorSnapshot put(@NonNull Key key, @NonNull Cursor cursor, long generation) {
+		if (cursor.getCount() > maxRowsPerEntry)
+			return null;
+
+		CursorSnapshot snapshot;
+		try {
+			snapshot = CursorSnapshot.copyOf(cursor);
+		} finally {
+			cursor.close();
+		}
+
+		synchronized (this) {
+			if (this.generation == generation)
+				entries.put(key, snapshot);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Register a query about to be scheduled. If an identical query is already pending and no write happened since then,
+	 * the query is merged with it.
+	 *
+	 * @param key        The query about to be scheduled.
+	 * @param generation The value of {@link #getGeneration()} when the query is scheduled.
+	 * @param callback   The callback to use if the query is merged with a pending query.
+	 * @return {@code null} if the query was merged with a pending query, otherwise the query needs to be scheduled
+	 * and {@link #finishQuery(PendingQuery, CursorSnapshot)} called when it's done.
+	 */
+	@Nullable
+	public synchronized PendingQuery startQuery(@NonNull Key key, long generation, @NonNull MergedQueryCallback callback) {
+		PendingQuery pendingQuery = pendingQueries.get(key);
+		if (null != pendingQuery && pendingQuery.generation == generation && generation == this.generation) {
+			pendingQuery.mergedQueries.add(callback);
+			return null;
+		}
+
+		pendingQuery = new PendingQuery(key, generation);
+		pendingQueries.put(key, pendingQuery);
+		return pendingQuery;
+	}
+
+	/**
+	 * Tell all the queries merged with the {@code pendingQuery} that the result is available.
+	 * <p>Must be called in the worker thread of the {@link org.gawst.asyncdb.AsynchronousDbHelper}.</p>
+	 *
+	 * @param pendingQuery The value returned by {@link #startQuery(Key, long, MergedQueryCallback)}.
+	 * @param snapshot     The result of the query or {@code null} if it can't be shared.
+	 */
+	public void finishQuery(@NonNull PendingQuery pendingQuery, @Nullable CursorSnapshot snapshot) {
+		final MergedQueryCallback[] mergedQueries;
+		synchronized (this) {
+			if (pendingQueries.get(pendingQuery.key) == pendingQuery)
+				pendingQueries.remove(pendingQuery.key);
+			mergedQueries = pendingQuery.mergedQueries.toArray(new MergedQueryCallback[pendingQuery.mergedQueries.size()]);
+			pendingQuery.mergedQueries.clear();
+		}
+
+		for (MergedQueryCallback mergedQuery : mergedQueries) {
+			try {
+				mergedQuery.onPendingQueryDone(snapshot);
+			} catch (Exception e) {
+				LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "failed to deliver merged query {}", pendingQuery.key, e);
+			}
+		}
+	}
+
+	/**
+	 * Drop all the cached results.
+	 */
+	public synchronized void invalidate() {
+		++generation;
+		entries.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "{QueryResultCache entries=" + entries.size() + " pending=" + pendingQueries.size() + " generation=" + generation + '}';
+	}
+}
@@ -0,0 +1,148 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measure the operations of an {@link org.gawst.asyncdb.AsynchronousDbHelper} in the internal thread: the number of pending
+ * operations, the time they waited in the queue and the time they took to run, for each {@link Operation} type.
+ * <p>All the times are in nanoseconds.</p>
+ *
+ * @see AsynchronousDbHelper#setQueueMetrics(QueueMetrics)
+ */
+public class QueueMetrics {
+
+	/**
+	 * The type of operations measured.
+	 */
+	public enum Operation {
+		LOAD,
+		STORE,
+		UPDATE,
+		REMOVE,
+		REPLACE,
+		SWAP,
+		CLEAR,
+		CUSTOM,
+		IDLE,
+	}
+
+	/**
+	 * Receive the measure of each operation run, for example to forward them to a monitoring system.
+	 */
+	public interface Sink {
+		/**
+		 * Called in the internal thread after each operation.
+		 *
+		 * @param metrics      The metrics of the {@link org.gawst.asyncdb.AsynchronousDbHelper} that ran the operation.
+		 * @param operation    The type of operation run.
+		 * @param waitNanos    The time between the moment the operation was scheduled and the moment it started.
+		 * @param serviceNanos The time the operation took to run.
+		 */
+		void onOperationDone(@NonNull QueueMetrics metrics, @NonNull Operation operation, long waitNanos, long serviceNanos);
+	}
+
+	private final String name;
+	private final AtomicInteger pending = new AtomicInteger();
+	private final Histogram queueDepth = new Histogram();
+	private final Histogram[] waitTimes = new Histogram[Operation.values().length];
+	private final Histogram[] serviceTimes = new Histogram[Operation.values().length];
+	private volatile Sink sink;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name Name used to identify the {@link org.gawst.asyncdb.AsynchronousDbHelper} in the reports.
+	 */
+	public QueueMetrics(@NonNull String name) {
+		this.name = name;
+		for (int i = 0; i < waitTimes.length; ++i) {
+			waitTimes[i] = new Histogram();
+			serviceTimes[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * @return Name used to identify the {@link org.gawst.asyncdb.AsynchronousDbHelper} in the reports.
+	 */
+	@NonNull
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param sink The {@link org.gawst.asyncdb.QueueMetrics.Sink} to receive each measure, {@code null} for none.
+	 */
+	public void setSink(@Nullable Sink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * @return The number of operations scheduled and not finished yet.
+	 */
+	public int getPendingCount() {
+		return pending.get();
+	}
+
+	/**
+	 * @return The number of pending operations, measured each time an operation is scheduled.
+	 */
+	@NonNull
+	public Histogram.Snapshot getQueueDepth() {
+		return queueDepth.snapshot();
+	}
+
+	/**
+	 * @return The time the operations of this type waited between the moment they were scheduled and the moment they started.
+	 */
+	@NonNull
+	public Histogram.Snapshot getWaitTime(@NonNull Operation operation) {
+		return waitTimes[operation.ordinal()].snapshot();
+	}
+
+	/**
+	 * @return The time the operations of this type took to run.
+	 */
+	@NonNull
+	public Histogram.Snapshot getServiceTime(@NonNull Operation operation) {
+		return serviceTimes[operation.ordinal()].snapshot();
+	}
+
+	void onScheduled() {
+		queueDepth.record(pending.incrementAndGet());
+	}
+
+	void onDropped() {
+		pending.decrementAndGet();
+	}
+
+	void onDone(@NonNull Operation operation, long waitNanos, long serviceNanos) {
+		pending.decrementAndGet();
+		waitTimes[operation.ordinal()].record(waitNanos);
+		serviceTimes[operation.ordinal()].record(serviceNanos);
+		final Sink sink = this.sink;
+		if (null != sink) {
+			try {
+				sink.onOperationDone(this, operation, waitNanos, serviceNanos);
+			} catch (RuntimeException e) {
+				LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "failed to report metrics of {}", name, e);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append("{QueueMetrics:").append(name).append(" pending=").append(pending.get()).append(" depth=").append(queueDepth);
+		for (Operation operation : Operation.values()) {
+			Histogram.Snapshot serviceTime = getServiceTime(operation);
+			if (serviceTime.getCount() != 0) {
+				sb.append(' ').append(operation).append(" wait=").append(getWaitTime(operation)).append(" run=").append(serviceTime);
+			}
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+}
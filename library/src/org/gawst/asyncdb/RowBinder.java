@@ -0,0 +1,19 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Write the fields of {@link E} elements in a {@link org.gawst.asyncdb.RowWriter}, the alternative to
+ * {@link AsynchronousDbHelper#getValuesFromData(Object, boolean)} that doesn't create {@link android.content.ContentValues}.
+ *
+ * @param <E> Type of the elements to write.
+ * @see AsynchronousDbHelper#getRowBinder()
+ */
+public interface RowBinder<E> {
+	/**
+	 * Write the fields of the {@code item} in the {@code writer}.
+	 *
+	 * @param update {@code true} if the fields are for an update, not an insert, you can omit keys there.
+	 */
+	void bind(@NonNull E item, boolean update, @NonNull RowWriter writer);
+}
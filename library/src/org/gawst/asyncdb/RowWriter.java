@@ -0,0 +1,23 @@
+package org.gawst.asyncdb;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Write the fields of an element directly in a {@link org.gawst.asyncdb.source.RowBinderDataSource}, without creating
+ * {@link android.content.ContentValues}.
+ * <p>A boolean is written as a {@code long} with {@code 0} or {@code 1}, like SQLite does.</p>
+ *
+ * @see org.gawst.asyncdb.RowBinder
+ */
+public interface RowWriter {
+	void putNull(@NonNull String column);
+
+	void put(@NonNull String column, long value);
+
+	void put(@NonNull String column, double value);
+
+	void put(@NonNull String column, @Nullable String value);
+
+	void put(@NonNull String column, @Nullable byte[] value);
+}
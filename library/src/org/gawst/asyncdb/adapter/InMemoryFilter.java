@@ -0,0 +1,33 @@
+package org.gawst.asyncdb.adapter;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Interface to filter the whole data stored in an {@link org.gawst.asyncdb.AsynchronousDbHelper}
+ *
+ * @see org.gawst.asyncdb.adapter.InMemoryFilteredAdapter.InMemoryFilter
+ */
+public interface InMemoryFilter<E> {
+
+	/**
+	 * Describes a data source that can produce a {@link java.util.List} object from its data.
+	 *
+	 * @param <E> Type of elements in the generated {@link java.util.List}.
+	 */
+	public interface InMemoryFilterable<E> {
+		/**
+		 * @return A read-only {@link java.util.List} version of the source data.
+		 */
+		List<E> getListCopy();
+	}
+
+	/**
+	 * Filter data coming from a {@link org.gawst.asyncdb.adapter.InMemoryFilter.InMemoryFilterable InMemoryFilterable} source
+	 * @param data List of elements to filter.
+	 * @return Filtered List of elements.
+	 */
+	@NonNull
+	List<E> getFilteredData(List<E> data);
+}
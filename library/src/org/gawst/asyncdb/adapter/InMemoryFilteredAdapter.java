@@ -100,27 +100,9 @@ public class InMemoryFilteredAdapter<E> extends BaseAdapter {
 
 	/**
 	 * Interface to filter the whole data stored in an {@link org.gawst.asyncdb.AsynchronousDbHelper}
+	 * <p>Its {@code InMemoryFilterable} is declared in {@link org.gawst.asyncdb.adapter.InMemoryFilter}, outside of this
+	 * Android adapter, so the containers don't depend on it.</p>
 	 */
-	public static interface InMemoryFilter<E> {
-
-		/**
-		 * Describes a data source that can produce a {@link java.util.List} object from its data.
-		 *
-		 * @param <E> Type of elements in the generated {@link java.util.List}.
-		 */
-		public interface InMemoryFilterable<E> {
-			/**
-			 * @return A read-only {@link java.util.List} version of the source data.
-			 */
-			List<E> getListCopy();
-		}
-
-		/**
-		 * Filter data coming from a {@link org.gawst.asyncdb.adapter.InMemoryFilteredAdapter.InMemoryFilter.InMemoryFilterable InMemoryFilterable} source
-		 * @param data List of elements to filter.
-		 * @return Filtered List of elements.
-		 */
-		@NonNull
-		List<E> getFilteredData(List<E> data);
+	public static interface InMemoryFilter<E> extends org.gawst.asyncdb.adapter.InMemoryFilter<E> {
 	}
 }
@@ -0,0 +1,25 @@
+package org.gawst.asyncdb.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark a non-private field of a {@link Table} class stored in a column.
+ * <p>Supported types are the primitive types (except {@code char}) and their boxed types, {@code String} and {@code byte[]}.</p>
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface Column {
+	/**
+	 * @return Name of the SQL column, the name of the field by default.
+	 */
+	String value() default "";
+
+	/**
+	 * @return {@code true} if the column is used to select the element to update or delete. Key columns are not written on updates.
+	 * A {@code byte[]} field can't be a key and the value of a key field must not be {@code null}.
+	 */
+	boolean key() default false;
+}
@@ -0,0 +1,20 @@
+package org.gawst.asyncdb.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark a class stored in a SQLite table, the {@code processor} module generates its element handler, binder and data source
+ * in a {@code <ClassName>_Db} class of the same package.
+ * <p>The class needs a non-private constructor without arguments, its stored fields are marked with {@link Column}.</p>
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Table {
+	/**
+	 * @return Name of the SQL table.
+	 */
+	String value();
+}
@@ -0,0 +1,24 @@
+package org.gawst.asyncdb.purge;
+
+import org.gawst.asyncdb.AsynchronousDbHelper;
+
+/**
+ * Interface for database purge handlers that keep track of the number of elements in the database.
+ */
+public interface CountingPurgeHandler extends PurgeHandler {
+	/**
+	 * Called anytime element(s) are added to the database, instead of {@link #onElementsAdded(AsynchronousDbHelper)}.
+	 * <p>Called in the database worker thread.</p>
+	 * @param db The {@link org.gawst.asyncdb.AsynchronousDbHelper} to purge.
+	 * @param count The number of elements added.
+	 */
+	void onElementsAdded(AsynchronousDbHelper<?, ?> db, int count);
+
+	/**
+	 * Called anytime element(s) are removed from the database by the {@link org.gawst.asyncdb.AsynchronousDbHelper}.
+	 * <p>Called in the database worker thread.</p>
+	 * @param db The {@link org.gawst.asyncdb.AsynchronousDbHelper} to purge.
+	 * @param count The number of elements removed.
+	 */
+	void onElementsRemoved(AsynchronousDbHelper<?, ?> db, int count);
+}
@@ -1,5 +1,6 @@
 package org.gawst.asyncdb.purge;
 
+import org.gawst.asyncdb.AsynchronousDbHelper;
 import org.gawst.asyncdb.source.typed.TypedDatabaseSource;
 
 import android.database.Cursor;
@@ -11,6 +12,8 @@ import android.support.annotation.Nullable;
  * @author Created by robUx4 on 07/01/2015.
  */
 public class DatabasePurgerMaxDate extends DatabaseSourcePurgerMax<Long> {
+	private long maxAge;
+
 	/**
 	 * Constructor for the database purger. It will purge the database after each insertion.
 	 *
@@ -34,6 +37,26 @@ public class DatabasePurgerMaxDate extends DatabaseSourcePurgerMax<Long> {
 		super(maxItems, checkInsertFrequency, dateField, databaseSource);
 	}
 
+	/**
+	 * Also delete the elements older than {@code maxAgeMillis} on each purge, whatever the number of items in the database.
+	 * <p>Use {@link #startPeriodicPurge(org.gawst.asyncdb.AsynchronousDbHelper, long)} to purge old elements even when nothing is inserted.</p>
+	 *
+	 * @param maxAgeMillis The maximum age of the elements to keep in milliseconds, compared to the date field, {@code 0} to
+	 *                     only keep a maximum number of items.
+	 */
+	public void setMaxAge(long maxAgeMillis) {
+		if (maxAgeMillis < 0) throw new IllegalArgumentException("the max age in AsyncHandlerPurge can't be negative");
+		this.maxAge = maxAgeMillis;
+	}
+
+	@Override
+	protected int purgeExpired(AsynchronousDbHelper<?, ?> db) {
+		if (maxAge <= 0)
+			return 0;
+		Long oldestDate = System.currentTimeMillis() - maxAge;
+		return deleteRows(db, getDeleteClause(oldestDate), getDeleteArgs(oldestDate));
+	}
+
 	@Nullable
 	@Override
 	protected final Long getLastFilteredElement(Cursor cursor) {
@@ -0,0 +1,219 @@
+package org.gawst.asyncdb.purge;
+
+import org.gawst.asyncdb.AsynchronousDbHelper;
+import org.gawst.asyncdb.AsynchronousDbOperation;
+import org.gawst.asyncdb.DbScheduler;
+import org.gawst.asyncdb.LogManager;
+import org.gawst.asyncdb.source.typed.SqliteTableSource;
+import org.gawst.asyncdb.source.typed.TypedDatabaseElementHandler;
+import org.gawst.asyncdb.source.typed.TypedDatabaseSource;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+/**
+ * Helper class to purge a database so the size of its data stays under a maximum number of bytes. The oldest elements are
+ * deleted first.
+ * <p>The size of each element is read with an SQL expression, like the length of a BLOB field or a field holding the size
+ * of the data stored elsewhere.</p>
+ */
+public class DatabasePurgerMaxSize implements PurgeHandler {
+	private final TypedDatabaseSource<?, ?, ? extends Cursor> dataSource;
+	private final long maxBytes;
+	private final String sizeExpression;
+	private final String orderField;
+	private final int checkInsertFrequency;
+	private Integer nextCheck;
+	private boolean purgeWhenIdle;
+	private boolean incrementalVacuum;
+	private TypedDatabaseElementHandler<Object, Cursor> evictElementHandler;
+
+	/**
+	 * Constructor for the database purger. It will check the size of the database after each insertion.
+	 *
+	 * @param maxBytes       Maximum number of bytes to keep in the database.
+	 * @param sizeExpression SQL expression giving the size of an element in bytes, like {@code length(data)}.
+	 * @param orderField     Name of the sorted field in the database to determine 'old' elements, like a date.
+	 * @param databaseSource Database source (Sqlite, ContentProvider)
+	 */
+	public DatabasePurgerMaxSize(long maxBytes, String sizeExpression, String orderField, TypedDatabaseSource<?, ?, ?> databaseSource) {
+		this(maxBytes, 1, sizeExpression, orderField, databaseSource);
+	}
+
+	/**
+	 * Constructor for the database purger.
+	 *
+	 * @param maxBytes             Maximum number of bytes to keep in the database.
+	 * @param checkInsertFrequency The number of insertion before a purge is done. A purge is done after the first insertion.
+	 * @param sizeExpression       SQL expression giving the size of an element in bytes, like {@code length(data)}.
+	 * @param orderField           Name of the sorted field in the database to determine 'old' elements, like a date.
+	 * @param databaseSource       Database source (Sqlite, ContentProvider)
+	 */
+	public DatabasePurgerMaxSize(long maxBytes, int checkInsertFrequency, String sizeExpression, String orderField, TypedDatabaseSource<?, ?, ?> databaseSource) {
+		if (maxBytes <= 0) throw new IllegalArgumentException("the max bytes in AsyncHandlerPurge must be positive");
+		if (checkInsertFrequency <= 0) throw new IllegalArgumentException("the insert purge frequency in AsyncHandlerPurge must be positive");
+		this.dataSource = databaseSource;
+		this.maxBytes = maxBytes;
+		this.sizeExpression = sizeExpression;
+		this.orderField = orderField;
+		this.checkInsertFrequency = checkInsertFrequency;
+		nextCheck = 0; // we should purge at the first insert, in case the app is closed too often without purging
+	}
+
+	/**
+	 * Run the purges when the internal thread of the {@link org.gawst.asyncdb.AsynchronousDbHelper} has nothing else to do.
+	 *
+	 * @param purgeWhenIdle {@code true} to purge when the database is idle.
+	 * @see org.gawst.asyncdb.AsynchronousDbHelper#scheduleIdleOperation(org.gawst.asyncdb.AsynchronousDbOperation)
+	 */
+	public void setPurgeWhenIdle(boolean purgeWhenIdle) {
+		this.purgeWhenIdle = purgeWhenIdle;
+	}
+
+	/**
+	 * Remove the purged elements from the memory of the {@link org.gawst.asyncdb.AsynchronousDbHelper} as well.
+	 *
+	 * @param evictInMemory {@code true} to remove the purged elements from memory.
+	 * @throws IllegalStateException if the source has no {@link org.gawst.asyncdb.source.typed.TypedDatabaseElementHandler}
+	 *                               to read the purged elements.
+	 * @see org.gawst.asyncdb.purge.DatabaseSourcePurger#setEvictInMemory(boolean)
+	 */
+	public void setEvictInMemory(boolean evictInMemory) {
+		evictElementHandler = evictInMemory ? PurgedRows.getElementHandler(dataSource) : null;
+	}
+
+	/**
+	 * Give the free pages back to the file system after elements are purged, for SQLite sources.
+	 * <p>The database must have been created with {@code PRAGMA auto_vacuum = INCREMENTAL} for this to have an effect.</p>
+	 *
+	 * @param incrementalVacuum {@code true} to run {@code PRAGMA incremental_vacuum} after a purge.
+	 */
+	public void setIncrementalVacuum(boolean incrementalVacuum) {
+		this.incrementalVacuum = incrementalVacuum;
+	}
+
+	/**
+	 * @return A Select clause to filter the elements handled by the purge or {@code null} for no filtering.
+	 */
+	@Nullable
+	protected String getPurgeFilterClause() {
+		return null;
+	}
+
+	/**
+	 * @return The arguments corresponding to the {@link #getPurgeFilterClause()} or {@code null} for no filtering.
+	 */
+	@Nullable
+	protected String[] getPurgeFilterArgs() {
+		return null;
+	}
+
+	/**
+	 * Delete the oldest elements until the size of the remaining elements is under {@code maxBytes}.
+	 *
+	 * @return The number of elements deleted.
+	 */
+	private int purgeOldest(AsynchronousDbHelper<?, ?> db) {
+		final String filterClause = getPurgeFilterClause();
+		final String[] filterArgs = getPurgeFilterArgs();
+
+		long totalBytes = 0;
+		Cursor c = dataSource.query(new String[]{"SUM(" + sizeExpression + ")"}, filterClause, filterArgs, null, null, null, null);
+		if (null == c)
+			return 0;
+		try {
+			if (c.moveToFirst())
+				totalBytes = c.getLong(0);
+		} finally {
+			c.close();
+		}
+
+		if (totalBytes <= maxBytes)
+			return 0;
+
+		// find the most recent element to delete to get under maxBytes
+		long bytesToFree = totalBytes - maxBytes;
+		String lastElement = null;
+		c = dataSource.query(new String[]{orderField, sizeExpression}, filterClause, filterArgs, null, null, orderField + " asc", null);
+		if (null == c)
+			return 0;
+		try {
+			while (bytesToFree > 0 && c.moveToNext()) {
+				lastElement = c.getString(0);
+				bytesToFree -= c.getLong(1);
+			}
+		} finally {
+			c.close();
+		}
+
+		if (null == lastElement)
+			return 0;
+
+		String deleteClause;
+		String[] deleteArgs;
+		if (TextUtils.isEmpty(filterClause)) {
+			deleteClause = orderField + " <= ?";
+		} else {
+			deleteClause = orderField + " <= ? AND (" + filterClause + ')';
+		}
+		if (filterArgs == null) {
+			deleteArgs = new String[]{lastElement};
+		} else {
+			deleteArgs = new String[filterArgs.length + 1];
+			deleteArgs[0] = lastElement;
+			System.arraycopy(filterArgs, 0, deleteArgs, 1, filterArgs.length);
+		}
+		return PurgedRows.delete(db, dataSource, evictElementHandler, deleteClause, deleteArgs);
+	}
+
+	private void vacuum() {
+		if (dataSource instanceof SqliteTableSource) {
+			SQLiteOpenHelper openHelper = ((SqliteTableSource) dataSource).getSQLiteOpenHelper();
+			// the pragma is run when the Cursor is read
+			Cursor c = openHelper.getWritableDatabase().rawQuery("PRAGMA incremental_vacuum", null);
+			try {
+				c.moveToFirst();
+			} finally {
+				c.close();
+			}
+		}
+	}
+
+	@Override
+	public void onElementsAdded(AsynchronousDbHelper<?, ?> db) {
+		if (nextCheck != null && --nextCheck < 0) {
+			nextCheck = null; // pending purge
+			AsynchronousDbOperation purgeOperation = new AsynchronousDbOperation() {
+				@Override
+				public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+					int deleted = 0;
+					try {
+						deleted = purgeOldest(db);
+					} catch (Exception e) {
+						LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "failed to purge {}", db, e);
+					}
+
+					if (deleted > 0) {
+						db.invalidateQueryResultCache();
+						LogManager.log(LogManager.DEBUG, AsynchronousDbHelper.TAG, "purged {} elements in {}", deleted, db);
+						if (incrementalVacuum) {
+							try {
+								vacuum();
+							} catch (Exception e) {
+								LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "failed to vacuum {}", db, e);
+							}
+						}
+					}
+
+					nextCheck = checkInsertFrequency;
+				}
+			};
+			if (purgeWhenIdle)
+				db.scheduleIdleOperation(purgeOperation);
+			else
+				db.scheduleCustomOperation(purgeOperation, DbScheduler.PRIORITY_BACKGROUND);
+		}
+	}
+}
@@ -2,23 +2,33 @@ package org.gawst.asyncdb.purge;
 
 import org.gawst.asyncdb.AsynchronousDbHelper;
 import org.gawst.asyncdb.AsynchronousDbOperation;
+import org.gawst.asyncdb.DbScheduler;
 import org.gawst.asyncdb.LogManager;
+import org.gawst.asyncdb.source.typed.SqliteTableSource;
+import org.gawst.asyncdb.source.typed.TypedDatabaseElementHandler;
 import org.gawst.asyncdb.source.typed.TypedDatabaseSource;
 
 import android.database.Cursor;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.TextUtils;
 
 /**
  * Abstract helper class to purge a database.
  *
  * @param <LAST_ELEMENT> Type of the last element to keep during the purge.
  */
-public abstract class DatabaseSourcePurger<LAST_ELEMENT> implements PurgeHandler {
+public abstract class DatabaseSourcePurger<LAST_ELEMENT> implements CountingPurgeHandler {
 	private final TypedDatabaseSource<?, ?, ? extends Cursor> dataSource;
 	private final int maxItems;
 	private final int checkInsertFrequency;
 	private Integer nextCheck;
+	private TypedDatabaseElementHandler<Object, Cursor> evictElementHandler;
+	private int lowWaterMark = -1;
+	private int rowCount = -1;
+	private boolean purgeWhenIdle;
+	private boolean singleDelete;
+	private volatile AsynchronousDbOperation periodicPurge;
 
 	/**
 	 * Constructor for the purger. It will purge the database after each insertion.
@@ -47,6 +57,86 @@ public abstract class DatabaseSourcePurger<LAST_ELEMENT> implements PurgeHandler
 		nextCheck = 0; // we should purge at the first insert, in case the app is closed too often without purging
 	}
 
+	/**
+	 * Remove the purged elements from the memory of the {@link org.gawst.asyncdb.AsynchronousDbHelper} as well.
+	 * <p>The purged rows are read before they are deleted to know which elements to remove from memory. Lists and sets
+	 * find them with {@link Object#equals(Object) equals()} and {@link Object#hashCode() hashCode()}, maps with their key.</p>
+	 *
+	 * @param evictInMemory {@code true} to remove the purged elements from memory.
+	 * @throws IllegalStateException if the source has no {@link org.gawst.asyncdb.source.typed.TypedDatabaseElementHandler}
+	 *                               to read the purged elements.
+	 */
+	public void setEvictInMemory(boolean evictInMemory) {
+		evictElementHandler = evictInMemory ? PurgedRows.getElementHandler(dataSource) : null;
+	}
+
+	/**
+	 * Keep an approximate count of the elements in the database and only purge when it goes over {@code maxItems}, then
+	 * purge down to {@code lowWaterMark} elements. The {@code checkInsertFrequency} is not used anymore.
+	 * <p>The count is read once from the database with {@code COUNT(*)} and then updated on each insert/delete done through
+	 * the {@link org.gawst.asyncdb.AsynchronousDbHelper}.</p>
+	 *
+	 * @param lowWaterMark The number of elements to keep after a purge, {@code -1} to disable counting.
+	 */
+	public void setLowWaterMark(int lowWaterMark) {
+		if (lowWaterMark > maxItems) throw new IllegalArgumentException("the low water mark in AsyncHandlerPurge can't be higher than " + maxItems);
+		if (lowWaterMark <= 0 && lowWaterMark != -1) throw new IllegalArgumentException("the low water mark in AsyncHandlerPurge must be positive");
+		this.lowWaterMark = lowWaterMark;
+		this.rowCount = -1;
+	}
+
+	/**
+	 * Purge with a single {@code DELETE} statement that keeps the first {@code maxItems} rows in the {@link #getFilterOrder()},
+	 * rather than finding the {@link LAST_ELEMENT} first and then deleting with {@link #getDeleteClause(Object)}.
+	 * <p>Only use it when {@link #getDeleteClause(Object)} and {@link #getDeleteArgs(Object)} select all the rows after the
+	 * {@link LAST_ELEMENT}, they are not called with a single {@code DELETE}.</p>
+	 *
+	 * @param singleDelete {@code true} to purge with a single statement if the source has a {@link #getSingleDeleteTable() table}.
+	 */
+	public void setSingleDelete(boolean singleDelete) {
+		this.singleDelete = singleDelete;
+	}
+
+	/**
+	 * Run the purges when the internal thread of the {@link org.gawst.asyncdb.AsynchronousDbHelper} has nothing else to do,
+	 * rather than right after the insertion that triggered it.
+	 *
+	 * @param purgeWhenIdle {@code true} to purge when the database is idle.
+	 * @see org.gawst.asyncdb.AsynchronousDbHelper#scheduleIdleOperation(org.gawst.asyncdb.AsynchronousDbOperation)
+	 */
+	public void setPurgeWhenIdle(boolean purgeWhenIdle) {
+		this.purgeWhenIdle = purgeWhenIdle;
+	}
+
+	/**
+	 * Purge the database regularly, even when nothing is inserted. The purge is done when the database is idle.
+	 *
+	 * @param db             The {@link org.gawst.asyncdb.AsynchronousDbHelper} to purge.
+	 * @param intervalMillis The minimum delay between two purges, in milliseconds.
+	 * @see #stopPeriodicPurge()
+	 */
+	public void startPeriodicPurge(@NonNull AsynchronousDbHelper<?, ?> db, final long intervalMillis) {
+		if (intervalMillis <= 0) throw new IllegalArgumentException("the purge interval in AsyncHandlerPurge must be positive");
+		AsynchronousDbOperation purgeOperation = new AsynchronousDbOperation() {
+			@Override
+			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+				if (periodicPurge == this) {
+					runPurge(db, lowWaterMark < 0 ? maxItems : lowWaterMark);
+					db.scheduleIdleOperation(this, intervalMillis);
+				}
+			}
+		};
+		periodicPurge = purgeOperation;
+		db.scheduleIdleOperation(purgeOperation, intervalMillis);
+	}
+
+	/**
+	 * Stop the purge started with {@link #startPeriodicPurge(org.gawst.asyncdb.AsynchronousDbHelper, long)}.
+	 */
+	public void stopPeriodicPurge() {
+		periodicPurge = null;
+	}
+
 	/**
 	 * @return The list of fields to read from the database when looking for the {@link LAST_ELEMENT}.
 	 */
@@ -101,44 +191,198 @@ public abstract class DatabaseSourcePurger<LAST_ELEMENT> implements PurgeHandler
 		return null;
 	}
 
+	/**
+	 * @return The name of the SQLite table to purge with a single {@code DELETE} statement or {@code null} to find the
+	 * {@link LAST_ELEMENT} first and then delete the elements 'older' than that.
+	 * <p>The single {@code DELETE} relies on the {@code rowid} of the table, it's only used after
+	 * {@link #setSingleDelete(boolean) setSingleDelete(true)}.</p>
+	 */
+	@Nullable
+	protected String getSingleDeleteTable() {
+		if (!singleDelete)
+			return null;
+		if (dataSource instanceof SqliteTableSource)
+			return ((SqliteTableSource) dataSource).getTableName();
+		return null;
+	}
+
+	/**
+	 * Delete all the elements after the first {@code keepItems} in the {@link #getFilterOrder()} in a single statement.
+	 */
+	private int purgeSingleDelete(AsynchronousDbHelper<?, ?> db, String tableName, int keepItems) {
+		String filterClause = getPurgeFilterClause();
+		String[] filterArgs = getPurgeFilterArgs();
+
+		StringBuilder where = new StringBuilder("rowid NOT IN (SELECT rowid FROM ");
+		where.append(tableName);
+		if (!TextUtils.isEmpty(filterClause))
+			where.append(" WHERE ").append(filterClause);
+		where.append(" ORDER BY ").append(getFilterOrder());
+		where.append(" LIMIT ").append(keepItems).append(')');
+
+		String[] whereArgs = filterArgs;
+		if (!TextUtils.isEmpty(filterClause)) {
+			where.append(" AND (").append(filterClause).append(')');
+			if (null != filterArgs) {
+				whereArgs = new String[filterArgs.length * 2];
+				System.arraycopy(filterArgs, 0, whereArgs, 0, filterArgs.length);
+				System.arraycopy(filterArgs, 0, whereArgs, filterArgs.length, filterArgs.length);
+			}
+		}
+
+		return deleteRows(db, where.toString(), whereArgs);
+	}
+
+	/**
+	 * Find the {@link LAST_ELEMENT} to keep and delete all the elements 'older' than that.
+	 */
+	private int purgeByLastElement(AsynchronousDbHelper<?, ?> db, int keepItems) {
+		LAST_ELEMENT lastElement = null;
+		Cursor c = dataSource.query(getFilterFields(), getPurgeFilterClause(), getPurgeFilterArgs(), null, null, getFilterOrder(), Integer.toString(keepItems) + ", 1");
+		try {
+			if (c.moveToFirst())
+				lastElement = getLastFilteredElement(c);
+		} finally {
+			c.close();
+		}
+
+		if (lastElement != null) {
+			try {
+				return deleteRows(db, getDeleteClause(lastElement), getDeleteArgs(lastElement));
+			} catch (IllegalStateException e) {
+				// in some case (2.x) the DB is closed unexpectedly
+			} catch (Exception e) {
+				// in some case (4.1) we get "cannot rollback - no transaction is active"
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Delete the elements that should not be kept, whatever the number of elements in the database.
+	 * <p>Called in the database worker thread before the elements over the maximum are purged.</p>
+	 *
+	 * @param db The {@link org.gawst.asyncdb.AsynchronousDbHelper} to purge.
+	 * @return The number of elements deleted.
+	 * @see #deleteRows(org.gawst.asyncdb.AsynchronousDbHelper, String, String[])
+	 */
+	protected int purgeExpired(AsynchronousDbHelper<?, ?> db) {
+		return 0;
+	}
+
+	/**
+	 * Delete the rows and remove the matching elements from memory if {@link #setEvictInMemory(boolean)} is set.
+	 */
+	protected final int deleteRows(AsynchronousDbHelper<?, ?> db, String where, String[] whereArgs) {
+		return PurgedRows.delete(db, dataSource, evictElementHandler, where, whereArgs);
+	}
+
+	/**
+	 * Count the elements in the database that may be purged.
+	 */
+	private int countRows() {
+		Cursor c;
+		try {
+			c = dataSource.query(new String[]{"COUNT(*)"}, getPurgeFilterClause(), getPurgeFilterArgs(), null, null, null, null);
+			if (null != c) {
+				try {
+					if (c.moveToFirst())
+						return c.getInt(0);
+				} finally {
+					c.close();
+				}
+			}
+		} catch (Exception e) {
+			// the source doesn't support COUNT(*)
+		}
+
+		c = dataSource.query(getFilterFields(), getPurgeFilterClause(), getPurgeFilterArgs(), null, null, null, null);
+		if (null == c)
+			return -1;
+		try {
+			return c.getCount();
+		} finally {
+			c.close();
+		}
+	}
+
 	@Override
 	public void onElementsAdded(AsynchronousDbHelper<?, ?> db) {
-		if (nextCheck != null && --nextCheck < 0) {
-			nextCheck = null; // pending purge
-			db.scheduleCustomOperation(new AsynchronousDbOperation() {
-				@Override
-				public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
-					int deleted = 0;
-					try {
-						LAST_ELEMENT lastElement = null;
-						Cursor c = dataSource.query(getFilterFields(), getPurgeFilterClause(), getPurgeFilterArgs(), null, null, getFilterOrder(), Integer.toString(maxItems) + ", 1");
-						try {
-							if (c.moveToFirst())
-								lastElement = getLastFilteredElement(c);
-						} finally {
-							c.close();
-						}
-
-						if (lastElement != null) {
-							try {
-								deleted = dataSource.delete(getDeleteClause(lastElement), getDeleteArgs(lastElement));
-							} catch (IllegalStateException e) {
-								// in some case (2.x) the DB is closed unexpectedly
-							} catch (Exception e) {
-								// in some case (4.1) we get "cannot rollback - no transaction is active"
-							}
-						}
-					} catch (Exception e) {
-						// can crash on Samsung GT-P1000 2.3.3
-					}
-
-					if (deleted > 0) {
-						LogManager.getLogger().d(AsynchronousDbHelper.TAG, "purged " + deleted + " elements in " + db);
-					}
-
-					nextCheck = checkInsertFrequency;
+		onElementsAdded(db, 1);
+	}
+
+	@Override
+	public void onElementsAdded(AsynchronousDbHelper<?, ?> db, int count) {
+		if (nextCheck == null) {
+			// pending purge
+			return;
+		}
+
+		if (lowWaterMark < 0) {
+			nextCheck -= count;
+			if (nextCheck < 0)
+				schedulePurge(db, maxItems);
+		} else {
+			if (rowCount < 0) {
+				try {
+					rowCount = countRows();
+				} catch (Exception e) {
+					rowCount = -1;
 				}
-			});
+			} else {
+				rowCount += count;
+			}
+
+			if (rowCount < 0 || rowCount > maxItems)
+				schedulePurge(db, lowWaterMark);
 		}
 	}
+
+	@Override
+	public void onElementsRemoved(AsynchronousDbHelper<?, ?> db, int count) {
+		if (rowCount >= 0)
+			rowCount = Math.max(0, rowCount - count);
+	}
+
+	private void schedulePurge(AsynchronousDbHelper<?, ?> db, final int keepItems) {
+		nextCheck = null; // pending purge
+		AsynchronousDbOperation purgeOperation = new AsynchronousDbOperation() {
+			@Override
+			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+				runPurge(db, keepItems);
+				nextCheck = checkInsertFrequency;
+			}
+		};
+		if (purgeWhenIdle)
+			db.scheduleIdleOperation(purgeOperation);
+		else
+			db.scheduleCustomOperation(purgeOperation, DbScheduler.PRIORITY_BACKGROUND);
+	}
+
+	private void runPurge(AsynchronousDbHelper<?, ?> db, int keepItems) {
+		int expired = 0;
+		int deleted = 0;
+		try {
+			expired = purgeExpired(db);
+		} catch (Exception e) {
+			LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "failed to purge expired elements in {}", db, e);
+		}
+		try {
+			String singleDeleteTable = getSingleDeleteTable();
+			if (null != singleDeleteTable)
+				deleted = purgeSingleDelete(db, singleDeleteTable, keepItems);
+			else
+				deleted = purgeByLastElement(db, keepItems);
+		} catch (Exception e) {
+			// can crash on Samsung GT-P1000 2.3.3
+		}
+
+		if (expired + deleted > 0) {
+			db.invalidateQueryResultCache();
+			LogManager.log(LogManager.DEBUG, AsynchronousDbHelper.TAG, "purged {} elements in {}", expired + deleted, db);
+		}
+
+		// after a purge there are at most keepItems left, count again if nothing was purged
+		rowCount = deleted > 0 ? keepItems : -1;
+	}
 }
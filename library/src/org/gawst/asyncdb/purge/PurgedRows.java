@@ -0,0 +1,74 @@
+package org.gawst.asyncdb.purge;
+
+import org.gawst.asyncdb.AsynchronousDbHelper;
+import org.gawst.asyncdb.InvalidDbEntry;
+import org.gawst.asyncdb.source.typed.TypedCursorDataSource;
+import org.gawst.asyncdb.source.typed.TypedDatabaseElementHandler;
+import org.gawst.asyncdb.source.typed.TypedDatabaseSource;
+import org.gawst.asyncdb.source.typed.TypedSqliteMapDataSource;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delete the purged rows and remove the matching elements from the memory of the
+ * {@link org.gawst.asyncdb.AsynchronousDbHelper}, shared by the purgers.
+ */
+final class PurgedRows {
+
+	private PurgedRows() {
+	}
+
+	/**
+	 * @return The handler to read the purged elements from the {@code dataSource}.
+	 * @throws IllegalStateException if the source has no {@link org.gawst.asyncdb.source.typed.TypedDatabaseElementHandler}.
+	 */
+	@SuppressWarnings("unchecked")
+	@NonNull
+	static TypedDatabaseElementHandler<Object, Cursor> getElementHandler(@NonNull TypedDatabaseSource<?, ?, ?> dataSource) {
+		if (dataSource instanceof TypedCursorDataSource)
+			return (TypedDatabaseElementHandler<Object, Cursor>) ((TypedCursorDataSource<?, ?, ?, ?>) dataSource).getDatabaseElementHandler();
+		if (dataSource instanceof TypedSqliteMapDataSource)
+			return (TypedDatabaseElementHandler<Object, Cursor>) (TypedDatabaseElementHandler<?, ?>) ((TypedSqliteMapDataSource<?, ?, ?>) dataSource).getDatabaseElementHandler();
+		throw new IllegalStateException("can't read the purged elements from " + dataSource);
+	}
+
+	/**
+	 * Delete the rows and remove the matching elements from memory if there is an {@code elementHandler} to read them.
+	 *
+	 * @return The number of rows deleted.
+	 */
+	static int delete(@NonNull AsynchronousDbHelper<?, ?> db, @NonNull TypedDatabaseSource<?, ?, ? extends Cursor> dataSource,
+	                  @Nullable TypedDatabaseElementHandler<Object, Cursor> elementHandler, String where, String[] whereArgs) {
+		List<Object> purgedItems = null;
+		if (null != elementHandler) {
+			Cursor c = dataSource.query(null, where, whereArgs, null, null, null, null);
+			if (null != c) {
+				try {
+					purgedItems = new ArrayList<Object>(c.getCount());
+					while (c.moveToNext()) {
+						try {
+							purgedItems.add(elementHandler.cursorToItem(c));
+						} catch (InvalidDbEntry ignored) {
+							// not in memory either
+						}
+					}
+				} finally {
+					c.close();
+				}
+			}
+		}
+
+		int deleted = dataSource.delete(where, whereArgs);
+		if (deleted > 0 && null != purgedItems) {
+			@SuppressWarnings("unchecked")
+			AsynchronousDbHelper<Object, ?> evictDb = (AsynchronousDbHelper<Object, ?>) db;
+			evictDb.evictPurgedItems(purgedItems);
+		}
+		return deleted;
+	}
+}
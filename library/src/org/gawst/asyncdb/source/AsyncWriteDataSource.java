@@ -0,0 +1,43 @@
+package org.gawst.asyncdb.source;
+
+import org.gawst.asyncdb.DataSource;
+
+import android.support.annotation.Nullable;
+
+/**
+ * A {@link org.gawst.asyncdb.DataSource} that can finish its writes in its own threads, after the write methods returned.
+ * <p>The {@link org.gawst.asyncdb.AsynchronousDbHelper} uses it for the writes of its elements, their
+ * {@link org.gawst.asyncdb.OperationFuture} is done and their failure reported once the source finished them.</p>
+ *
+ * @param <E>         Type of element read/write from the data source.
+ * @param <INSERT_ID> Type of element returned by {@link #insert(android.content.ContentValues) insert()}.
+ * @see org.gawst.asyncdb.source.ShardedMapDataSource
+ */
+public interface AsyncWriteDataSource<E, INSERT_ID> extends DataSource<E, INSERT_ID> {
+
+	/**
+	 * Receive the completion of a write done after its method returned.
+	 */
+	interface WriteCallback {
+		/**
+		 * Called in the thread of the write method once the write is queued, before the method returns.
+		 */
+		void onWriteQueued();
+
+		/**
+		 * Called in any thread once the write queued is done.
+		 *
+		 * @param failure The reason the write failed, {@code null} if it succeeded.
+		 */
+		void onWriteDone(@Nullable Throwable failure);
+	}
+
+	/**
+	 * Make the next insert, update or delete called by the current thread return before it's done, with the result it has
+	 * when it succeeds. The {@code callback} is told when it's queued and when it's done.
+	 * <p>The writes called without a callback wait until they are done.</p>
+	 *
+	 * @param callback The callback of the next write, {@code null} to wait for the next write.
+	 */
+	void setNextWriteCallback(@Nullable WriteCallback callback);
+}
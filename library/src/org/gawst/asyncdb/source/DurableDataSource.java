@@ -0,0 +1,17 @@
+package org.gawst.asyncdb.source;
+
+import org.gawst.asyncdb.DataSource;
+
+/**
+ * A {@link org.gawst.asyncdb.DataSource} that doesn't write its data on the storage right away.
+ *
+ * @param <E>         Type of element read/write from the data source.
+ * @param <INSERT_ID> Type of element returned by {@link #insert(android.content.ContentValues) insert()}.
+ * @see org.gawst.asyncdb.AsynchronousDbHelper#flush()
+ */
+public interface DurableDataSource<E, INSERT_ID> extends DataSource<E, INSERT_ID> {
+	/**
+	 * Force all the writes done so far on the storage.
+	 */
+	void sync();
+}
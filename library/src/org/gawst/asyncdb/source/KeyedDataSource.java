@@ -0,0 +1,31 @@
+package org.gawst.asyncdb.source;
+
+import org.gawst.asyncdb.DataSource;
+import org.gawst.asyncdb.InvalidEntry;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A {@link org.gawst.asyncdb.DataSource} that can tell in which stored entry each element is written.
+ * <p>An {@link org.gawst.asyncdb.InvalidEntry} read from it is only kept when an element was written in the same entry
+ * after it was read, instead of after any write.</p>
+ *
+ * @param <E>         Type of element read/write from the data source.
+ * @param <INSERT_ID> Type of element returned by {@link #insert(android.content.ContentValues) insert()}.
+ * @see org.gawst.asyncdb.AsynchronousDbHelper#removeInvalidEntry(org.gawst.asyncdb.InvalidEntry)
+ */
+public interface KeyedDataSource<E, INSERT_ID> extends DataSource<E, INSERT_ID> {
+	/**
+	 * @return The key of the entry where the {@code item} is stored, {@code null} if it's not known.
+	 */
+	@Nullable
+	Object getItemKey(@NonNull E item);
+
+	/**
+	 * @return The key of the {@code invalidEntry}, equal to the {@link #getItemKey(Object) key} of the elements stored in
+	 * the same entry, {@code null} if it's not known.
+	 */
+	@Nullable
+	Object getInvalidEntryKey(@NonNull InvalidEntry invalidEntry);
+}
@@ -0,0 +1,578 @@
+package org.gawst.asyncdb.source;
+
+import org.gawst.asyncdb.AsynchronousDbHelper;
+import org.gawst.asyncdb.InvalidDbEntry;
+import org.gawst.asyncdb.InvalidEntry;
+import org.gawst.asyncdb.LogManager;
+import org.gawst.asyncdb.MapEntry;
+import org.gawst.asyncdb.RowBinder;
+import org.gawst.asyncdb.RowWriter;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabaseCorruptException;
+import android.support.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link org.gawst.asyncdb.DataSource} storing Key/Value pairs in an append-only log file accessed through memory mapping.
+ * <p>Each write appends a record at the end of the log and an in-memory index keeps the position of the latest record of
+ * each key. When more than half of the log is made of obsolete records it is compacted in the calling thread, which is the
+ * worker thread of the {@link org.gawst.asyncdb.AsynchronousDbHelper} using it.</p>
+ * <p>Each record has a CRC. Records partially written at the end of the log, after a crash, are discarded when it's read.
+ * The writes are in the system cache when they return, use {@link #sync()} to force them on the storage.</p>
+ * <p>It can be used with {@link org.gawst.asyncdb.InMemoryHashmapDb} or {@link org.gawst.asyncdb.InMemoryLruCache}. Return
+ * {@link #getRowBinder()} from their {@link org.gawst.asyncdb.AsynchronousDbHelper#getRowBinder() getRowBinder()} so the
+ * records are written without going through {@link android.content.ContentValues}.</p>
+ *
+ * @param <K> Type of the Key stored in the log.
+ * @param <V> Type of the Value stored in the log.
+ */
+public class LogMapDataSource<K, V> implements MapDataSource<K, V, Long>, KeyedDataSource<MapEntry<K, V>, Long>, RowBinderDataSource<MapEntry<K, V>, Long>, DurableDataSource<MapEntry<K, V>, Long> {
+
+	private static final int MAGIC = 0x4d444c47; // MDLG
+	private static final int VERSION = 1;
+	private static final int FILE_HEADER_SIZE = 8;
+	// CRC (int), type (byte), key length (int), value length (int)
+	private static final int RECORD_HEADER_SIZE = 13;
+	private static final byte[] EMPTY_RECORD_HEADER = new byte[RECORD_HEADER_SIZE];
+	private static final byte RECORD_PUT = 1;
+	private static final byte RECORD_DELETE = 2;
+	private static final int MAP_CHUNK = 256 * 1024;
+	private static final int MIN_COMPACT_SIZE = 1024 * 1024;
+
+	private final File file;
+	private final LogMapElementHandler<K, V> handler;
+	private final HashMap<ByteBuffer, Integer> index = new HashMap<ByteBuffer, Integer>();
+	private final CRC32 crc = new CRC32();
+	private final RecordOutput record = new RecordOutput();
+	private final DataOutputStream recordOut = new DataOutputStream(record);
+	private final RecordInput recordIn = new RecordInput();
+	private final DataInputStream recordData = new DataInputStream(recordIn);
+	private byte[] scratch = new byte[256];
+	private final RowBinder<MapEntry<K, V>> rowBinder = new RowBinder<MapEntry<K, V>>() {
+		@Override
+		public void bind(@NonNull MapEntry<K, V> item, boolean update, @NonNull RowWriter writer) {
+			// the records are written by the LogMapElementHandler
+		}
+	};
+
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private MappedByteBuffer mapped;
+	/** duplicate of {@link #mapped} used for relative reads */
+	private ByteBuffer readBuffer;
+	/** position of the next record to write */
+	private int end;
+	/** size of the records still in use */
+	private int liveSize;
+
+	private static class RecordOutput extends ByteArrayOutputStream {
+		byte[] buffer() {
+			return buf;
+		}
+	}
+
+	private static class RecordInput extends InputStream {
+		private ByteBuffer buffer;
+
+		void reset(ByteBuffer source, int start, int length) {
+			buffer = source;
+			buffer.clear();
+			buffer.position(start);
+			buffer.limit(start + length);
+		}
+
+		@Override
+		public int read() {
+			if (!buffer.hasRemaining())
+				return -1;
+			return buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(@NonNull byte[] b, int off, int len) {
+			if (len == 0)
+				return 0;
+			if (!buffer.hasRemaining())
+				return -1;
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+	}
+
+	private static class LogInvalidEntry implements InvalidEntry {
+		private final byte[] key;
+
+		LogInvalidEntry(byte[] key) {
+			this.key = key;
+		}
+
+		@Override
+		public String[] getSelectArgs() {
+			return new String[0];
+		}
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file    The log file, created if it doesn't exist.
+	 * @param handler Handler to transform the ({@link K},{@link V}) pairs to/from binary records.
+	 */
+	public LogMapDataSource(@NonNull File file, @NonNull LogMapElementHandler<K, V> handler) {
+		if (handler == null) throw new NullPointerException("null LogMapElementHandler in " + this);
+		this.file = file;
+		this.handler = handler;
+	}
+
+	/**
+	 * @return The log file.
+	 */
+	@NonNull
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return The handler used to transform ({@link K},{@link V}) pairs to/from binary records.
+	 */
+	@NonNull
+	public LogMapElementHandler<K, V> getElementHandler() {
+		return handler;
+	}
+
+	/**
+	 * @return The {@link org.gawst.asyncdb.RowBinder} to use with this source, the records are written by the {@link org.gawst.asyncdb.source.LogMapElementHandler}.
+	 * It's the only binder accepted by {@link #insert(org.gawst.asyncdb.MapEntry, org.gawst.asyncdb.RowBinder) insert()} and
+	 * {@link #update(org.gawst.asyncdb.MapEntry, org.gawst.asyncdb.MapEntry, org.gawst.asyncdb.RowBinder) update()}.
+	 */
+	@NonNull
+	public RowBinder<MapEntry<K, V>> getRowBinder() {
+		return rowBinder;
+	}
+
+	@Override
+	public synchronized void queryAll(BatchReadingCallback<MapEntry<K, V>> readingCallback) {
+		try {
+			open();
+		} catch (IOException e) {
+			throw new IllegalStateException("failed to open " + file, e);
+		}
+
+		// read the records in the order of the file
+		final int[] positions = new int[index.size()];
+		int i = 0;
+		for (Integer position : index.values()) {
+			positions[i++] = position;
+		}
+		Arrays.sort(positions);
+
+		readingCallback.startLoadingAllItems(positions.length);
+		for (int position : positions) {
+			final int keyLength = mapped.getInt(position + 5);
+			final int valueLength = mapped.getInt(position + 9);
+			final int keyStart = position + RECORD_HEADER_SIZE;
+			try {
+				recordIn.reset(readBuffer, keyStart, keyLength);
+				final K key = handler.readKey(recordData);
+				recordIn.reset(readBuffer, keyStart + keyLength, valueLength);
+				final V value = handler.readValue(recordData);
+				readingCallback.addItemInMemory(new MapEntry<K, V>(key, value));
+			} catch (InvalidDbEntry e) {
+				readingCallback.removeInvalidEntry(new LogInvalidEntry(copyKey(position, keyLength)));
+			} catch (IOException e) {
+				LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "{} failed to read the record at {}", this, position, e);
+				readingCallback.removeInvalidEntry(new LogInvalidEntry(copyKey(position, keyLength)));
+			}
+		}
+	}
+
+	@Override
+	public synchronized int clearAllData() {
+		try {
+			open();
+			final int count = index.size();
+			index.clear();
+			liveSize = 0;
+			end = FILE_HEADER_SIZE;
+			channel.truncate(FILE_HEADER_SIZE);
+			map(MAP_CHUNK);
+			return count;
+		} catch (IOException e) {
+			throw new IllegalStateException("failed to clear " + file, e);
+		}
+	}
+
+	/**
+	 * Add a new Key/Value pair in the log, using {@link LogMapElementHandler#contentValuesToEntry(android.content.ContentValues)}.
+	 *
+	 * @return The position of the record in the log.
+	 */
+	@Override
+	public synchronized Long insert(@NonNull ContentValues element) throws RuntimeException {
+		return insert(handler.contentValuesToEntry(element), rowBinder);
+	}
+
+	@Override
+	public synchronized Long insert(@NonNull MapEntry<K, V> item, @NonNull RowBinder<MapEntry<K, V>> binder) throws RuntimeException {
+		checkRowBinder(binder);
+		try {
+			open();
+			final long position = end;
+			writeRecord(RECORD_PUT, item.getKey(), item.getValue());
+			compactIfNeeded();
+			return position;
+		} catch (IOException e) {
+			throw new IllegalStateException("failed to insert " + item + " in " + file, e);
+		}
+	}
+
+	@Override
+	public synchronized boolean update(@NonNull MapEntry<K, V> itemToUpdate, @NonNull MapEntry<K, V> newItem, @NonNull RowBinder<MapEntry<K, V>> binder) {
+		checkRowBinder(binder);
+		try {
+			open();
+			writeRecord(RECORD_PUT, itemToUpdate.getKey(), newItem.getValue());
+			compactIfNeeded();
+			return true;
+		} catch (IOException e) {
+			throw new IllegalStateException("failed to update " + itemToUpdate + " in " + file, e);
+		}
+	}
+
+	/**
+	 * The records are written by the {@link org.gawst.asyncdb.source.LogMapElementHandler}, a binder writing other columns
+	 * would be silently ignored.
+	 */
+	private void checkRowBinder(RowBinder<MapEntry<K, V>> binder) {
+		if (binder != rowBinder)
+			throw new IllegalArgumentException(this + " only writes with its own getRowBinder(), not " + binder);
+	}
+
+	@Override
+	public synchronized int delete(MapEntry<K, V> itemToDelete) {
+		try {
+			open();
+			final boolean removed = writeRecord(RECORD_DELETE, itemToDelete.getKey(), null);
+			compactIfNeeded();
+			return removed ? 1 : 0;
+		} catch (IOException e) {
+			throw new IllegalStateException("failed to delete " + itemToDelete + " in " + file, e);
+		}
+	}
+
+	@Override
+	public synchronized boolean deleteInvalidEntry(InvalidEntry invalidEntry) {
+		if (!(invalidEntry instanceof LogInvalidEntry))
+			return false;
+		try {
+			open();
+			final byte[] key = ((LogInvalidEntry) invalidEntry).key;
+			record.reset();
+			record.write(EMPTY_RECORD_HEADER, 0, RECORD_HEADER_SIZE);
+			record.write(key, 0, key.length);
+			return commitRecord(RECORD_DELETE, key.length);
+		} catch (IOException e) {
+			throw new IllegalStateException("failed to delete an invalid entry in " + file, e);
+		}
+	}
+
+	/**
+	 * @return The binary key of the {@code item}, like in its records.
+	 */
+	@Override
+	public Object getItemKey(@NonNull MapEntry<K, V> item) {
+		final ByteArrayOutputStream key = new ByteArrayOutputStream();
+		try {
+			handler.writeKey(new DataOutputStream(key), item.getKey());
+		} catch (IOException e) {
+			return null;
+		}
+		return ByteBuffer.wrap(key.toByteArray());
+	}
+
+	@Override
+	public Object getInvalidEntryKey(@NonNull InvalidEntry invalidEntry) {
+		return invalidEntry instanceof LogInvalidEntry ? ByteBuffer.wrap(((LogInvalidEntry) invalidEntry).key) : null;
+	}
+
+	/**
+	 * Write the new value of the element, the {@code updateValues} are not used.
+	 */
+	@Override
+	public synchronized boolean update(MapEntry<K, V> itemToUpdate, ContentValues updateValues) {
+		return update(itemToUpdate, itemToUpdate, rowBinder);
+	}
+
+	@Override
+	public synchronized void eraseSource() {
+		close();
+		index.clear();
+		liveSize = 0;
+		file.delete();
+	}
+
+	/**
+	 * Force the records written so far on the storage.
+	 */
+	@Override
+	public synchronized void sync() {
+		if (null != mapped)
+			mapped.force();
+	}
+
+	/**
+	 * Rewrite the log with only the records still in use.
+	 * <p>It's done automatically when the obsolete records take more than half of the log.</p>
+	 */
+	public synchronized void compact() {
+		try {
+			open();
+			final File compacted = new File(file.getPath() + ".compact");
+			final int compactedEnd = FILE_HEADER_SIZE + liveSize;
+			final RandomAccessFile output = new RandomAccessFile(compacted, "rw");
+			try {
+				output.setLength(0);
+				final MappedByteBuffer target = output.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, roundToChunk(compactedEnd));
+				target.putInt(MAGIC);
+				target.putInt(VERSION);
+				for (Map.Entry<ByteBuffer, Integer> entry : index.entrySet()) {
+					final int position = entry.getValue();
+					readBuffer.clear();
+					readBuffer.position(position);
+					readBuffer.limit(position + recordSize(position));
+					entry.setValue(target.position());
+					target.put(readBuffer);
+				}
+				target.force();
+			} finally {
+				output.close();
+			}
+
+			close();
+			if (!compacted.renameTo(file))
+				throw new IOException("failed to replace " + file + " with " + compacted);
+			openFile();
+			end = compactedEnd;
+		} catch (IOException e) {
+			// the index may not match the file anymore
+			close();
+			throw new IllegalStateException("failed to compact " + file, e);
+		}
+	}
+
+	/**
+	 * Release the log file, it's opened again when needed.
+	 */
+	public synchronized void close() {
+		if (null != raf) {
+			try {
+				// remove the space reserved for the next records
+				raf.setLength(end);
+			} catch (IOException ignored) {
+			}
+			try {
+				raf.close();
+			} catch (IOException ignored) {
+			}
+			raf = null;
+			channel = null;
+			mapped = null;
+			readBuffer = null;
+		}
+	}
+
+	private void open() throws IOException {
+		if (null != channel)
+			return;
+
+		final long length = file.length();
+		if (length > Integer.MAX_VALUE)
+			throw new SQLiteDatabaseCorruptException(file + " is too big");
+		openFile();
+		end = (int) length;
+		if (length == 0) {
+			map(MAP_CHUNK);
+			mapped.putInt(0, MAGIC);
+			mapped.putInt(4, VERSION);
+			index.clear();
+			liveSize = 0;
+			end = FILE_HEADER_SIZE;
+		} else if (length < FILE_HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+			close();
+			throw new SQLiteDatabaseCorruptException(file + " is not a valid log");
+		} else {
+			readIndex();
+		}
+	}
+
+	private void openFile() throws IOException {
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		map((int) channel.size());
+	}
+
+	private void map(int size) throws IOException {
+		mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		readBuffer = mapped.duplicate();
+	}
+
+	private static int roundToChunk(long size) throws IOException {
+		final long rounded = (size + MAP_CHUNK - 1) / MAP_CHUNK * MAP_CHUNK;
+		if (rounded > Integer.MAX_VALUE)
+			throw new IOException("log file too big");
+		return (int) rounded;
+	}
+
+	/**
+	 * Read all the records to build the index, drop the unreadable records at the end of the file.
+	 */
+	private void readIndex() {
+		index.clear();
+		liveSize = 0;
+		final int length = mapped.capacity();
+		int position = FILE_HEADER_SIZE;
+		while (position + RECORD_HEADER_SIZE <= length) {
+			final byte type = mapped.get(position + 4);
+			if (type != RECORD_PUT && type != RECORD_DELETE)
+				break;
+			final int keyLength = mapped.getInt(position + 5);
+			final int valueLength = mapped.getInt(position + 9);
+			if (keyLength < 0 || valueLength < 0 || (long) position + RECORD_HEADER_SIZE + keyLength + valueLength > length)
+				break;
+			final int size = RECORD_HEADER_SIZE + keyLength + valueLength;
+			if (mapped.getInt(position) != checksum(position, size))
+				break;
+
+			final ByteBuffer key = ByteBuffer.wrap(copyKey(position, keyLength));
+			final Integer previous = type == RECORD_PUT ? index.put(key, position) : index.remove(key);
+			if (null != previous)
+				liveSize -= recordSize(previous);
+			if (type == RECORD_PUT)
+				liveSize += size;
+			position += size;
+		}
+		end = position;
+
+		// don't let the next records be followed by garbage that could be read as valid records
+		boolean dropped = false;
+		for (int i = position; i < length; ++i) {
+			if (mapped.get(i) != 0) {
+				mapped.put(i, (byte) 0);
+				dropped = true;
+			}
+		}
+		if (dropped)
+			LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "{} dropped the unreadable records after {}", this, position);
+	}
+
+	private int checksum(int position, int size) {
+		final int length = size - 4;
+		if (scratch.length < length)
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		readBuffer.clear();
+		readBuffer.position(position + 4);
+		readBuffer.get(scratch, 0, length);
+		crc.reset();
+		crc.update(scratch, 0, length);
+		return (int) crc.getValue();
+	}
+
+	private byte[] copyKey(int position, int keyLength) {
+		final byte[] key = new byte[keyLength];
+		readBuffer.clear();
+		readBuffer.position(position + RECORD_HEADER_SIZE);
+		readBuffer.get(key);
+		return key;
+	}
+
+	private int recordSize(int position) {
+		return RECORD_HEADER_SIZE + mapped.getInt(position + 5) + mapped.getInt(position + 9);
+	}
+
+	/**
+	 * @return {@code true} if there was a record for this key.
+	 */
+	private boolean writeRecord(byte type, K key, V value) throws IOException {
+		record.reset();
+		record.write(EMPTY_RECORD_HEADER, 0, RECORD_HEADER_SIZE);
+		handler.writeKey(recordOut, key);
+		final int keyLength = record.size() - RECORD_HEADER_SIZE;
+		if (type == RECORD_PUT)
+			handler.writeValue(recordOut, value);
+		return commitRecord(type, keyLength);
+	}
+
+	/**
+	 * Append the record in {@link #record} to the log and update the index.
+	 *
+	 * @return {@code true} if there was a record for this key.
+	 */
+	private boolean commitRecord(byte type, int keyLength) throws IOException {
+		final byte[] data = record.buffer();
+		final int size = record.size();
+		final ByteBuffer lookup = ByteBuffer.wrap(data, RECORD_HEADER_SIZE, keyLength);
+		final Integer previous = index.get(lookup);
+		if (type == RECORD_DELETE && null == previous)
+			return false;
+
+		data[4] = type;
+		putInt(data, 5, keyLength);
+		putInt(data, 9, size - RECORD_HEADER_SIZE - keyLength);
+		crc.reset();
+		crc.update(data, 4, size - 4);
+		putInt(data, 0, (int) crc.getValue());
+
+		if (end + size > mapped.capacity())
+			map(roundToChunk(Math.max(2L * mapped.capacity(), (long) end + size)));
+		final int position = end;
+		mapped.position(position);
+		mapped.put(data, 0, size);
+		end += size;
+
+		if (null != previous)
+			liveSize -= recordSize(previous);
+		if (type == RECORD_DELETE) {
+			index.remove(lookup);
+		} else {
+			liveSize += size;
+			if (null == previous)
+				index.put(ByteBuffer.wrap(Arrays.copyOfRange(data, RECORD_HEADER_SIZE, RECORD_HEADER_SIZE + keyLength)), position);
+			else
+				index.put(lookup, position); // the existing key is kept
+		}
+		return null != previous;
+	}
+
+	private static void putInt(byte[] data, int offset, int value) {
+		data[offset] = (byte) (value >>> 24);
+		data[offset + 1] = (byte) (value >>> 16);
+		data[offset + 2] = (byte) (value >>> 8);
+		data[offset + 3] = (byte) value;
+	}
+
+	private void compactIfNeeded() {
+		if (end > MIN_COMPACT_SIZE && liveSize < (end - FILE_HEADER_SIZE) / 2)
+			compact();
+	}
+
+	@Override
+	public String toString() {
+		return "LogMap:" + file.getName();
+	}
+}
@@ -0,0 +1,53 @@
+package org.gawst.asyncdb.source;
+
+import org.gawst.asyncdb.InvalidDbEntry;
+import org.gawst.asyncdb.MapEntry;
+
+import android.content.ContentValues;
+import android.support.annotation.NonNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface to handle the transformation of Key ({@link K}) / Value ({@link V}) pairs to/from the binary records of a
+ * {@link org.gawst.asyncdb.source.LogMapDataSource}.
+ * <p>The same key must always be written with the same bytes, they identify the record in the log.</p>
+ *
+ * @param <K> Type of the Key read/write from the {@link org.gawst.asyncdb.source.LogMapDataSource}.
+ * @param <V> Type of the Value read/write from the {@link org.gawst.asyncdb.source.LogMapDataSource}.
+ * @see org.gawst.asyncdb.source.MapDatabaseElementHandler
+ */
+public interface LogMapElementHandler<K, V> {
+	/**
+	 * Write the binary form of the {@code key}.
+	 */
+	void writeKey(@NonNull DataOutput out, K key) throws IOException;
+
+	/**
+	 * Write the binary form of the {@code value}.
+	 */
+	void writeValue(@NonNull DataOutput out, V value) throws IOException;
+
+	/**
+	 * Read a key written with {@link #writeKey(java.io.DataOutput, Object)}.
+	 *
+	 * @throws InvalidDbEntry if the record is not valid anymore, it will be removed from the log.
+	 */
+	K readKey(@NonNull DataInput in) throws IOException, InvalidDbEntry;
+
+	/**
+	 * Read a value written with {@link #writeValue(java.io.DataOutput, Object)}.
+	 *
+	 * @throws InvalidDbEntry if the record is not valid anymore, it will be removed from the log.
+	 */
+	V readValue(@NonNull DataInput in) throws IOException, InvalidDbEntry;
+
+	/**
+	 * Get the Key/Value pair to insert from the {@link android.content.ContentValues} given by
+	 * {@link org.gawst.asyncdb.InMemoryDbMap#getValuesFromData(Object, Object, boolean) InMemoryDbMap.getValuesFromData()}.
+	 */
+	@NonNull
+	MapEntry<K, V> contentValuesToEntry(@NonNull ContentValues values);
+}
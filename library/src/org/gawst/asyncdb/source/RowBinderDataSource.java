@@ -0,0 +1,35 @@
+package org.gawst.asyncdb.source;
+
+import org.gawst.asyncdb.DataSource;
+import org.gawst.asyncdb.RowBinder;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A {@link org.gawst.asyncdb.DataSource} that can write elements with a {@link org.gawst.asyncdb.RowBinder} rather than
+ * {@link android.content.ContentValues}.
+ *
+ * @param <E>         Type of the elements written in the data source.
+ * @param <INSERT_ID> Type of the object returned by {@link #insert(Object, org.gawst.asyncdb.RowBinder)}
+ * @see org.gawst.asyncdb.AsynchronousDbHelper#getRowBinder()
+ */
+public interface RowBinderDataSource<E, INSERT_ID> extends DataSource<E, INSERT_ID> {
+	/**
+	 * Add a new element in the source.
+	 *
+	 * @param item   The element to add.
+	 * @param binder The binder writing the fields of the element.
+	 * @return An object representing the added item or {@code null} if it wasn't added
+	 */
+	INSERT_ID insert(@NonNull E item, @NonNull RowBinder<E> binder) throws RuntimeException;
+
+	/**
+	 * Update an element already in the source.
+	 *
+	 * @param itemToUpdate The element to update in the source.
+	 * @param newItem      The element holding the new values.
+	 * @param binder       The binder writing the fields of {@code newItem}.
+	 * @return {@code true} if the element was updated
+	 */
+	boolean update(@NonNull E itemToUpdate, @NonNull E newItem, @NonNull RowBinder<E> binder);
+}
@@ -0,0 +1,483 @@
+package org.gawst.asyncdb.source;
+
+import org.gawst.asyncdb.InvalidEntry;
+import org.gawst.asyncdb.MapEntry;
+import org.gawst.asyncdb.RowBinder;
+
+import android.content.ContentValues;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link org.gawst.asyncdb.source.MapDataSource} spreading the keys over several {@link MapDataSource} shards, like
+ * {@link org.gawst.asyncdb.source.SqliteMapDataSource} in different database files, so the writes don't all wait on the same
+ * database lock.
+ * <p>Each shard has its own thread. A write runs in the thread of its shard. The writes of the elements of an
+ * {@link org.gawst.asyncdb.AsynchronousDbHelper} are queued without waiting, so the writes in different shards run at the
+ * same time: their {@link org.gawst.asyncdb.OperationFuture} is done and their failure reported to the helper from the
+ * shard thread. The other writes wait until they are done. At most {@link #MAX_PENDING_WRITES} writes can wait in a shard,
+ * the caller waits when there are more.</p>
+ * <p>The shards are read, cleared and synced in parallel, the elements read are then given to the
+ * {@link org.gawst.asyncdb.AsynchronousDbHelper} in the calling thread.</p>
+ * <p>The shard threads are stopped with {@link #close()}.</p>
+ *
+ * @param <K> Type of the Key stored in the shards.
+ * @param <V> Type of the Value stored in the shards.
+ */
+public class ShardedMapDataSource<K, V> implements MapDataSource<K, V, Integer>, KeyedDataSource<MapEntry<K, V>, Integer>, AsyncWriteDataSource<MapEntry<K, V>, Integer>, RowBinderDataSource<MapEntry<K, V>, Integer>, DurableDataSource<MapEntry<K, V>, Integer> {
+
+	/**
+	 * Read the key of a Key/Value pair from the {@link android.content.ContentValues} of an insert.
+	 */
+	public interface KeyReader<K> {
+		K getKey(@NonNull ContentValues values);
+	}
+
+	/**
+	 * The maximum number of writes waiting in the thread of a shard.
+	 */
+	public static final int MAX_PENDING_WRITES = 64;
+
+	private final List<MapDataSource<K, V, ?>> shards;
+	private final List<ThreadPoolExecutor> lanes;
+	private final KeyReader<K> keyReader;
+	private final ThreadLocal<WriteCallback> nextWriteCallback = new ThreadLocal<WriteCallback>();
+
+	private static class ShardInvalidEntry implements InvalidEntry {
+		private final int shard;
+		private final InvalidEntry invalidEntry;
+
+		ShardInvalidEntry(int shard, InvalidEntry invalidEntry) {
+			this.shard = shard;
+			this.invalidEntry = invalidEntry;
+		}
+
+		@Override
+		public String[] getSelectArgs() {
+			return invalidEntry.getSelectArgs();
+		}
+	}
+
+	/**
+	 * The elements read from a shard, to give them to the {@link org.gawst.asyncdb.AsynchronousDbHelper} in its thread.
+	 */
+	private static class ShardReader<K, V> implements BatchReadingCallback<MapEntry<K, V>> {
+		private final int shard;
+		private final ArrayList<MapEntry<K, V>> items = new ArrayList<MapEntry<K, V>>();
+		private final ArrayList<InvalidEntry> invalidEntries = new ArrayList<InvalidEntry>();
+
+		ShardReader(int shard) {
+			this.shard = shard;
+		}
+
+		@Override
+		public void startLoadingAllItems(int elementCount) {
+			items.ensureCapacity(elementCount);
+		}
+
+		@Override
+		public void addItemInMemory(MapEntry<K, V> item) {
+			items.add(item);
+		}
+
+		@Override
+		public void removeInvalidEntry(InvalidEntry invalidEntry) {
+			invalidEntries.add(new ShardInvalidEntry(shard, invalidEntry));
+		}
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name      Name of the shard threads.
+	 * @param shards    The data sources holding the elements, the same key always goes in the same shard so their number
+	 *                  and order must not change once there are elements stored.
+	 * @param keyReader Read the key to select the shard of the {@link #insert(android.content.ContentValues) ContentValues}
+	 *                  inserts, may be {@code null} when the elements are inserted with a {@link org.gawst.asyncdb.RowBinder}.
+	 */
+	public ShardedMapDataSource(@NonNull String name, @NonNull List<? extends MapDataSource<K, V, ?>> shards, @Nullable KeyReader<K> keyReader) {
+		if (shards.isEmpty()) throw new IllegalArgumentException("no shards in " + name);
+		this.shards = new ArrayList<MapDataSource<K, V, ?>>(shards);
+		this.keyReader = keyReader;
+		this.lanes = new ArrayList<ThreadPoolExecutor>(shards.size());
+		for (int i = 0; i < shards.size(); ++i) {
+			final String threadName = name + "-shard" + i;
+			lanes.add(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(MAX_PENDING_WRITES), new ThreadFactory() {
+				@Override
+				public Thread newThread(@NonNull Runnable r) {
+					Thread thread = new Thread(r, threadName);
+					thread.setDaemon(true);
+					return thread;
+				}
+			}, new RejectedExecutionHandler() {
+				@Override
+				public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+					if (executor.isShutdown())
+						throw new RejectedExecutionException(threadName + " is closed");
+					try {
+						// wait for the shard to catch up
+						executor.getQueue().put(r);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RejectedExecutionException("interrupted while waiting for " + threadName, e);
+					}
+				}
+			}));
+		}
+	}
+
+	/**
+	 * @return The number of shards.
+	 */
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * @return The index of the shard holding the {@code key}.
+	 */
+	public int getShard(K key) {
+		if (null == key)
+			return 0;
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return (h & Integer.MAX_VALUE) % shards.size();
+	}
+
+	@Override
+	public void setNextWriteCallback(@Nullable WriteCallback callback) {
+		if (null == callback)
+			nextWriteCallback.remove();
+		else
+			nextWriteCallback.set(callback);
+	}
+
+	/**
+	 * Run the {@code write} in the thread of its shard and wait for its result.
+	 *
+	 * @throws java.util.concurrent.RejectedExecutionException if the shard is closed.
+	 */
+	private <T> T write(int shard, @NonNull Callable<T> write) {
+		return getResult(lanes.get(shard).submit(write));
+	}
+
+	/**
+	 * Run the {@code write} of an element in the thread of its shard. If the calling thread set a
+	 * {@link #setNextWriteCallback(WriteCallback) callback} it's given the result and this method doesn't wait.
+	 *
+	 * @param item The element written, for the error when nothing is written.
+	 * @return The number of elements written, {@code 1} when it's not known yet.
+	 * @throws java.util.concurrent.RejectedExecutionException if the shard is closed.
+	 */
+	private int writeItem(final int shard, @NonNull final Object item, @NonNull final Callable<Integer> write) {
+		final WriteCallback callback = nextWriteCallback.get();
+		if (null == callback)
+			return write(shard, write);
+		nextWriteCallback.remove();
+
+		lanes.get(shard).execute(new Runnable() {
+			@Override
+			public void run() {
+				Throwable failure = null;
+				try {
+					if (0 == write.call())
+						failure = new IllegalStateException("nothing written for " + item + " in " + shards.get(shard));
+				} catch (Throwable e) {
+					failure = e;
+				}
+				callback.onWriteDone(failure);
+			}
+		});
+		callback.onWriteQueued();
+		return 1;
+	}
+
+	/**
+	 * Run each task in the thread of its shard and wait for all of them.
+	 */
+	private <T> List<T> runInAllShards(@NonNull List<? extends Callable<T>> tasks) {
+		final List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for (int i = 0; i < tasks.size(); ++i) {
+			futures.add(lanes.get(i).submit(tasks.get(i)));
+		}
+		final List<T> results = new ArrayList<T>(tasks.size());
+		for (Future<T> future : futures) {
+			results.add(getResult(future));
+		}
+		return results;
+	}
+
+	private static <T> T getResult(@NonNull Future<T> future) {
+		boolean interrupted = false;
+		try {
+			for (;;) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException)
+						throw (RuntimeException) e.getCause();
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stop the threads of the shards once the writes already queued are done, the shards can't be used after that.
+	 * <p>The shard data sources are not closed.</p>
+	 */
+	public void close() {
+		for (ThreadPoolExecutor lane : lanes) {
+			lane.shutdown();
+		}
+	}
+
+	/**
+	 * Wait until all the writes queued in the shards by other threads are done.
+	 */
+	public void flush() {
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(shards.size());
+		for (int i = 0; i < shards.size(); ++i) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					return null;
+				}
+			});
+		}
+		runInAllShards(tasks);
+	}
+
+	/**
+	 * Wait until all the writes queued in the shards are done and force them on the storage of the
+	 * {@link org.gawst.asyncdb.source.DurableDataSource} shards.
+	 */
+	@Override
+	public void sync() {
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(shards.size());
+		for (final MapDataSource<K, V, ?> shard : shards) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					if (shard instanceof DurableDataSource)
+						((DurableDataSource<?, ?>) shard).sync();
+					return null;
+				}
+			});
+		}
+		runInAllShards(tasks);
+	}
+
+	@Override
+	public void queryAll(BatchReadingCallback<MapEntry<K, V>> readingCallback) {
+		final List<Callable<ShardReader<K, V>>> tasks = new ArrayList<Callable<ShardReader<K, V>>>(shards.size());
+		for (int i = 0; i < shards.size(); ++i) {
+			final int shard = i;
+			tasks.add(new Callable<ShardReader<K, V>>() {
+				@Override
+				public ShardReader<K, V> call() {
+					ShardReader<K, V> reader = new ShardReader<K, V>(shard);
+					shards.get(shard).queryAll(reader);
+					return reader;
+				}
+			});
+		}
+		final List<ShardReader<K, V>> readers = runInAllShards(tasks);
+
+		int count = 0;
+		for (ShardReader<K, V> reader : readers) {
+			count += reader.items.size();
+		}
+		readingCallback.startLoadingAllItems(count);
+		for (ShardReader<K, V> reader : readers) {
+			for (MapEntry<K, V> item : reader.items) {
+				readingCallback.addItemInMemory(item);
+			}
+			for (InvalidEntry invalidEntry : reader.invalidEntries) {
+				readingCallback.removeInvalidEntry(invalidEntry);
+			}
+		}
+	}
+
+	@Override
+	public int clearAllData() {
+		final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(shards.size());
+		for (final MapDataSource<K, V, ?> shard : shards) {
+			tasks.add(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return shard.clearAllData();
+				}
+			});
+		}
+		int removed = 0;
+		for (Integer shardRemoved : runInAllShards(tasks)) {
+			removed += shardRemoved;
+		}
+		return removed;
+	}
+
+	/**
+	 * Insert in the shard of the key read by the {@link KeyReader}.
+	 *
+	 * @return The index of the shard, {@code null} if the shard failed to insert.
+	 */
+	@Override
+	public Integer insert(final ContentValues element) throws RuntimeException {
+		if (null == keyReader) throw new IllegalStateException("no KeyReader to insert ContentValues in " + this);
+		final int shard = getShard(keyReader.getKey(element));
+		final int inserted = writeItem(shard, element, new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return null == shards.get(shard).insert(element) ? 0 : 1;
+			}
+		});
+		return 0 == inserted ? null : shard;
+	}
+
+	/**
+	 * Insert in the shard of the key, the shard must be a {@link org.gawst.asyncdb.source.RowBinderDataSource}.
+	 *
+	 * @return The index of the shard, {@code null} if the shard failed to insert.
+	 */
+	@Override
+	public Integer insert(@NonNull final MapEntry<K, V> item, @NonNull final RowBinder<MapEntry<K, V>> binder) throws RuntimeException {
+		final int shard = getShard(item.getKey());
+		final RowBinderDataSource<MapEntry<K, V>, ?> shardSource = getBinderShard(shard);
+		final int inserted = writeItem(shard, item, new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return null == shardSource.insert(item, binder) ? 0 : 1;
+			}
+		});
+		return 0 == inserted ? null : shard;
+	}
+
+	/**
+	 * Delete in the shard of the key.
+	 */
+	@Override
+	public int delete(final MapEntry<K, V> itemToDelete) {
+		final int shard = getShard(itemToDelete.getKey());
+		return writeItem(shard, itemToDelete, new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return shards.get(shard).delete(itemToDelete);
+			}
+		});
+	}
+
+	@Override
+	public boolean deleteInvalidEntry(final InvalidEntry invalidEntry) {
+		if (!(invalidEntry instanceof ShardInvalidEntry))
+			return false;
+		final ShardInvalidEntry shardInvalidEntry = (ShardInvalidEntry) invalidEntry;
+		return write(shardInvalidEntry.shard, new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return shards.get(shardInvalidEntry.shard).deleteInvalidEntry(shardInvalidEntry.invalidEntry);
+			}
+		});
+	}
+
+	/**
+	 * @return The key in the shard of the {@code item} if the shard is a {@link org.gawst.asyncdb.source.KeyedDataSource}.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object getItemKey(@NonNull MapEntry<K, V> item) {
+		final int shard = getShard(item.getKey());
+		final MapDataSource<K, V, ?> shardSource = shards.get(shard);
+		if (!(shardSource instanceof KeyedDataSource))
+			return null;
+		final Object key = ((KeyedDataSource<MapEntry<K, V>, ?>) shardSource).getItemKey(item);
+		return null == key ? null : Arrays.asList(shard, key);
+	}
+
+	@Override
+	public Object getInvalidEntryKey(@NonNull InvalidEntry invalidEntry) {
+		if (!(invalidEntry instanceof ShardInvalidEntry))
+			return null;
+		final ShardInvalidEntry shardInvalidEntry = (ShardInvalidEntry) invalidEntry;
+		final MapDataSource<K, V, ?> shardSource = shards.get(shardInvalidEntry.shard);
+		if (!(shardSource instanceof KeyedDataSource))
+			return null;
+		final Object key = ((KeyedDataSource<?, ?>) shardSource).getInvalidEntryKey(shardInvalidEntry.invalidEntry);
+		return null == key ? null : Arrays.asList(shardInvalidEntry.shard, key);
+	}
+
+	/**
+	 * Update in the shard of the key.
+	 */
+	@Override
+	public boolean update(final MapEntry<K, V> itemToUpdate, final ContentValues updateValues) {
+		final int shard = getShard(itemToUpdate.getKey());
+		return 0 != writeItem(shard, itemToUpdate, new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return shards.get(shard).update(itemToUpdate, updateValues) ? 1 : 0;
+			}
+		});
+	}
+
+	/**
+	 * Update in the shard of the key, the shard must be a {@link org.gawst.asyncdb.source.RowBinderDataSource}.
+	 */
+	@Override
+	public boolean update(@NonNull final MapEntry<K, V> itemToUpdate, @NonNull final MapEntry<K, V> newItem, @NonNull final RowBinder<MapEntry<K, V>> binder) {
+		final int shard = getShard(itemToUpdate.getKey());
+		final RowBinderDataSource<MapEntry<K, V>, ?> shardSource = getBinderShard(shard);
+		return 0 != writeItem(shard, itemToUpdate, new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return shardSource.update(itemToUpdate, newItem, binder) ? 1 : 0;
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private RowBinderDataSource<MapEntry<K, V>, ?> getBinderShard(int shard) {
+		final MapDataSource<K, V, ?> source = shards.get(shard);
+		if (!(source instanceof RowBinderDataSource))
+			throw new IllegalStateException(source + " doesn't support RowBinder writes");
+		return (RowBinderDataSource<MapEntry<K, V>, ?>) source;
+	}
+
+	@Override
+	public void eraseSource() {
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(shards.size());
+		for (final MapDataSource<K, V, ?> shard : shards) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					shard.eraseSource();
+					return null;
+				}
+			});
+		}
+		runInAllShards(tasks);
+	}
+
+	@Override
+	public String toString() {
+		return "ShardedMap:" + shards.size() + ':' + shards.get(0);
+	}
+}
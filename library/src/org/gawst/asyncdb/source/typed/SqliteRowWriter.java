@@ -0,0 +1,228 @@
+package org.gawst.asyncdb.source.typed;
+
+import org.gawst.asyncdb.RowWriter;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * {@link org.gawst.asyncdb.RowWriter} keeping the values of a row to bind them in a compiled {@link android.database.sqlite.SQLiteStatement}.
+ * <p>The statements are compiled once for each set of columns and reused as long as the database is the same.</p>
+ */
+class SqliteRowWriter implements RowWriter {
+
+	private static final int TYPE_NULL = 0;
+	private static final int TYPE_LONG = 1;
+	private static final int TYPE_DOUBLE = 2;
+	private static final int TYPE_STRING = 3;
+	private static final int TYPE_BLOB = 4;
+	private static final int MAX_STATEMENTS = 16;
+
+	private static class CachedStatement {
+		final String[] columns;
+		final String whereClause;
+		final SQLiteStatement statement;
+
+		CachedStatement(String[] columns, String whereClause, SQLiteStatement statement) {
+			this.columns = columns;
+			this.whereClause = whereClause;
+			this.statement = statement;
+		}
+	}
+
+	private String[] columns = new String[8];
+	private int[] types = new int[8];
+	private long[] longs = new long[8];
+	private double[] doubles = new double[8];
+	private Object[] objects = new Object[8];
+	private int count;
+
+	private final ArrayList<CachedStatement> statements = new ArrayList<CachedStatement>();
+	private SQLiteDatabase statementsDatabase;
+
+	void reset() {
+		for (int i = 0; i < count; ++i) {
+			objects[i] = null;
+		}
+		count = 0;
+	}
+
+	private int add(String column, int type) {
+		if (count == columns.length) {
+			final int size = count * 2;
+			String[] newColumns = new String[size];
+			System.arraycopy(columns, 0, newColumns, 0, count);
+			columns = newColumns;
+			int[] newTypes = new int[size];
+			System.arraycopy(types, 0, newTypes, 0, count);
+			types = newTypes;
+			long[] newLongs = new long[size];
+			System.arraycopy(longs, 0, newLongs, 0, count);
+			longs = newLongs;
+			double[] newDoubles = new double[size];
+			System.arraycopy(doubles, 0, newDoubles, 0, count);
+			doubles = newDoubles;
+			Object[] newObjects = new Object[size];
+			System.arraycopy(objects, 0, newObjects, 0, count);
+			objects = newObjects;
+		}
+		columns[count] = column;
+		types[count] = type;
+		return count++;
+	}
+
+	@Override
+	public void putNull(@NonNull String column) {
+		add(column, TYPE_NULL);
+	}
+
+	@Override
+	public void put(@NonNull String column, long value) {
+		longs[add(column, TYPE_LONG)] = value;
+	}
+
+	@Override
+	public void put(@NonNull String column, double value) {
+		doubles[add(column, TYPE_DOUBLE)] = value;
+	}
+
+	@Override
+	public void put(@NonNull String column, @Nullable String value) {
+		if (null == value)
+			putNull(column);
+		else
+			objects[add(column, TYPE_STRING)] = value;
+	}
+
+	@Override
+	public void put(@NonNull String column, @Nullable byte[] value) {
+		if (null == value)
+			putNull(column);
+		else
+			objects[add(column, TYPE_BLOB)] = value;
+	}
+
+	/**
+	 * @return The INSERT statement for the columns written, {@code null} if there are none.
+	 */
+	@Nullable
+	SQLiteStatement getInsertStatement(@NonNull SQLiteDatabase database, @NonNull String tableName) {
+		if (count == 0)
+			return null;
+		SQLiteStatement statement = getCachedStatement(database, null);
+		if (null == statement) {
+			StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
+			for (int i = 0; i < count; ++i) {
+				if (i != 0) sql.append(',');
+				sql.append(columns[i]);
+			}
+			sql.append(") VALUES (");
+			for (int i = 0; i < count; ++i) {
+				if (i != 0) sql.append(',');
+				sql.append('?');
+			}
+			sql.append(')');
+			statement = cacheStatement(database, null, sql.toString());
+		}
+		return statement;
+	}
+
+	/**
+	 * @return The UPDATE statement for the columns written, {@code null} if there are none.
+	 */
+	@Nullable
+	SQLiteStatement getUpdateStatement(@NonNull SQLiteDatabase database, @NonNull String tableName, @NonNull String whereClause) {
+		if (count == 0)
+			return null;
+		SQLiteStatement statement = getCachedStatement(database, whereClause);
+		if (null == statement) {
+			StringBuilder sql = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+			for (int i = 0; i < count; ++i) {
+				if (i != 0) sql.append(',');
+				sql.append(columns[i]).append("=?");
+			}
+			sql.append(" WHERE ").append(whereClause);
+			statement = cacheStatement(database, whereClause, sql.toString());
+		}
+		return statement;
+	}
+
+	/**
+	 * Bind the values written in the {@code statement}.
+	 *
+	 * @return The index of the next argument to bind.
+	 */
+	int bind(@NonNull SQLiteProgram statement) {
+		statement.clearBindings();
+		for (int i = 0; i < count; ++i) {
+			switch (types[i]) {
+				case TYPE_LONG:
+					statement.bindLong(i + 1, longs[i]);
+					break;
+				case TYPE_DOUBLE:
+					statement.bindDouble(i + 1, doubles[i]);
+					break;
+				case TYPE_STRING:
+					statement.bindString(i + 1, (String) objects[i]);
+					break;
+				case TYPE_BLOB:
+					statement.bindBlob(i + 1, (byte[]) objects[i]);
+					break;
+				default:
+					statement.bindNull(i + 1);
+					break;
+			}
+		}
+		return count + 1;
+	}
+
+	private SQLiteStatement getCachedStatement(SQLiteDatabase database, String whereClause) {
+		if (database != statementsDatabase) {
+			// the compiled statements belong to the previous database
+			close();
+			statementsDatabase = database;
+			return null;
+		}
+		for (int i = 0, size = statements.size(); i < size; ++i) {
+			final CachedStatement cached = statements.get(i);
+			if (cached.columns.length == count && (null == whereClause ? null == cached.whereClause : whereClause.equals(cached.whereClause)) && sameColumns(cached.columns))
+				return cached.statement;
+		}
+		return null;
+	}
+
+	private boolean sameColumns(String[] cachedColumns) {
+		for (int i = 0; i < count; ++i) {
+			if (!cachedColumns[i].equals(columns[i]))
+				return false;
+		}
+		return true;
+	}
+
+	private SQLiteStatement cacheStatement(SQLiteDatabase database, String whereClause, String sql) {
+		if (statements.size() == MAX_STATEMENTS) {
+			statements.remove(0).statement.close();
+		}
+		final SQLiteStatement statement = database.compileStatement(sql);
+		final String[] statementColumns = new String[count];
+		System.arraycopy(columns, 0, statementColumns, 0, count);
+		statements.add(new CachedStatement(statementColumns, whereClause, statement));
+		return statement;
+	}
+
+	/**
+	 * Release the compiled statements.
+	 */
+	void close() {
+		for (CachedStatement cached : statements) {
+			cached.statement.close();
+		}
+		statements.clear();
+		statementsDatabase = null;
+	}
+}
@@ -0,0 +1,24 @@
+package org.gawst.asyncdb.source.typed;
+
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.NonNull;
+
+/**
+ * Interface for the data sources that read/write their elements in an SQLite table.
+ *
+ * @see org.gawst.asyncdb.source.typed.TypedSqliteDataSource
+ * @see org.gawst.asyncdb.source.typed.TypedSqliteMapDataSource
+ */
+public interface SqliteTableSource {
+	/**
+	 * @return Name of the SQL table that contains the elements.
+	 */
+	@NonNull
+	String getTableName();
+
+	/**
+	 * @return The SQL database used to read/write data.
+	 */
+	@NonNull
+	SQLiteOpenHelper getSQLiteOpenHelper();
+}
@@ -0,0 +1,22 @@
+package org.gawst.asyncdb.source.typed;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Interface for {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource} that can run a batch of operations at once.
+ *
+ * @param <INSERT_ID> Type of element returned by {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource#insert(android.content.ContentValues) insert()}
+ */
+public interface TypedBatchDatabaseSource<INSERT_ID> {
+	/**
+	 * Run all the {@code operations} in a single transaction. If one operation fails none of them is applied.
+	 *
+	 * @param operations The operations to run, in order.
+	 * @return The result of each operation, in the same order as {@code operations}.
+	 * @throws RuntimeException if the batch failed.
+	 */
+	@NonNull
+	List<TypedBatchResult<INSERT_ID>> applyBatch(@NonNull List<TypedBatchOperation> operations) throws RuntimeException;
+}
@@ -0,0 +1,91 @@
+package org.gawst.asyncdb.source.typed;
+
+import android.content.ContentValues;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A single insert/update/delete operation of a batch run by a {@link org.gawst.asyncdb.source.typed.TypedBatchDatabaseSource}.
+ *
+ * @see org.gawst.asyncdb.typed.TypedAsyncDatabaseHandler#startBatch(int, Object, org.gawst.asyncdb.typed.TypedAsyncDatabaseHandler.Batch)
+ */
+public final class TypedBatchOperation {
+
+	/**
+	 * The kind of operation to do.
+	 */
+	public enum Type {
+		INSERT,
+		UPDATE,
+		DELETE,
+	}
+
+	public final Type type;
+	@Nullable
+	public final ContentValues values;
+	@Nullable
+	public final String selection;
+	@Nullable
+	public final String[] selectionArgs;
+
+	private TypedBatchOperation(Type type, ContentValues values, String selection, String[] selectionArgs) {
+		this.type = type;
+		this.values = values;
+		this.selection = selection;
+		this.selectionArgs = selectionArgs;
+	}
+
+	/**
+	 * @param values The values of the new row.
+	 * @return An operation that inserts a row.
+	 */
+	public static TypedBatchOperation newInsert(@NonNull ContentValues values) {
+		return new TypedBatchOperation(Type.INSERT, values, null, null);
+	}
+
+	/**
+	 * @param values        The new values of the rows.
+	 * @param selection     A filter to apply to rows before updating, formatted as an SQL WHERE clause (excluding the WHERE itself).
+	 * @param selectionArgs The values of the ?s in the {@code selection}.
+	 * @return An operation that updates rows.
+	 */
+	public static TypedBatchOperation newUpdate(@NonNull ContentValues values, @Nullable String selection, @Nullable String[] selectionArgs) {
+		return new TypedBatchOperation(Type.UPDATE, values, selection, selectionArgs);
+	}
+
+	/**
+	 * @param selection     A filter to apply to rows before deleting, formatted as an SQL WHERE clause (excluding the WHERE itself).
+	 * @param selectionArgs The values of the ?s in the {@code selection}.
+	 * @return An operation that deletes rows.
+	 */
+	public static TypedBatchOperation newDelete(@Nullable String selection, @Nullable String[] selectionArgs) {
+		return new TypedBatchOperation(Type.DELETE, null, selection, selectionArgs);
+	}
+
+	/**
+	 * Run the operation on its own in the {@code source}.
+	 *
+	 * @param source The source to write in.
+	 * @return The result of the operation.
+	 */
+	@NonNull
+	public <INSERT_ID> TypedBatchResult<INSERT_ID> apply(@NonNull TypedDatabaseSource<INSERT_ID, ?, ?> source) {
+		switch (type) {
+			case INSERT:
+				return new TypedBatchResult<INSERT_ID>(source.insert(values));
+			case UPDATE:
+				return new TypedBatchResult<INSERT_ID>(source.update(values, selection, selectionArgs));
+			case DELETE:
+				return new TypedBatchResult<INSERT_ID>(source.delete(selection, selectionArgs));
+			default:
+				throw new IllegalStateException("unknown operation " + type);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "{" + type + ' ' + values + " where " + selection + ' ' + Arrays.toString(selectionArgs) + '}';
+	}
+}
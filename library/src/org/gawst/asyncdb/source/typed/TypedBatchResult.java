@@ -0,0 +1,34 @@
+package org.gawst.asyncdb.source.typed;
+
+/**
+ * The result of a {@link org.gawst.asyncdb.source.typed.TypedBatchOperation}, similar to
+ * {@link android.content.ContentProviderResult ContentProviderResult}.
+ *
+ * @param <INSERT_ID> Type of element returned by {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource#insert(android.content.ContentValues) insert()}
+ */
+public final class TypedBatchResult<INSERT_ID> {
+	/**
+	 * The ID of the inserted row for an {@link org.gawst.asyncdb.source.typed.TypedBatchOperation.Type#INSERT INSERT} operation.
+	 */
+	public final INSERT_ID insertId;
+	/**
+	 * The number of rows affected by an {@link org.gawst.asyncdb.source.typed.TypedBatchOperation.Type#UPDATE UPDATE} or
+	 * {@link org.gawst.asyncdb.source.typed.TypedBatchOperation.Type#DELETE DELETE} operation.
+	 */
+	public final int count;
+
+	public TypedBatchResult(INSERT_ID insertId) {
+		this.insertId = insertId;
+		this.count = null == insertId ? 0 : 1;
+	}
+
+	public TypedBatchResult(int count) {
+		this.insertId = null;
+		this.count = count;
+	}
+
+	@Override
+	public String toString() {
+		return null != insertId ? "{insertId=" + insertId + '}' : "{count=" + count + '}';
+	}
+}
@@ -0,0 +1,27 @@
+package org.gawst.asyncdb.source.typed;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.support.annotation.Nullable;
+
+/**
+ * Interface for {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource} that can abort a query while it's running.
+ *
+ * @param <CURSOR> Wrapper around the raw {@code Cursor} read
+ */
+public interface TypedCancellableDatabaseSource<CURSOR extends Cursor> {
+	/**
+	 * Query the {@link org.gawst.asyncdb.source.DatabaseSource} with an SQL-like syntax.
+	 *
+	 * @param cancellationSignal A signal to cancel the operation in progress, or {@code null} if none.
+	 *                           If the operation is canceled, then {@link android.os.OperationCanceledException} will be thrown.
+	 * @return a {@link android.database.Cursor} containing the result of the selection.
+	 * @see org.gawst.asyncdb.source.typed.TypedDatabaseSource#query(String[], String, String[], String, String, String, String)
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	CURSOR query(@Nullable String[] columns, @Nullable String selection, @Nullable String[] selectionArgs,
+	             @Nullable String groupBy, @Nullable String having, @Nullable String orderBy, @Nullable String limit,
+	             @Nullable CancellationSignal cancellationSignal);
+}
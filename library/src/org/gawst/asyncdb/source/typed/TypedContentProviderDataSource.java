@@ -1,14 +1,24 @@
 package org.gawst.asyncdb.source.typed;
 
+import android.annotation.TargetApi;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.RemoteException;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A {@link org.gawst.asyncdb.DataSource} reading/writing data using a {@link android.content.ContentProvider ContentProvider}
  *
@@ -16,7 +26,7 @@ import android.text.TextUtils;
  * @param <CURSOR> Wrapper around the raw {@code Cursor} read
  * @author Created by robUx4 on 11/01/2015.
  */
-public abstract class TypedContentProviderDataSource<E, CURSOR extends Cursor> extends TypedCursorDataSource<E, Uri, Uri, CURSOR> {
+public abstract class TypedContentProviderDataSource<E, CURSOR extends Cursor> extends TypedCursorDataSource<E, Uri, Uri, CURSOR> implements TypedCancellableDatabaseSource<CURSOR>, TypedBatchDatabaseSource<Uri> {
 	public final Uri contentProviderUri;
 	private final Context context;
 	private final ContentResolver contentResolver;
@@ -62,6 +72,12 @@ public abstract class TypedContentProviderDataSource<E, CURSOR extends Cursor> e
 
 	@Override
 	public CURSOR query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit) {
+		return query(columns, selection, selectionArgs, groupBy, having, orderBy, limit, null);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	@Override
+	public CURSOR query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit, CancellationSignal cancellationSignal) {
 		Uri uri = contentProviderUri;
 		if (!TextUtils.isEmpty(groupBy)) {
 			orderBy = getGroupOrderBy(orderBy, groupBy);
@@ -75,7 +91,9 @@ public abstract class TypedContentProviderDataSource<E, CURSOR extends Cursor> e
 			orderBy = getLimitOrderBy(orderBy, limit);
 			uri = getLimitUri(uri, limit);
 		}
-		return wrapCursor(getContentResolver().query(uri, columns, selection, selectionArgs, orderBy));
+		if (null == cancellationSignal)
+			return wrapCursor(getContentResolver().query(uri, columns, selection, selectionArgs, orderBy));
+		return wrapCursor(getContentResolver().query(uri, columns, selection, selectionArgs, orderBy, cancellationSignal));
 	}
 
 	/**
@@ -158,6 +176,43 @@ public abstract class TypedContentProviderDataSource<E, CURSOR extends Cursor> e
 		return getContentResolver().delete(contentProviderUri, selection, selectionArgs);
 	}
 
+	@NonNull
+	@Override
+	public List<TypedBatchResult<Uri>> applyBatch(@NonNull List<TypedBatchOperation> operations) throws RuntimeException {
+		ArrayList<ContentProviderOperation> providerOperations = new ArrayList<ContentProviderOperation>(operations.size());
+		for (TypedBatchOperation operation : operations) {
+			switch (operation.type) {
+				case INSERT:
+					providerOperations.add(ContentProviderOperation.newInsert(contentProviderUri).withValues(operation.values).build());
+					break;
+				case UPDATE:
+					providerOperations.add(ContentProviderOperation.newUpdate(contentProviderUri).withValues(operation.values).withSelection(operation.selection, operation.selectionArgs).build());
+					break;
+				case DELETE:
+					providerOperations.add(ContentProviderOperation.newDelete(contentProviderUri).withSelection(operation.selection, operation.selectionArgs).build());
+					break;
+			}
+		}
+
+		ContentProviderResult[] providerResults;
+		try {
+			providerResults = getContentResolver().applyBatch(contentProviderUri.getAuthority(), providerOperations);
+		} catch (RemoteException e) {
+			throw new IllegalStateException("failed to apply batch on " + contentProviderUri, e);
+		} catch (OperationApplicationException e) {
+			throw new IllegalStateException("failed to apply batch on " + contentProviderUri, e);
+		}
+
+		List<TypedBatchResult<Uri>> results = new ArrayList<TypedBatchResult<Uri>>(providerResults.length);
+		for (ContentProviderResult providerResult : providerResults) {
+			if (null != providerResult.uri)
+				results.add(new TypedBatchResult<Uri>(providerResult.uri));
+			else
+				results.add(new TypedBatchResult<Uri>(null == providerResult.count ? 0 : providerResult.count));
+		}
+		return results;
+	}
+
 	/**
 	 * Does nothing for a {@link android.content.ContentProvider}
 	 */
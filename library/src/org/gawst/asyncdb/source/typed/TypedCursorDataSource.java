@@ -4,9 +4,11 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.support.annotation.NonNull;
 
-import org.gawst.asyncdb.DataSource;
 import org.gawst.asyncdb.InvalidDbEntry;
 import org.gawst.asyncdb.InvalidEntry;
+import org.gawst.asyncdb.source.KeyedDataSource;
+
+import java.util.Arrays;
 
 /**
  * Abstract helper {@link org.gawst.asyncdb.DataSource} class reading using a {@link android.database.Cursor}.
@@ -18,7 +20,7 @@ import org.gawst.asyncdb.InvalidEntry;
  * @see TypedSqliteDataSource
  * @see TypedSqliteMapDataSource
  */
-public abstract class TypedCursorDataSource<E, INSERT_ID, DATABASE_ID, CURSOR extends Cursor> implements DataSource<E, INSERT_ID>, TypedDatabaseSource<INSERT_ID, DATABASE_ID, CURSOR> {
+public abstract class TypedCursorDataSource<E, INSERT_ID, DATABASE_ID, CURSOR extends Cursor> implements KeyedDataSource<E, INSERT_ID>, TypedDatabaseSource<INSERT_ID, DATABASE_ID, CURSOR> {
 
 	private final TypedDatabaseElementHandler<E, CURSOR> databaseElementHandler;
 
@@ -33,6 +35,14 @@ public abstract class TypedCursorDataSource<E, INSERT_ID, DATABASE_ID, CURSOR ex
 		this.databaseElementHandler = databaseElementHandler;
 	}
 
+	/**
+	 * @return The handler used to transform {@code Cursor} to {@link E} elements.
+	 */
+	@NonNull
+	public TypedDatabaseElementHandler<E, CURSOR> getDatabaseElementHandler() {
+		return databaseElementHandler;
+	}
+
 	@Override
 	public final boolean update(E itemToUpdate, ContentValues updateValues) {
 		return update(updateValues, databaseElementHandler.getItemSelectClause(itemToUpdate), databaseElementHandler.getItemSelectArgs(itemToUpdate)) != 0;
@@ -69,6 +79,17 @@ public abstract class TypedCursorDataSource<E, INSERT_ID, DATABASE_ID, CURSOR ex
 		return delete(databaseElementHandler.getItemSelectClause(null), invalidEntry.getSelectArgs()) != 0;
 	}
 
+	@Override
+	public Object getItemKey(@NonNull E item) {
+		return Arrays.asList(databaseElementHandler.getItemSelectArgs(item));
+	}
+
+	@Override
+	public Object getInvalidEntryKey(@NonNull InvalidEntry invalidEntry) {
+		final String[] selectArgs = invalidEntry.getSelectArgs();
+		return null == selectArgs ? null : Arrays.asList(selectArgs);
+	}
+
 	protected String getToStringHeader() {
 		return "TypedCursor";
 	}
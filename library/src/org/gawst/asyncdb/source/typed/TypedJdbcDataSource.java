@@ -0,0 +1,375 @@
+package org.gawst.asyncdb.source.typed;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.gawst.asyncdb.AsynchronousDbHelper;
+import org.gawst.asyncdb.CursorSnapshot;
+import org.gawst.asyncdb.LogManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link org.gawst.asyncdb.DataSource} backed by a JDBC {@link javax.sql.DataSource}, to use the library outside of Android.
+ * <p>A connection is taken from the {@code DataSource} for each call, so it should be a connection pool.
+ * All the values are written with prepared statements. Queries are read in memory in a {@link org.gawst.asyncdb.CursorSnapshot}
+ * before the connection is returned to the pool.</p>
+ * <p>{@link #applyBatch(java.util.List)} runs all the operations in a single transaction and sends consecutive updates/deletes
+ * with the same SQL as a single JDBC batch.</p>
+ * <p>The {@code limit} of the queries uses the Android syntax, {@code "count"} or {@code "offset,count"}. It's applied with
+ * {@link java.sql.Statement#setMaxRows(int)} and by skipping rows, so it works with any JDBC driver.</p>
+ * <p>The source still returns Android {@code Cursor} objects and writes {@code ContentValues}, running it outside of Android
+ * needs a Java implementation of those classes on the classpath, see {@link org.gawst.asyncdb.JavaDbScheduler}.</p>
+ *
+ * @param <E>      Type of the elements read from the {@code CURSOR}
+ * @param <CURSOR> Wrapper around the raw {@code Cursor} read
+ */
+public abstract class TypedJdbcDataSource<E, CURSOR extends Cursor> extends TypedCursorDataSource<E, Long, Void, CURSOR> implements TypedBatchDatabaseSource<Long> {
+
+	private static final Comparator<Map.Entry<String, Object>> COLUMN_ORDER = new Comparator<Map.Entry<String, Object>>() {
+		@Override
+		public int compare(Map.Entry<String, Object> lhs, Map.Entry<String, Object> rhs) {
+			return lhs.getKey().compareTo(rhs.getKey());
+		}
+	};
+
+	private final javax.sql.DataSource dataSource;
+	private final String tableName;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dataSource             The (pooled) JDBC source of connections to the database.
+	 * @param tableName              Name of the SQL table that contains the elements to read.
+	 * @param databaseElementHandler Handler to transform {@code Cursor} into {@link E} elements or {@link E} elements to selections.
+	 */
+	public TypedJdbcDataSource(@NonNull javax.sql.DataSource dataSource, @NonNull String tableName, @NonNull TypedDatabaseElementHandler<E, CURSOR> databaseElementHandler) {
+		super(databaseElementHandler);
+		if (dataSource == null) throw new NullPointerException("null JDBC DataSource in " + this);
+		this.dataSource = dataSource;
+		this.tableName = tableName;
+	}
+
+	@Override
+	public Void getDatabaseId() {
+		return null;
+	}
+
+	/**
+	 * @return Name of the SQL table that contains the elements.
+	 */
+	@NonNull
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * @return The JDBC source of connections to the database.
+	 */
+	@NonNull
+	public javax.sql.DataSource getJdbcDataSource() {
+		return dataSource;
+	}
+
+	@Override
+	public CURSOR query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit) {
+		StringBuilder sql = new StringBuilder(64);
+		sql.append("SELECT ");
+		if (null == columns || 0 == columns.length) {
+			sql.append('*');
+		} else {
+			for (int i = 0; i < columns.length; ++i) {
+				if (i != 0) sql.append(',');
+				sql.append(columns[i]);
+			}
+		}
+		sql.append(" FROM ").append(tableName);
+		appendClause(sql, " WHERE ", selection);
+		appendClause(sql, " GROUP BY ", groupBy);
+		appendClause(sql, " HAVING ", having);
+		appendClause(sql, " ORDER BY ", orderBy);
+
+		int offset = 0;
+		int count = -1;
+		if (null != limit && limit.length() != 0) {
+			String[] limitValues = limit.split(",");
+			try {
+				if (limitValues.length == 1) {
+					count = Integer.parseInt(limitValues[0].trim());
+				} else if (limitValues.length == 2) {
+					offset = Integer.parseInt(limitValues[0].trim());
+					count = Integer.parseInt(limitValues[1].trim());
+				} else {
+					throw new IllegalArgumentException("invalid limit '" + limit + "' in " + this);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("invalid limit '" + limit + "' in " + this, e);
+			}
+		}
+
+		try {
+			Connection connection = dataSource.getConnection();
+			try {
+				PreparedStatement statement = connection.prepareStatement(sql.toString());
+				try {
+					bindArgs(statement, 1, selectionArgs);
+					if (count >= 0)
+						statement.setMaxRows((int) Math.min(Integer.MAX_VALUE, (long) offset + count));
+					ResultSet resultSet = statement.executeQuery();
+					try {
+						for (int skipped = 0; skipped < offset && resultSet.next(); ++skipped) {
+							// the rows before the offset are not returned
+						}
+						return wrapCursor(CursorSnapshot.copyOf(resultSet).newCursor());
+					} finally {
+						resultSet.close();
+					}
+				} finally {
+					statement.close();
+				}
+			} finally {
+				connection.close();
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("failed to query " + sql + " in " + this, e);
+		}
+	}
+
+	@Override
+	public int clearAllData() {
+		return delete(null, null);
+	}
+
+	@Override
+	public Long insert(@NonNull ContentValues values) throws RuntimeException {
+		try {
+			Connection connection = dataSource.getConnection();
+			try {
+				return insert(connection, new HashMap<String, PreparedStatement>(1), values);
+			} finally {
+				connection.close();
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("failed to insert " + values + " in " + this, e);
+		}
+	}
+
+	@Override
+	public int update(@NonNull ContentValues updateValues, String selection, String[] selectionArgs) {
+		return executeUpdate(TypedBatchOperation.newUpdate(updateValues, selection, selectionArgs));
+	}
+
+	@Override
+	public int delete(String selection, String[] selectionArgs) {
+		return executeUpdate(TypedBatchOperation.newDelete(selection, selectionArgs));
+	}
+
+	private int executeUpdate(TypedBatchOperation operation) {
+		try {
+			Connection connection = dataSource.getConnection();
+			try {
+				PreparedStatement statement = connection.prepareStatement(getSql(operation));
+				try {
+					bindOperation(statement, operation);
+					return statement.executeUpdate();
+				} finally {
+					statement.close();
+				}
+			} finally {
+				connection.close();
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("failed to run " + operation + " in " + this, e);
+		}
+	}
+
+	@NonNull
+	@Override
+	public List<TypedBatchResult<Long>> applyBatch(@NonNull List<TypedBatchOperation> operations) throws RuntimeException {
+		List<TypedBatchResult<Long>> results = new ArrayList<TypedBatchResult<Long>>(operations.size());
+		try {
+			Connection connection = dataSource.getConnection();
+			HashMap<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+			boolean autoCommit = connection.getAutoCommit();
+			try {
+				connection.setAutoCommit(false);
+				int i = 0;
+				while (i < operations.size()) {
+					TypedBatchOperation operation = operations.get(i);
+					if (operation.type == TypedBatchOperation.Type.INSERT) {
+						results.add(new TypedBatchResult<Long>(insert(connection, statements, operation.values)));
+						++i;
+						continue;
+					}
+
+					// send all the following updates/deletes with the same SQL at once
+					String sql = getSql(operation);
+					PreparedStatement statement = prepare(connection, statements, sql, false);
+					int end = i;
+					do {
+						bindOperation(statement, operations.get(end));
+						statement.addBatch();
+						++end;
+					} while (end < operations.size() && operations.get(end).type != TypedBatchOperation.Type.INSERT && sql.equals(getSql(operations.get(end))));
+
+					int[] counts = statement.executeBatch();
+					for (int j = 0; j < end - i; ++j) {
+						results.add(new TypedBatchResult<Long>(j < counts.length ? Math.max(0, counts[j]) : 0));
+					}
+					i = end;
+				}
+				connection.commit();
+			} catch (SQLException e) {
+				rollback(connection);
+				throw e;
+			} catch (RuntimeException e) {
+				rollback(connection);
+				throw e;
+			} finally {
+				for (PreparedStatement statement : statements.values()) {
+					statement.close();
+				}
+				connection.setAutoCommit(autoCommit);
+				connection.close();
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("failed to apply batch in " + this, e);
+		}
+		return results;
+	}
+
+	/**
+	 * Roll back the transaction, a failure is only logged so it doesn't hide the exception that caused the rollback.
+	 */
+	private void rollback(Connection connection) {
+		try {
+			connection.rollback();
+		} catch (SQLException e) {
+			LogManager.log(LogManager.WARN, AsynchronousDbHelper.TAG, "failed to rollback the batch in {}", this, e);
+		}
+	}
+
+	/**
+	 * The JDBC database can't be erased, all the rows of the table are deleted instead.
+	 */
+	@Override
+	public void eraseSource() {
+		clearAllData();
+	}
+
+	private Long insert(Connection connection, Map<String, PreparedStatement> statements, ContentValues values) throws SQLException {
+		List<Map.Entry<String, Object>> columns = getColumns(values);
+		if (columns.isEmpty())
+			throw new IllegalArgumentException("no values to insert in " + this);
+		StringBuilder sql = new StringBuilder(64);
+		sql.append("INSERT INTO ").append(tableName).append(" (");
+		for (int i = 0; i < columns.size(); ++i) {
+			if (i != 0) sql.append(',');
+			sql.append(columns.get(i).getKey());
+		}
+		sql.append(") VALUES (");
+		for (int i = 0; i < columns.size(); ++i) {
+			if (i != 0) sql.append(',');
+			sql.append('?');
+		}
+		sql.append(')');
+
+		PreparedStatement statement = prepare(connection, statements, sql.toString(), true);
+		for (int i = 0; i < columns.size(); ++i) {
+			statement.setObject(i + 1, columns.get(i).getValue());
+		}
+		if (statement.executeUpdate() == 0)
+			return null;
+
+		ResultSet generatedKeys = statement.getGeneratedKeys();
+		try {
+			if (null != generatedKeys && generatedKeys.next())
+				return generatedKeys.getLong(1);
+		} finally {
+			if (null != generatedKeys)
+				generatedKeys.close();
+		}
+		return 0L;
+	}
+
+	private static PreparedStatement prepare(Connection connection, Map<String, PreparedStatement> statements, String sql, boolean generatedKeys) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if (null == statement) {
+			if (generatedKeys)
+				statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			else
+				statement = connection.prepareStatement(sql);
+			statements.put(sql, statement);
+		} else {
+			statement.clearParameters();
+		}
+		return statement;
+	}
+
+	private String getSql(TypedBatchOperation operation) {
+		StringBuilder sql = new StringBuilder(64);
+		if (operation.type == TypedBatchOperation.Type.UPDATE) {
+			sql.append("UPDATE ").append(tableName).append(" SET ");
+			List<Map.Entry<String, Object>> columns = getColumns(operation.values);
+			for (int i = 0; i < columns.size(); ++i) {
+				if (i != 0) sql.append(',');
+				sql.append(columns.get(i).getKey()).append("=?");
+			}
+		} else if (operation.type == TypedBatchOperation.Type.DELETE) {
+			sql.append("DELETE FROM ").append(tableName);
+		} else {
+			throw new IllegalArgumentException("unsupported operation " + operation);
+		}
+		appendClause(sql, " WHERE ", operation.selection);
+		return sql.toString();
+	}
+
+	private static void bindOperation(PreparedStatement statement, TypedBatchOperation operation) throws SQLException {
+		int index = 1;
+		if (operation.type == TypedBatchOperation.Type.UPDATE) {
+			for (Map.Entry<String, Object> column : getColumns(operation.values)) {
+				statement.setObject(index++, column.getValue());
+			}
+		}
+		bindArgs(statement, index, operation.selectionArgs);
+	}
+
+	private static void bindArgs(PreparedStatement statement, int index, @Nullable String[] args) throws SQLException {
+		if (null != args) {
+			for (String arg : args) {
+				statement.setString(index++, arg);
+			}
+		}
+	}
+
+	private static List<Map.Entry<String, Object>> getColumns(@Nullable ContentValues values) {
+		if (null == values)
+			return Collections.emptyList();
+		List<Map.Entry<String, Object>> columns = new ArrayList<Map.Entry<String, Object>>(values.valueSet());
+		// always use the same SQL for the same columns so the statements can be reused
+		Collections.sort(columns, COLUMN_ORDER);
+		return columns;
+	}
+
+	private static void appendClause(StringBuilder sql, String name, @Nullable String clause) {
+		if (null != clause && clause.length() != 0)
+			sql.append(name).append(clause);
+	}
+
+	@Override
+	protected String getToStringHeader() {
+		return "TypedJdbc table=" + tableName;
+	}
+}
@@ -4,14 +4,21 @@ import android.annotation.TargetApi;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
+import android.os.CancellationSignal;
 import android.support.annotation.NonNull;
 
+import org.gawst.asyncdb.RowBinder;
 import org.gawst.asyncdb.adapter.UIHandler;
+import org.gawst.asyncdb.source.RowBinderDataSource;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A {@link org.gawst.asyncdb.DataSource} backed by a {@link android.database.sqlite.SQLiteOpenHelper} storage.
@@ -20,12 +27,13 @@ import java.io.File;
  * @param <CURSOR> Wrapper around the raw {@code Cursor} read
  * @author Created by robUx4 on 11/01/2015.
  */
-public abstract class TypedSqliteDataSource<E, CURSOR extends Cursor> extends TypedCursorDataSource<E, Long, Void, CURSOR> {
+public abstract class TypedSqliteDataSource<E, CURSOR extends Cursor> extends TypedCursorDataSource<E, Long, Void, CURSOR> implements TypedCancellableDatabaseSource<CURSOR>, TypedBatchDatabaseSource<Long>, RowBinderDataSource<E, Long>, SqliteTableSource {
 
 	private final Context context;
 	private final SQLiteOpenHelper db;
 	private final String tableName;
 	private final String databaseName;
+	private final SqliteRowWriter rowWriter = new SqliteRowWriter();
 
 	/**
 	 * Constructor. (API v14 minimum)
@@ -62,11 +70,35 @@ public abstract class TypedSqliteDataSource<E, CURSOR extends Cursor> extends Ty
 		return null;
 	}
 
+	/**
+	 * @return Name of the SQL table that contains the elements.
+	 */
+	@NonNull
+	@Override
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * @return The SQL database used to read/write data.
+	 */
+	@NonNull
+	@Override
+	public SQLiteOpenHelper getSQLiteOpenHelper() {
+		return db;
+	}
+
 	public CURSOR query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit) {
 		//UIHandler.assertNotUIThread();
 		return wrapCursor(db.getReadableDatabase().query(tableName, columns, selection, selectionArgs, groupBy, having, orderBy, limit));
 	}
 
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	@Override
+	public CURSOR query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit, CancellationSignal cancellationSignal) {
+		return wrapCursor(db.getReadableDatabase().query(false, tableName, columns, selection, selectionArgs, groupBy, having, orderBy, limit, cancellationSignal));
+	}
+
 	@Override
 	public int clearAllData() {
 		UIHandler.assertNotUIThread();
@@ -83,6 +115,50 @@ public abstract class TypedSqliteDataSource<E, CURSOR extends Cursor> extends Ty
 		return id;
 	}
 
+	@Override
+	public Long insert(@NonNull E item, @NonNull RowBinder<E> binder) throws RuntimeException {
+		synchronized (rowWriter) {
+			rowWriter.reset();
+			binder.bind(item, false, rowWriter);
+			SQLiteStatement statement = rowWriter.getInsertStatement(db.getWritableDatabase(), tableName);
+			if (null == statement)
+				return null;
+			rowWriter.bind(statement);
+			long id = statement.executeInsert();
+			if (id == -1)
+				return null;
+			return id;
+		}
+	}
+
+	@Override
+	public boolean update(@NonNull E itemToUpdate, @NonNull E newItem, @NonNull RowBinder<E> binder) {
+		synchronized (rowWriter) {
+			rowWriter.reset();
+			binder.bind(newItem, true, rowWriter);
+			SQLiteDatabase database = db.getWritableDatabase();
+			SQLiteStatement statement = rowWriter.getUpdateStatement(database, tableName, getDatabaseElementHandler().getItemSelectClause(itemToUpdate));
+			if (null == statement)
+				return false;
+			int argIndex = rowWriter.bind(statement);
+			for (String arg : getDatabaseElementHandler().getItemSelectArgs(itemToUpdate)) {
+				if (null == arg)
+					statement.bindNull(argIndex++);
+				else
+					statement.bindString(argIndex++, arg);
+			}
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB)
+				return executeUpdateDelete(statement) != 0;
+			statement.execute();
+			return DatabaseUtils.longForQuery(database, "SELECT changes()", null) != 0;
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private static int executeUpdateDelete(SQLiteStatement statement) {
+		return statement.executeUpdateDelete();
+	}
+
 	@Override
 	public int update(@NonNull ContentValues updateValues, String selection, String[] selectionArgs) {
 		return db.getWritableDatabase().update(tableName, updateValues, selection, selectionArgs);
@@ -94,8 +170,29 @@ public abstract class TypedSqliteDataSource<E, CURSOR extends Cursor> extends Ty
 		return db.getWritableDatabase().delete(tableName, selection, selectionArgs);
 	}
 
+	@NonNull
+	@Override
+	public List<TypedBatchResult<Long>> applyBatch(@NonNull List<TypedBatchOperation> operations) throws RuntimeException {
+		UIHandler.assertNotUIThread();
+		List<TypedBatchResult<Long>> results = new ArrayList<TypedBatchResult<Long>>(operations.size());
+		SQLiteDatabase database = db.getWritableDatabase();
+		database.beginTransaction();
+		try {
+			for (TypedBatchOperation operation : operations) {
+				results.add(operation.apply(this));
+			}
+			database.setTransactionSuccessful();
+		} finally {
+			database.endTransaction();
+		}
+		return results;
+	}
+
 	@Override
 	public void eraseSource() {
+		synchronized (rowWriter) {
+			rowWriter.close();
+		}
 		File corruptedDbFile = context.getDatabasePath(databaseName);
 		corruptedDbFile.delete();
 	}
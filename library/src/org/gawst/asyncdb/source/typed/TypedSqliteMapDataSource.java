@@ -3,7 +3,10 @@ package org.gawst.asyncdb.source.typed;
 import org.gawst.asyncdb.InvalidDbEntry;
 import org.gawst.asyncdb.InvalidEntry;
 import org.gawst.asyncdb.MapEntry;
+import org.gawst.asyncdb.RowBinder;
+import org.gawst.asyncdb.source.KeyedDataSource;
 import org.gawst.asyncdb.source.MapDataSource;
+import org.gawst.asyncdb.source.RowBinderDataSource;
 
 import android.annotation.TargetApi;
 import android.content.ContentValues;
@@ -11,9 +14,12 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.os.Build;
+import android.os.CancellationSignal;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.util.List;
+
 /**
  * A {@link org.gawst.asyncdb.DataSource} backed by a {@link android.database.sqlite.SQLiteOpenHelper} storage that uses a
  * Key/Value based {@link org.gawst.asyncdb.source.DatabaseElementHandler} to read/write elements from the database
@@ -23,7 +29,7 @@ import android.support.annotation.Nullable;
  * @param <CURSOR> Wrapper around the raw {@code Cursor} read
  * @author Created by robUx4 on 11/01/2015.
  */
-public abstract class TypedSqliteMapDataSource<K, V, CURSOR extends Cursor> implements MapDataSource<K, V, Long>, TypedDatabaseSource<Long, Void, CURSOR> {
+public abstract class TypedSqliteMapDataSource<K, V, CURSOR extends Cursor> implements MapDataSource<K, V, Long>, KeyedDataSource<MapEntry<K, V>, Long>, TypedDatabaseSource<Long, Void, CURSOR>, TypedCancellableDatabaseSource<CURSOR>, TypedBatchDatabaseSource<Long>, RowBinderDataSource<MapEntry<K, V>, Long>, SqliteTableSource {
 
 	private final TypedSqliteDataSource<MapEntry<K, V>, CURSOR> source;
 
@@ -83,6 +89,32 @@ public abstract class TypedSqliteMapDataSource<K, V, CURSOR extends Cursor> impl
 		return null;
 	}
 
+	/**
+	 * @return The handler used to transform {@code Cursor} to {@link MapEntry} elements.
+	 */
+	@NonNull
+	public TypedDatabaseElementHandler<MapEntry<K, V>, CURSOR> getDatabaseElementHandler() {
+		return source.getDatabaseElementHandler();
+	}
+
+	/**
+	 * @return Name of the SQL table that contains the elements.
+	 */
+	@NonNull
+	@Override
+	public String getTableName() {
+		return source.getTableName();
+	}
+
+	/**
+	 * @return The SQL database used to read/write data.
+	 */
+	@NonNull
+	@Override
+	public SQLiteOpenHelper getSQLiteOpenHelper() {
+		return source.getSQLiteOpenHelper();
+	}
+
 	@Override
 	public boolean update(MapEntry<K, V> itemToUpdate, ContentValues updateValues) {
 		return source.update(itemToUpdate, updateValues);
@@ -98,16 +130,42 @@ public abstract class TypedSqliteMapDataSource<K, V, CURSOR extends Cursor> impl
 		return source.insert(values);
 	}
 
+	@Override
+	public Long insert(@NonNull MapEntry<K, V> item, @NonNull RowBinder<MapEntry<K, V>> binder) throws RuntimeException {
+		return source.insert(item, binder);
+	}
+
+	@Override
+	public boolean update(@NonNull MapEntry<K, V> itemToUpdate, @NonNull MapEntry<K, V> newItem, @NonNull RowBinder<MapEntry<K, V>> binder) {
+		return source.update(itemToUpdate, newItem, binder);
+	}
+
 	@Override
 	public boolean deleteInvalidEntry(InvalidEntry invalidEntry) {
 		return source.deleteInvalidEntry(invalidEntry);
 	}
 
+	@Override
+	public Object getItemKey(@NonNull MapEntry<K, V> item) {
+		return source.getItemKey(item);
+	}
+
+	@Override
+	public Object getInvalidEntryKey(@NonNull InvalidEntry invalidEntry) {
+		return source.getInvalidEntryKey(invalidEntry);
+	}
+
 	@Override
 	public CURSOR query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit) {
 		return source.query(columns, selection, selectionArgs, groupBy, having, orderBy, limit);
 	}
 
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	@Override
+	public CURSOR query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit, CancellationSignal cancellationSignal) {
+		return source.query(columns, selection, selectionArgs, groupBy, having, orderBy, limit, cancellationSignal);
+	}
+
 	@Override
 	public int update(@NonNull ContentValues updateValues, String selection, String[] selectionArgs) {
 		return source.update(updateValues, selection, selectionArgs);
@@ -118,6 +176,12 @@ public abstract class TypedSqliteMapDataSource<K, V, CURSOR extends Cursor> impl
 		return source.delete(selection, selectionArgs);
 	}
 
+	@NonNull
+	@Override
+	public List<TypedBatchResult<Long>> applyBatch(@NonNull List<TypedBatchOperation> operations) throws RuntimeException {
+		return source.applyBatch(operations);
+	}
+
 	@Override
 	public final void queryAll(BatchReadingCallback<MapEntry<K, V>> readingCallback) {
 		source.queryAll(readingCallback);
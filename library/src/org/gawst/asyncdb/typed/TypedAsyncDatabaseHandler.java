@@ -2,15 +2,24 @@ package org.gawst.asyncdb.typed;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import android.os.Handler;
-import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import org.gawst.asyncdb.AsynchronousDbHelper;
-import org.gawst.asyncdb.AsynchronousDbOperation;
+import org.gawst.asyncdb.CancellableOperations;
+import org.gawst.asyncdb.DbScheduler;
+import org.gawst.asyncdb.HandlerQueries;
+import org.gawst.asyncdb.InvalidDbEntry;
+import org.gawst.asyncdb.QueryResultCache;
+import org.gawst.asyncdb.source.typed.TypedBatchDatabaseSource;
+import org.gawst.asyncdb.source.typed.TypedBatchOperation;
+import org.gawst.asyncdb.source.typed.TypedBatchResult;
+import org.gawst.asyncdb.source.typed.TypedCursorDataSource;
+import org.gawst.asyncdb.source.typed.TypedDatabaseElementHandler;
 import org.gawst.asyncdb.source.typed.TypedDatabaseSource;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -25,8 +34,15 @@ import java.util.concurrent.Callable;
 public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATABASE_ID> {
 
 	private final AsynchronousDbHelper<E, INSERT_ID> asynchronousDbHelper;
-	private static final Handler mHandler = new Handler(Looper.getMainLooper());
+	private static final DbScheduler scheduler = DbScheduler.getDefault();
+	private final CancellableOperations pendingOperations = new CancellableOperations();
 	protected final TypedDatabaseSource<INSERT_ID, DATABASE_ID, CURSOR> dataSource;
+	private final HandlerQueries.QueryCallback<CURSOR> queryCallback = new HandlerQueries.QueryCallback<CURSOR>() {
+		@Override
+		public void onQueryComplete(int token, Object cookie, CURSOR cursor) {
+			TypedAsyncDatabaseHandler.this.onQueryComplete(token, cookie, cursor);
+		}
+	};
 
 	/**
 	 * Constructor.
@@ -160,27 +176,118 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 	                       final String[] projection, final String selection, final String[] selectionArgs,
 	                       final String orderBy, final String limit) {
 		checkDatabaseId(databaseId);
-		asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+		HandlerQueries.startQuery(asynchronousDbHelper, pendingOperations, dataSource, token, cookie, projection, selection, selectionArgs, orderBy, limit, queryCallback);
+	}
+
+	/**
+	 * This method begins an asynchronous query that reads the matching elements in the internal thread. When the query is done
+	 * {@link #onQueryItemsComplete} is called with the elements.
+	 * <p>The {@code Cursor} is read and turned into {@link E} elements with the {@link #getDatabaseElementHandler()} outside
+	 * of the UI thread.</p>
+	 *
+	 * @param token         A token passed into {@link #onQueryItemsComplete} to identify
+	 *                      the query.
+	 * @param cookie        An object that gets passed into {@link #onQueryItemsComplete}
+	 * @param selection     A filter declaring which rows to return, formatted as an
+	 *                      SQL WHERE clause (excluding the WHERE itself). Passing null will
+	 *                      return all rows.
+	 * @param selectionArgs You may include ?s in selection, which will be
+	 *                      replaced by the values from selectionArgs, in the order that they
+	 *                      appear in the selection. The values will be bound as Strings.
+	 * @param orderBy       How to order the rows, formatted as an SQL ORDER BY
+	 * @param offset        The number of elements to skip, or {@code 0}.
+	 * @param limit         The maximum number of elements to read, or {@code -1} to read all of them.
+	 */
+	public void startQueryItems(final int token, final Object cookie,
+	                            final String selection, final String[] selectionArgs, final String orderBy,
+	                            int offset, int limit) {
+		final TypedDatabaseElementHandler<E, CURSOR> elementHandler = getDatabaseElementHandler();
+		final String queryLimit;
+		if (offset > 0)
+			queryLimit = offset + "," + (limit < 0 ? -1 : limit);
+		else if (limit >= 0)
+			queryLimit = String.valueOf(limit);
+		else
+			queryLimit = null;
+
+		pendingOperations.scheduleRead(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
-				CURSOR cursor1;
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
+				List<E> items1 = null;
 				try {
-					cursor1 = dataSource.query(projection, selection, selectionArgs, null, null, orderBy, limit);
+					CURSOR c = HandlerQueries.query(dataSource, this, null, selection, selectionArgs, orderBy, queryLimit);
+					if (null != c) {
+						try {
+							items1 = new ArrayList<E>(c.getCount());
+							while (!isCancelled() && c.moveToNext()) {
+								try {
+									items1.add(elementHandler.cursorToItem(c));
+								} catch (InvalidDbEntry e) {
+									asynchronousDbHelper.removeInvalidEntry(e.getInvalidEntry());
+								}
+							}
+						} finally {
+							c.close();
+						}
+					}
 				} catch (Exception e) {
-					cursor1 = null;
+					items1 = null;
 				}
 
-				final CURSOR cursor = cursor1;
-				mHandler.post(new Runnable() {
+				if (isCancelled())
+					return;
+
+				final List<E> items = items1;
+				scheduler.postCallback(new Runnable() {
 					@Override
 					public void run() {
-						onQueryComplete(token, cookie, cursor);
+						onQueryItemsComplete(token, cookie, items);
 					}
 				});
 			}
 		});
 	}
 
+	/**
+	 * @return The handler used to turn the {@code Cursor} into {@link E} elements in {@link #startQueryItems(int, Object, String, String[], String, int, int) startQueryItems()}.
+	 * @throws IllegalStateException if the {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource} is not a
+	 *                               {@link org.gawst.asyncdb.source.typed.TypedCursorDataSource}, in that case this method should be overridden.
+	 */
+	@NonNull
+	protected TypedDatabaseElementHandler<E, CURSOR> getDatabaseElementHandler() {
+		if (dataSource instanceof TypedCursorDataSource) {
+			@SuppressWarnings("unchecked")
+			TypedCursorDataSource<E, ?, ?, CURSOR> cursorDataSource = (TypedCursorDataSource<E, ?, ?, CURSOR>) dataSource;
+			return cursorDataSource.getDatabaseElementHandler();
+		}
+		throw new IllegalStateException("no TypedDatabaseElementHandler available for " + dataSource);
+	}
+
+	/**
+	 * Attempts to cancel the operations started with the {@code token} that have not already started. Note that there is no
+	 * guarantee that the operation will be cancelled. They still may result in a call to on[Query/Insert/Update/Delete]Complete
+	 * after this call has completed.
+	 * <p>A query already running is interrupted if the {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource} supports
+	 * {@link org.gawst.asyncdb.source.typed.TypedCancellableDatabaseSource cancellation}, its result is never delivered.</p>
+	 *
+	 * @param token The token representing the operation to be cancelled.
+	 *              If multiple operations have the same token they will all be cancelled.
+	 */
+	public final void cancelOperation(int token) {
+		pendingOperations.cancel(token);
+	}
+
+	/**
+	 * Attempts to cancel the operations started with the {@code cookie} that have not already started.
+	 *
+	 * @param cookie The cookie passed when the operation was started.
+	 *               If multiple operations have the same cookie they will all be cancelled.
+	 * @see #cancelOperation(int)
+	 */
+	public final void cancelOperationsForCookie(Object cookie) {
+		pendingOperations.cancelCookie(cookie);
+	}
+
 	/**
 	 * This method begins an asynchronous insert. When the insert operation is
 	 * done {@link #onInsertComplete} is called.
@@ -193,9 +300,9 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 	public void startInsert(final int token, final Object cookie, E item) {
 		final ContentValues insertValues = asynchronousDbHelper.getValuesFromData(item, false);
 		if (null != insertValues) {
-			asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+			pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 				@Override
-				public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+				protected void runOperation(AsynchronousDbHelper<?, ?> db) {
 					INSERT_ID inserted1 = null;
 					try {
 						inserted1 = dataSource.insert(insertValues);
@@ -207,8 +314,10 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 						}
 					}
 
+					asynchronousDbHelper.invalidateQueryResultCache();
+
 					final INSERT_ID insertId = inserted1;
-					mHandler.post(new Runnable() {
+					scheduler.postCallback(new Runnable() {
 						@Override
 						public void run() {
 							onInsertComplete(token, cookie, insertId);
@@ -216,6 +325,7 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 					});
 				}
 			});
+			asynchronousDbHelper.invalidateQueryResultCache();
 		}
 	}
 
@@ -232,18 +342,19 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 	                        final E item, final String selection, final String[] selectionArgs) {
 		final ContentValues updateValues = asynchronousDbHelper.getValuesFromData(item, true);
 		if (null != updateValues) {
-			asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+			pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 				@Override
-				public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+				protected void runOperation(AsynchronousDbHelper<?, ?> db) {
 					int updatedRows;
 					try {
 						updatedRows = dataSource.update(updateValues, selection, selectionArgs);
 					} catch (Exception e) {
 						updatedRows = 0;
 					}
+					asynchronousDbHelper.invalidateQueryResultCache();
 
 					final int finalUpdatedRows = updatedRows;
-					mHandler.post(new Runnable() {
+					scheduler.postCallback(new Runnable() {
 						@Override
 						public void run() {
 							onUpdateComplete(token, cookie, finalUpdatedRows);
@@ -251,6 +362,7 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 					});
 				}
 			});
+			asynchronousDbHelper.invalidateQueryResultCache();
 		}
 	}
 
@@ -264,18 +376,19 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 	 * @param item   to delete from the database.
 	 */
 	public void startDelete(final int token, final Object cookie, final E item) {
-		asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+		pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
 				int deleted;
 				try {
 					deleted = asynchronousDbHelper.getDataSource().delete(item);
 				} catch (Exception e) {
 					deleted = 0;
 				}
+				asynchronousDbHelper.invalidateQueryResultCache();
 
 				final int finalDeleted = deleted;
-				mHandler.post(new Runnable() {
+				scheduler.postCallback(new Runnable() {
 					@Override
 					public void run() {
 						onDeleteComplete(token, cookie, finalDeleted);
@@ -283,6 +396,151 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 				});
 			}
 		});
+		asynchronousDbHelper.invalidateQueryResultCache();
+	}
+
+	/**
+	 * A list of insert/update/delete operations to run at once with {@link #startBatch(int, Object, Batch) startBatch()}.
+	 *
+	 * @see #newBatch()
+	 */
+	public final class Batch {
+		private final ArrayList<TypedBatchOperation> operations = new ArrayList<TypedBatchOperation>();
+
+		private Batch() {
+		}
+
+		/**
+		 * Add an insert of the {@code item} to the batch. Nothing is added if the item has no values to write.
+		 */
+		public Batch insert(@NonNull E item) {
+			ContentValues insertValues = asynchronousDbHelper.getValuesFromData(item, false);
+			if (null != insertValues) {
+				operations.add(TypedBatchOperation.newInsert(insertValues));
+			}
+			return this;
+		}
+
+		/**
+		 * Add an update of the {@code item} to the batch. Nothing is added if the item has no values to write.
+		 *
+		 * @see #startUpdate(int, Object, Object, String, String[])
+		 */
+		public Batch update(@NonNull E item, String selection, String[] selectionArgs) {
+			ContentValues updateValues = asynchronousDbHelper.getValuesFromData(item, true);
+			if (null != updateValues) {
+				operations.add(TypedBatchOperation.newUpdate(updateValues, selection, selectionArgs));
+			}
+			return this;
+		}
+
+		/**
+		 * Add an update of the {@code item} selected by the {@link #getDatabaseElementHandler()} to the batch.
+		 * Nothing is added if the item has no values to write.
+		 */
+		public Batch update(@NonNull E item) {
+			TypedDatabaseElementHandler<E, CURSOR> elementHandler = getDatabaseElementHandler();
+			return update(item, elementHandler.getItemSelectClause(item), elementHandler.getItemSelectArgs(item));
+		}
+
+		/**
+		 * Add a delete of the {@code item} selected by the {@link #getDatabaseElementHandler()} to the batch.
+		 */
+		public Batch delete(@NonNull E item) {
+			TypedDatabaseElementHandler<E, CURSOR> elementHandler = getDatabaseElementHandler();
+			return delete(elementHandler.getItemSelectClause(item), elementHandler.getItemSelectArgs(item));
+		}
+
+		/**
+		 * Add a delete of the rows matching the {@code selection} to the batch.
+		 */
+		public Batch delete(String selection, String[] selectionArgs) {
+			operations.add(TypedBatchOperation.newDelete(selection, selectionArgs));
+			return this;
+		}
+
+		/**
+		 * Add a raw operation to the batch.
+		 */
+		public Batch add(@NonNull TypedBatchOperation operation) {
+			operations.add(operation);
+			return this;
+		}
+
+		/**
+		 * @return The number of operations in the batch, also the number of results in {@link #onBatchComplete}.
+		 */
+		public int size() {
+			return operations.size();
+		}
+	}
+
+	/**
+	 * @return A new empty {@link Batch} to fill and pass to {@link #startBatch(int, Object, Batch) startBatch()}.
+	 */
+	public Batch newBatch() {
+		return new Batch();
+	}
+
+	/**
+	 * This method begins an asynchronous processing of all the operations in the {@code batch}. When all the operations are
+	 * done {@link #onBatchComplete} is called once.
+	 * <p>If the {@link org.gawst.asyncdb.source.typed.TypedDatabaseSource} is a
+	 * {@link org.gawst.asyncdb.source.typed.TypedBatchDatabaseSource} all the operations are done in a single transaction,
+	 * otherwise they are done one after the other and stop at the first one that fails.</p>
+	 *
+	 * @param token  A token passed into {@link #onBatchComplete} to identify the operation.
+	 * @param cookie An object that gets passed into {@link #onBatchComplete}
+	 * @param batch  The operations to run, the batch can be modified or reused after this call.
+	 */
+	public void startBatch(final int token, final Object cookie, @NonNull Batch batch) {
+		final List<TypedBatchOperation> operations = new ArrayList<TypedBatchOperation>(batch.operations);
+		pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
+			@Override
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
+				List<TypedBatchResult<INSERT_ID>> results1;
+				if (dataSource instanceof TypedBatchDatabaseSource) {
+					try {
+						@SuppressWarnings("unchecked")
+						TypedBatchDatabaseSource<INSERT_ID> batchSource = (TypedBatchDatabaseSource<INSERT_ID>) dataSource;
+						results1 = batchSource.applyBatch(operations);
+					} catch (Exception e) {
+						// the transaction was rolled back
+						results1 = null;
+					}
+				} else {
+					results1 = new ArrayList<TypedBatchResult<INSERT_ID>>(operations.size());
+					try {
+						for (TypedBatchOperation operation : operations) {
+							results1.add(operation.apply(dataSource));
+						}
+					} catch (Exception e) {
+						// keep the results of the operations already applied
+					}
+				}
+
+				if (null != results1) {
+					int insertCount = 0;
+					for (int i = 0; i < results1.size(); ++i) {
+						if (operations.get(i).type == TypedBatchOperation.Type.INSERT && null != results1.get(i).insertId)
+							++insertCount;
+					}
+					if (insertCount != 0)
+						asynchronousDbHelper.triggerPurgeHandler(insertCount);
+				}
+
+				asynchronousDbHelper.invalidateQueryResultCache();
+
+				final List<TypedBatchResult<INSERT_ID>> results = results1;
+				scheduler.postCallback(new Runnable() {
+					@Override
+					public void run() {
+						onBatchComplete(token, cookie, results);
+					}
+				});
+			}
+		});
+		asynchronousDbHelper.invalidateQueryResultCache();
 	}
 
 	/**
@@ -294,12 +552,12 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 	 * @param job    The {@code Runnable} to run.
 	 */
 	public final void startRunnable(final int token, final Object cookie, final Runnable job) {
-		asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+		pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
 			@Override
-			public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+			protected void runOperation(AsynchronousDbHelper<?, ?> db) {
 				job.run();
 
-				mHandler.post(new Runnable() {
+				scheduler.postCallback(new Runnable() {
 					@Override
 					public void run() {
 						onRunnableCompleted(token, cookie);
@@ -344,19 +602,19 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
      * @param <V>      type of the data returned by the {@code Callable}
      */
     public final <V> void startCallable(final int token, final Object cookie, @NonNull final Callable<V> callable, @NonNull final CallableCallback<V> callback) {
-        asynchronousDbHelper.scheduleCustomOperation(new AsynchronousDbOperation() {
+        pendingOperations.schedule(asynchronousDbHelper, new CancellableOperations.Operation(token, cookie) {
             @Override
-            public void runInMemoryDbOperation(AsynchronousDbHelper<?, ?> db) {
+            protected void runOperation(AsynchronousDbHelper<?, ?> db) {
                 try {
                     final V result = callable.call();
-                    mHandler.post(new Runnable() {
+                    scheduler.postCallback(new Runnable() {
                         @Override
                         public void run() {
                             callback.onCallableResult(token, cookie, result, null);
                         }
                     });
                 } catch (final Exception e) {
-                    mHandler.post(new Runnable() {
+                    scheduler.postCallback(new Runnable() {
                         @Override
                         public void run() {
                             callback.onCallableResult(token, cookie, null, e);
@@ -380,6 +638,19 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 		// Empty
 	}
 
+	/**
+	 * Called when an asynchronous query of elements is completed.
+	 * </p>Called in the UI thread
+	 *
+	 * @param token  the token to identify the query, passed in from
+	 *               {@link #startQueryItems}.
+	 * @param cookie the cookie object passed in from {@link #startQueryItems}.
+	 * @param items  The elements read from the query, {@code null} if the query failed.
+	 */
+	protected void onQueryItemsComplete(int token, Object cookie, @Nullable List<E> items) {
+		// Empty
+	}
+
 	/**
 	 * Called when an asynchronous insert is completed.
 	 * </p>Called in the UI thread
@@ -422,6 +693,24 @@ public class TypedAsyncDatabaseHandler<E, CURSOR extends Cursor, INSERT_ID, DATA
 		// Empty
 	}
 
+	/**
+	 * Called when an asynchronous batch is completed.
+	 * </p>Called in the UI thread
+	 *
+	 * @param token   the token to identify the batch, passed in from
+	 *                {@link #startBatch}.
+	 * @param cookie  the cookie object that's passed in from
+	 *                {@link #startBatch}.
+	 * @param results the result of each operation in the order they were added in the {@link Batch},
+	 *                {@code null} if the batch failed in a single transaction and nothing was applied. When the operations
+	 *                are applied one after the other, the list stops at the operation that failed: if it's shorter than
+	 *                the {@link Batch#size()}, the operation at index {@code results.size()} failed and the following ones
+	 *                were not applied.
+	 */
+	protected void onBatchComplete(int token, Object cookie, @Nullable List<TypedBatchResult<INSERT_ID>> results) {
+		// Empty
+	}
+
 	/**
 	 * Called when an asynchronous {@code Runnable} is completed.
 	 * </p>Called in the UI thread
@@ -0,0 +1,405 @@
+package org.gawst.asyncdb.processor;
+
+import org.gawst.asyncdb.annotation.Column;
+import org.gawst.asyncdb.annotation.Table;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generate the element handler, the {@link org.gawst.asyncdb.RowBinder} and the {@code TypedSqliteDataSource} of the classes
+ * marked with {@link org.gawst.asyncdb.annotation.Table}.
+ * <p>The generated code reads the columns with fixed indexes and accesses the fields directly, without reflection.</p>
+ */
+@SupportedAnnotationTypes("org.gawst.asyncdb.annotation.Table")
+public class ElementHandlerProcessor extends AbstractProcessor {
+
+	private static final String SUFFIX = "_Db";
+
+	/**
+	 * How a field type is read from a {@code Cursor} and written in a {@code RowWriter}.
+	 */
+	private enum ColumnType {
+		LONG("cursor.getLong(%d)", "%s", "String.valueOf(%s)"),
+		INT("cursor.getInt(%d)", "%s", "String.valueOf(%s)"),
+		SHORT("cursor.getShort(%d)", "%s", "String.valueOf(%s)"),
+		BYTE("(byte) cursor.getInt(%d)", "%s", "String.valueOf(%s)"),
+		BOOLEAN("cursor.getInt(%d) != 0", "%s ? 1L : 0L", "%s ? \"1\" : \"0\""),
+		DOUBLE("cursor.getDouble(%d)", "%s", "String.valueOf(%s)"),
+		FLOAT("cursor.getFloat(%d)", "(double) %s", "String.valueOf((double) %s)"),
+		STRING("cursor.getString(%d)", "%s", "%s"),
+		BLOB("cursor.getBlob(%d)", "%s", null);
+
+		final String read;
+		final String write;
+		/** the selection argument matching the value written, {@code null} if it can't be a key */
+		final String selectArg;
+
+		ColumnType(String read, String write, String selectArg) {
+			this.read = read;
+			this.write = write;
+			this.selectArg = selectArg;
+		}
+	}
+
+	private static class ColumnField {
+		final String fieldName;
+		final String columnName;
+		final boolean key;
+		final ColumnType type;
+		/** the field can be {@code null} */
+		final boolean nullable;
+		/** the method to unbox the field value */
+		final String unboxing;
+
+		ColumnField(String fieldName, String columnName, boolean key, ColumnType type, boolean nullable, String unboxing) {
+			this.fieldName = fieldName;
+			this.columnName = columnName;
+			this.key = key;
+			this.type = type;
+			this.nullable = nullable;
+			this.unboxing = unboxing;
+		}
+
+		String getConstant() {
+			return "COLUMN_" + columnName.replaceAll("^_+", "").replaceAll("[^A-Za-z0-9_]", "_").toUpperCase(Locale.US);
+		}
+
+		String getValue(String item) {
+			return item + '.' + fieldName + (null == unboxing ? "" : '.' + unboxing + "()");
+		}
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(Table.class)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				error(element, "@Table is only supported on classes");
+				continue;
+			}
+			final TypeElement type = (TypeElement) element;
+			final List<ColumnField> columns = readColumns(type);
+			if (null == columns)
+				continue;
+			try {
+				generate(type, columns);
+			} catch (IOException e) {
+				error(type, "failed to generate the handler: " + e.getMessage());
+			}
+		}
+		return true;
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	/**
+	 * @return The columns of the class, {@code null} if it can't be handled.
+	 */
+	private List<ColumnField> readColumns(TypeElement type) {
+		boolean valid = true;
+		if (type.getModifiers().contains(Modifier.PRIVATE) || type.getModifiers().contains(Modifier.ABSTRACT)) {
+			error(type, "@Table classes can't be private or abstract");
+			valid = false;
+		}
+		if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+			error(type, "nested @Table classes must be static");
+			valid = false;
+		}
+		boolean hasConstructor = false;
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+				hasConstructor = true;
+		}
+		if (!hasConstructor) {
+			error(type, "@Table classes need a non-private constructor without arguments");
+			valid = false;
+		}
+
+		final List<ColumnField> columns = new ArrayList<ColumnField>();
+		final Map<String, ColumnField> constants = new HashMap<String, ColumnField>();
+		boolean hasKey = false;
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			final Column column = field.getAnnotation(Column.class);
+			if (null == column)
+				continue;
+			if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.FINAL)) {
+				error(field, "@Column fields can't be private, static or final");
+				valid = false;
+				continue;
+			}
+			final String fieldType = field.asType().toString();
+			final ColumnType columnType;
+			boolean nullable = !field.asType().getKind().isPrimitive();
+			String unboxing = null;
+			if ("long".equals(fieldType) || "java.lang.Long".equals(fieldType)) {
+				columnType = ColumnType.LONG;
+				if (nullable) unboxing = "longValue";
+			} else if ("int".equals(fieldType) || "java.lang.Integer".equals(fieldType)) {
+				columnType = ColumnType.INT;
+				if (nullable) unboxing = "intValue";
+			} else if ("short".equals(fieldType) || "java.lang.Short".equals(fieldType)) {
+				columnType = ColumnType.SHORT;
+				if (nullable) unboxing = "shortValue";
+			} else if ("byte".equals(fieldType) || "java.lang.Byte".equals(fieldType)) {
+				columnType = ColumnType.BYTE;
+				if (nullable) unboxing = "byteValue";
+			} else if ("boolean".equals(fieldType) || "java.lang.Boolean".equals(fieldType)) {
+				columnType = ColumnType.BOOLEAN;
+				if (nullable) unboxing = "booleanValue";
+			} else if ("double".equals(fieldType) || "java.lang.Double".equals(fieldType)) {
+				columnType = ColumnType.DOUBLE;
+				if (nullable) unboxing = "doubleValue";
+			} else if ("float".equals(fieldType) || "java.lang.Float".equals(fieldType)) {
+				columnType = ColumnType.FLOAT;
+				if (nullable) unboxing = "floatValue";
+			} else if ("java.lang.String".equals(fieldType)) {
+				columnType = ColumnType.STRING;
+			} else if ("byte[]".equals(fieldType)) {
+				columnType = ColumnType.BLOB;
+			} else {
+				error(field, "unsupported @Column type " + fieldType);
+				valid = false;
+				continue;
+			}
+			if (column.key() && null == columnType.selectArg) {
+				error(field, "@Column(key = true) fields can't be of type " + fieldType);
+				valid = false;
+				continue;
+			}
+			final String columnName = column.value().length() == 0 ? field.getSimpleName().toString() : column.value();
+			final ColumnField columnField = new ColumnField(field.getSimpleName().toString(), columnName, column.key(), columnType, nullable, unboxing);
+			final ColumnField sameConstant = constants.put(columnField.getConstant(), columnField);
+			if (null != sameConstant) {
+				error(field, "@Column \"" + columnName + "\" and \"" + sameConstant.columnName + "\" of field " + sameConstant.fieldName + " both generate the constant " + columnField.getConstant() + ", rename one of the columns");
+				valid = false;
+				continue;
+			}
+			columns.add(columnField);
+			hasKey |= column.key();
+		}
+		if (columns.isEmpty()) {
+			error(type, "@Table classes need at least one @Column field");
+			valid = false;
+		} else if (!hasKey) {
+			error(type, "@Table classes need at least one @Column(key = true) field to select the elements");
+			valid = false;
+		}
+		return valid ? columns : null;
+	}
+
+	private void generate(TypeElement type, List<ColumnField> columns) throws IOException {
+		final String packageName = getPackageName(type);
+		final String itemClass = type.getQualifiedName().toString().substring(packageName.length() == 0 ? 0 : packageName.length() + 1);
+		final String className = itemClass.replace('.', '_') + SUFFIX;
+		final String tableName = type.getAnnotation(Table.class).value();
+
+		final PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(packageName.length() == 0 ? className : packageName + '.' + className, type).openWriter());
+		try {
+			if (packageName.length() != 0) {
+				out.println("package " + packageName + ';');
+				out.println();
+			}
+			out.println("import android.annotation.TargetApi;");
+			out.println("import android.content.ContentValues;");
+			out.println("import android.content.Context;");
+			out.println("import android.database.Cursor;");
+			out.println("import android.database.sqlite.SQLiteOpenHelper;");
+			out.println("import android.os.Build;");
+			out.println("import android.os.CancellationSignal;");
+			out.println("import android.support.annotation.NonNull;");
+			out.println("import android.support.annotation.Nullable;");
+			out.println();
+			out.println("import org.gawst.asyncdb.RowBinder;");
+			out.println("import org.gawst.asyncdb.RowWriter;");
+			out.println("import org.gawst.asyncdb.source.typed.TypedDatabaseElementHandler;");
+			out.println("import org.gawst.asyncdb.source.typed.TypedSqliteDataSource;");
+			out.println();
+			out.println("/**");
+			out.println(" * Database handling of {@link " + itemClass + "} generated by " + getClass().getSimpleName() + ", do not edit.");
+			out.println(" */");
+			out.println("public final class " + className + " {");
+			out.println();
+			out.println("\tpublic static final String TABLE_NAME = \"" + tableName + "\";");
+			for (ColumnField column : columns) {
+				out.println("\tpublic static final String " + column.getConstant() + " = \"" + column.columnName + "\";");
+			}
+			out.println();
+			out.println("\t/**");
+			out.println("\t * The columns read by {@link Source}, in the order used by {@link #HANDLER}.");
+			out.println("\t */");
+			out.print("\tpublic static final String[] COLUMNS = {");
+			for (int i = 0; i < columns.size(); ++i) {
+				out.print((i == 0 ? " " : ", ") + columns.get(i).getConstant());
+			}
+			out.println(" };");
+			out.println();
+
+			// select clause
+			final StringBuilder selectClause = new StringBuilder();
+			final StringBuilder selectArgs = new StringBuilder();
+			for (ColumnField column : columns) {
+				if (column.key) {
+					if (selectClause.length() != 0) {
+						selectClause.append(" AND ");
+						selectArgs.append(", ");
+					}
+					selectClause.append(column.columnName).append("=?");
+					// a null String key is passed as is so the query fails, boxed keys throw a NullPointerException
+					selectArgs.append(String.format(Locale.US, column.type.selectArg, column.getValue("itemToSelect")));
+				}
+			}
+
+			out.println("\t/**");
+			out.println("\t * Handler reading the columns with fixed indexes, the {@code Cursor} must have the {@link #COLUMNS} in that order.");
+			out.println("\t */");
+			out.println("\tpublic static final TypedDatabaseElementHandler<" + itemClass + ", Cursor> HANDLER = new TypedDatabaseElementHandler<" + itemClass + ", Cursor>() {");
+			out.println("\t\t@NonNull");
+			out.println("\t\t@Override");
+			out.println("\t\tpublic String getItemSelectClause(@Nullable " + itemClass + " itemToSelect) {");
+			out.println("\t\t\treturn \"" + selectClause + "\";");
+			out.println("\t\t}");
+			out.println();
+			out.println("\t\t@NonNull");
+			out.println("\t\t@Override");
+			out.println("\t\tpublic String[] getItemSelectArgs(@NonNull " + itemClass + " itemToSelect) {");
+			out.println("\t\t\treturn new String[] { " + selectArgs + " };");
+			out.println("\t\t}");
+			out.println();
+			out.println("\t\t@NonNull");
+			out.println("\t\t@Override");
+			out.println("\t\tpublic " + itemClass + " cursorToItem(@NonNull Cursor cursor) {");
+			out.println("\t\t\t" + itemClass + " item = new " + itemClass + "();");
+			for (int i = 0; i < columns.size(); ++i) {
+				final ColumnField column = columns.get(i);
+				final String read = String.format(Locale.US, column.type.read, i);
+				if (column.nullable && null != column.unboxing)
+					out.println("\t\t\titem." + column.fieldName + " = cursor.isNull(" + i + ") ? null : " + (column.type == ColumnType.BOOLEAN ? "Boolean.valueOf(" + read + ')' : read) + ';');
+				else
+					out.println("\t\t\titem." + column.fieldName + " = " + read + ';');
+			}
+			out.println("\t\t\treturn item;");
+			out.println("\t\t}");
+			out.println("\t};");
+			out.println();
+
+			out.println("\t/**");
+			out.println("\t * Binder writing the fields in the data source without {@link ContentValues}, the key columns are only written on inserts.");
+			out.println("\t */");
+			out.println("\tpublic static final RowBinder<" + itemClass + "> BINDER = new RowBinder<" + itemClass + ">() {");
+			out.println("\t\t@Override");
+			out.println("\t\tpublic void bind(@NonNull " + itemClass + " item, boolean update, @NonNull RowWriter writer) {");
+			printWrites(out, "\t\t\t", columns, "writer.put(%s, %s);", "writer.putNull(%s);");
+			out.println("\t\t}");
+			out.println("\t};");
+			out.println();
+
+			out.println("\tprivate " + className + "() {");
+			out.println("\t}");
+			out.println();
+
+			out.println("\t/**");
+			out.println("\t * Transform the {@code item} into {@link ContentValues}, for the helpers that don't use {@link #BINDER}.");
+			out.println("\t *");
+			out.println("\t * @param update {@code true} if the values are for an update, the key columns are omitted.");
+			out.println("\t */");
+			out.println("\t@NonNull");
+			out.println("\tpublic static ContentValues toContentValues(@NonNull " + itemClass + " item, boolean update) {");
+			out.println("\t\tContentValues values = new ContentValues(" + columns.size() + ");");
+			printWrites(out, "\t\t", columns, "values.put(%s, %s);", null);
+			out.println("\t\treturn values;");
+			out.println("\t}");
+			out.println();
+
+			out.println("\t/**");
+			out.println("\t * Data source reading the {@link #COLUMNS} of the table so {@link #HANDLER} can use fixed column indexes.");
+			out.println("\t */");
+			out.println("\tpublic static class Source extends TypedSqliteDataSource<" + itemClass + ", Cursor> {");
+			out.println("\t\t@TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)");
+			out.println("\t\tpublic Source(@NonNull Context context, @NonNull SQLiteOpenHelper db) {");
+			out.println("\t\t\tsuper(context, db, TABLE_NAME, HANDLER);");
+			out.println("\t\t}");
+			out.println();
+			out.println("\t\tpublic Source(@NonNull Context context, @NonNull SQLiteOpenHelper db, @NonNull String databaseName) {");
+			out.println("\t\t\tsuper(context, db, TABLE_NAME, databaseName, HANDLER);");
+			out.println("\t\t}");
+			out.println();
+			out.println("\t\t@Override");
+			out.println("\t\tpublic Cursor query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit) {");
+			out.println("\t\t\treturn super.query(null == columns ? COLUMNS : columns, selection, selectionArgs, groupBy, having, orderBy, limit);");
+			out.println("\t\t}");
+			out.println();
+			out.println("\t\t@TargetApi(Build.VERSION_CODES.JELLY_BEAN)");
+			out.println("\t\t@Override");
+			out.println("\t\tpublic Cursor query(String[] columns, String selection, String[] selectionArgs, String groupBy, String having, String orderBy, String limit, CancellationSignal cancellationSignal) {");
+			out.println("\t\t\treturn super.query(null == columns ? COLUMNS : columns, selection, selectionArgs, groupBy, having, orderBy, limit, cancellationSignal);");
+			out.println("\t\t}");
+			out.println();
+			out.println("\t\t@Override");
+			out.println("\t\tpublic Cursor wrapCursor(Cursor cursor) {");
+			out.println("\t\t\treturn cursor;");
+			out.println("\t\t}");
+			out.println("\t}");
+			out.println("}");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @param putNull The call to write {@code null} for the boxed types, {@code null} if {@code put} handles them.
+	 */
+	private static void printWrites(PrintWriter out, String indent, List<ColumnField> columns, String put, String putNull) {
+		boolean inKeys = false;
+		for (ColumnField column : columns) {
+			if (column.key != inKeys) {
+				out.println(indent + (inKeys ? "}" : "if (!update) {"));
+				inKeys = column.key;
+			}
+			final String lineIndent = inKeys ? indent + '\t' : indent;
+			if (null == putNull) {
+				out.println(lineIndent + String.format(Locale.US, put, column.getConstant(), "item." + column.fieldName));
+			} else if (null != column.unboxing) {
+				out.println(lineIndent + "if (null == item." + column.fieldName + ')');
+				out.println(lineIndent + '\t' + String.format(Locale.US, putNull, column.getConstant()));
+				out.println(lineIndent + "else");
+				out.println(lineIndent + '\t' + String.format(Locale.US, put, column.getConstant(), String.format(Locale.US, column.type.write, column.getValue("item"))));
+			} else {
+				out.println(lineIndent + String.format(Locale.US, put, column.getConstant(), String.format(Locale.US, column.type.write, "item." + column.fieldName)));
+			}
+		}
+		if (inKeys)
+			out.println(indent + '}');
+	}
+
+	private String getPackageName(TypeElement type) {
+		final PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+		return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+	}
+}